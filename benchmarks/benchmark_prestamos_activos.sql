@@ -0,0 +1,103 @@
+-- -----------------------------------------------------
+-- Benchmark de la consulta de préstamos activos
+-- -----------------------------------------------------
+-- Compara la consulta anterior (NOT IN) con el anti-join (NOT EXISTS) que usa
+-- PrestamoDAO.obtenerPrestamosActivos mientras Historico_prestamo crece de 10.000 a 1.000.000 de filas.
+-- Trabaja en un esquema aparte (`libros_bench`) para no tocar los datos reales.
+-- Necesita el motor SEQUENCE de MariaDB (tablas seq_1_to_N), incluido por defecto desde 10.1.
+--
+-- Uso:  mariadb -u admin -p < benchmarks/benchmark_prestamos_activos.sql
+--
+-- El resultado es una fila por tamaño de histórico y consulta con el tiempo medio en milisegundos.
+-- Con el anti-join el tiempo debe mantenerse plano; para ver el plan de cada consulta se pueden
+-- ejecutar las sentencias ANALYZE FORMAT=JSON del final.
+
+DROP SCHEMA IF EXISTS `libros_bench`;
+CREATE SCHEMA `libros_bench` DEFAULT CHARACTER SET latin1 COLLATE latin1_spanish_ci;
+USE `libros_bench`;
+
+CREATE TABLE `Alumno` LIKE `libros`.`Alumno`;
+CREATE TABLE `Libro` LIKE `libros`.`Libro`;
+CREATE TABLE `Prestamo` LIKE `libros`.`Prestamo`;
+CREATE TABLE `Historico_prestamo` LIKE `libros`.`Historico_prestamo`;
+
+INSERT INTO `Alumno` (dni, nombre, apellido1, apellido2)
+SELECT LPAD(seq, 8, '0'), CONCAT('Alumno ', seq), 'Apellido', 'Apellido' FROM seq_1_to_2000;
+
+INSERT INTO `Libro` (codigo, titulo, autor, editorial, estado, baja)
+SELECT seq, CONCAT('Libro ', seq), 'Autor', 'Editorial', 'Nuevo', 0 FROM seq_1_to_5000;
+
+CREATE TABLE `resultados` (
+    `filas_historico` INT NOT NULL,
+    `consulta` VARCHAR(20) NOT NULL,
+    `ms_medio` DECIMAL(12, 3) NOT NULL
+);
+
+DELIMITER //
+
+-- Rellena el histórico con n préstamos devueltos y deja 500 préstamos activos,
+-- como ocurre en la aplicación: al devolver un libro el préstamo pasa al histórico y se borra de Prestamo.
+CREATE PROCEDURE `preparar`(IN n INT)
+BEGIN
+    DELETE FROM `Prestamo`;
+    DELETE FROM `Historico_prestamo`;
+    SET @sql = CONCAT(
+        'INSERT INTO Historico_prestamo (id_prestamo, dni_alumno, codigo_libro, fecha_prestamo, fecha_devolucion) ',
+        'SELECT seq, LPAD(1 + seq % 2000, 8, ''0''), 1 + seq % 5000, ',
+        'NOW() - INTERVAL seq MINUTE, NOW() - INTERVAL seq MINUTE + INTERVAL 7 DAY FROM seq_1_to_', n);
+    PREPARE stmt FROM @sql;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+    INSERT INTO `Prestamo` (id_prestamo, dni_alumno, codigo_libro, fecha_prestamo)
+    SELECT n + seq, LPAD(1 + seq % 2000, 8, '0'), 1 + seq % 5000, NOW() FROM seq_1_to_500;
+    ANALYZE TABLE `Prestamo`, `Historico_prestamo`;
+END //
+
+-- Ejecuta cada consulta varias veces y guarda el tiempo medio.
+CREATE PROCEDURE `medir`(IN n INT, IN repeticiones INT)
+BEGIN
+    DECLARE i INT DEFAULT 0;
+    DECLARE inicio DATETIME(6);
+
+    SET i = 0;
+    SET inicio = NOW(6);
+    WHILE i < repeticiones DO
+        SELECT COUNT(*) INTO @activos FROM (
+            SELECT * FROM Prestamo WHERE id_prestamo NOT IN (SELECT id_prestamo FROM Historico_prestamo)
+        ) t;
+        SET i = i + 1;
+    END WHILE;
+    INSERT INTO `resultados` VALUES (n, 'NOT IN', TIMESTAMPDIFF(MICROSECOND, inicio, NOW(6)) / repeticiones / 1000);
+
+    SET i = 0;
+    SET inicio = NOW(6);
+    WHILE i < repeticiones DO
+        SELECT COUNT(*) INTO @activos FROM (
+            SELECT p.id_prestamo, p.dni_alumno, p.codigo_libro, p.fecha_prestamo FROM Prestamo p
+            WHERE NOT EXISTS (SELECT 1 FROM Historico_prestamo h WHERE h.id_prestamo = p.id_prestamo)
+        ) t;
+        SET i = i + 1;
+    END WHILE;
+    INSERT INTO `resultados` VALUES (n, 'NOT EXISTS', TIMESTAMPDIFF(MICROSECOND, inicio, NOW(6)) / repeticiones / 1000);
+END //
+
+DELIMITER ;
+
+CALL preparar(10000);
+CALL medir(10000, 50);
+CALL preparar(100000);
+CALL medir(100000, 50);
+CALL preparar(1000000);
+CALL medir(1000000, 20);
+
+SELECT * FROM `resultados` ORDER BY `consulta`, `filas_historico`;
+
+-- Planes con el histórico de 1.000.000 de filas
+ANALYZE FORMAT=JSON
+SELECT * FROM Prestamo WHERE id_prestamo NOT IN (SELECT id_prestamo FROM Historico_prestamo);
+
+ANALYZE FORMAT=JSON
+SELECT p.id_prestamo, p.dni_alumno, p.codigo_libro, p.fecha_prestamo FROM Prestamo p
+WHERE NOT EXISTS (SELECT 1 FROM Historico_prestamo h WHERE h.id_prestamo = p.id_prestamo);
+
+DROP SCHEMA `libros_bench`;
@@ -1,5 +1,9 @@
 package com.eiman.biblioteca;
 
+import com.eiman.biblioteca.dao.AlumnoDAO;
+import com.eiman.biblioteca.dao.LibroDAO;
+import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -36,6 +40,18 @@ public class Biblioteca extends Application {
         }
     }
 
+    /**
+     * Metodo de cierre de la aplicación JavaFX.
+     * Espera a que terminen las tareas de base de datos pendientes y después cierra el pool de conexiones.
+     */
+    @Override
+    public void stop() {
+        logger.info("Cerrando la aplicación Biblioteca.");
+        DatabaseExecutor.shutdown();
+        logger.info("Cache de alumnos: " + AlumnoDAO.resumenCache() + ". Cache de libros: " + LibroDAO.resumenCache());
+        DatabaseConnection.closeConnection();
+    }
+
     /**
      * Metodo principal que inicia la aplicación.
      *
@@ -1,14 +1,17 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.AlumnoDAO;
+import com.eiman.biblioteca.dao.AsyncDAO;
 import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,7 +28,7 @@ public class AlumnoController {
 
     private BibliotecaController bibliotecaController;
 
-    private final AlumnoDAO alumnoDAO = new AlumnoDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
     private Alumno alumnoActual;
 
     /**
@@ -68,35 +71,86 @@ public class AlumnoController {
     /**
      * Guarda los datos del alumno. Si el alumno no existe, se crea uno nuevo,
      * de lo contrario, se actualiza el existente.
-     * Actualiza la tabla después de guardar los cambios y cierra la ventana.
+     * Añade el alumno nuevo a la tabla principal o repinta el modificado, sin recargarla, y cierra la ventana.
+     * Si no se puede guardar se muestra el error y la ventana sigue abierta; el alumno modificado,
+     * que es la misma instancia que muestra la tabla, recupera sus datos anteriores.
      */
     @FXML
     private void guardarAlumno() {
         try {
-            if (alumnoActual == null) {
-                alumnoActual = new Alumno(txtDni.getText(), txtNombre.getText(), txtApellido1.getText(), txtApellido2.getText());
-                logger.info("Insertando nuevo alumno: " + alumnoActual);
-                alumnoDAO.insertarAlumno(alumnoActual);
+            CompletableFuture<Boolean> guardado;
+            boolean nuevo = alumnoActual == null;
+            Alumno alumno = nuevo
+                    ? new Alumno(txtDni.getText(), txtNombre.getText(), txtApellido1.getText(), txtApellido2.getText())
+                    : alumnoActual;
+            Alumno anterior = new Alumno(alumno.getDni(), alumno.getNombre(), alumno.getApellido1(), alumno.getApellido2());
+            if (nuevo) {
+                logger.info("Insertando nuevo alumno: " + alumno);
+                guardado = asyncDAO.insertarAlumno(alumno);
             } else {
-                alumnoActual.setNombre(txtNombre.getText());
-                alumnoActual.setApellido1(txtApellido1.getText());
-                alumnoActual.setApellido2(txtApellido2.getText());
-                logger.info("Actualizando alumno existente: " + alumnoActual);
-                alumnoDAO.actualizarAlumno(alumnoActual);
+                alumno.setNombre(txtNombre.getText());
+                alumno.setApellido1(txtApellido1.getText());
+                alumno.setApellido2(txtApellido2.getText());
+                logger.info("Actualizando alumno existente: " + alumno);
+                guardado = asyncDAO.actualizarAlumno(alumno);
             }
 
-            // Actualizar la tabla después de guardar
-            if (bibliotecaController != null) {
-                bibliotecaController.actualizarTablaActual();
-                logger.info("Tabla de alumnos actualizada en BibliotecaController");
-            }
+            btnGuardar.setDisable(true);
+            DatabaseExecutor.enFx(guardado, guardadoOk -> {
+                if (!guardadoOk) {
+                    restaurar(alumno, anterior, nuevo);
+                    mostrarError(LanguageManager.getProperty("error.guardar"));
+                    return;
+                }
+                alumnoActual = alumno;
+                if (bibliotecaController != null) {
+                    if (nuevo) {
+                        bibliotecaController.agregarElemento(alumno);
+                    } else {
+                        bibliotecaController.actualizarElemento(alumno);
+                    }
+                }
 
-            cerrarVentana();
+                cerrarVentana();
+            }, error -> {
+                restaurar(alumno, anterior, nuevo);
+                // El DAO avisa del DNI duplicado con una IllegalArgumentException
+                mostrarError(LanguageManager.getProperty(DatabaseExecutor.causa(error) instanceof IllegalArgumentException
+                        ? "error.alumno.duplicado" : "error.guardar"));
+            });
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al guardar los datos del alumno", e);
         }
     }
 
+    /**
+     * Deshace en el alumno modificado los cambios que no se han podido guardar y permite reintentar.
+     * @param alumno El alumno que se intentaba guardar.
+     * @param anterior Copia de sus datos antes de editarlo.
+     * @param nuevo Si era un alumno nuevo, que no se muestra en la tabla.
+     */
+    private void restaurar(Alumno alumno, Alumno anterior, boolean nuevo) {
+        if (!nuevo) {
+            alumno.setNombre(anterior.getNombre());
+            alumno.setApellido1(anterior.getApellido1());
+            alumno.setApellido2(anterior.getApellido2());
+        }
+        btnGuardar.setDisable(false);
+    }
+
+    /**
+     * Muestra una alerta de error con el mensaje proporcionado.
+     * @param mensaje El mensaje a mostrar en la alerta.
+     */
+    private void mostrarError(String mensaje) {
+        logger.warning("Mostrando error: " + mensaje);
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(LanguageManager.getProperty("error"));
+        alert.setHeaderText(null);
+        alert.setContentText(mensaje);
+        alert.showAndWait();
+    }
+
     /**
      * Establece el controlador principal de la ventana de la biblioteca.
      * @param bibliotecaController El controlador principal de la ventana.
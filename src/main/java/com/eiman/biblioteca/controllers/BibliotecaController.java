@@ -1,31 +1,68 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.AlumnoDAO;
-import com.eiman.biblioteca.dao.LibroDAO;
-import com.eiman.biblioteca.dao.PrestamoDAO;
-import com.eiman.biblioteca.dao.HistoricoPrestamoDAO;
+import com.eiman.biblioteca.dao.AsyncDAO;
+import com.eiman.biblioteca.dao.Pagina;
+import com.eiman.biblioteca.dao.Tabla;
 import com.eiman.biblioteca.models.Alumno;
 import com.eiman.biblioteca.models.Libro;
 import com.eiman.biblioteca.models.Prestamo;
 import com.eiman.biblioteca.models.HistoricoPrestamo;
+import com.eiman.biblioteca.utils.AlmacenPortadas;
+import com.eiman.biblioteca.utils.Configuracion;
+import com.eiman.biblioteca.utils.DiferenciasLista;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
+import com.eiman.biblioteca.utils.ExportadorCSV;
+import com.eiman.biblioteca.utils.ImportadorCSV;
+import com.eiman.biblioteca.utils.IndiceBusqueda;
 import com.eiman.biblioteca.utils.LanguageManager;
+import com.eiman.biblioteca.utils.MigradorPortadas;
+import com.eiman.biblioteca.utils.Portadas;
+import com.eiman.biblioteca.utils.RecompresorPortadas;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuBar;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.image.ImageView;
+import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.awt.*;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.net.URI;
-import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,18 +73,118 @@ import java.util.logging.Logger;
  */
 public class BibliotecaController {
     private static final Logger logger = Logger.getLogger(BibliotecaController.class.getName());
+    private static final int TAMAÑO_PAGINA = Configuracion.getInt("db.pageSize", 200);
+    /**
+     * Fraccion del desplazamiento vertical a partir de la cual se pide la pagina siguiente.
+     */
+    private static final double UMBRAL_SCROLL = 0.9;
+    /**
+     * Filas maximas por consulta al releer la tabla para actualizarla.
+     */
+    private static final int FILAS_POR_REFRESCO = 5000;
+    /**
+     * Milisegundos sin escribir tras los que se aplica la busqueda.
+     */
+    private static final int RETARDO_BUSQUEDA = 200;
+    /**
+     * Resultados maximos de las vistas que buscan en la base de datos.
+     */
+    private static final int RESULTADOS_BUSQUEDA = Configuracion.getInt("busqueda.libros.resultados", 500);
+
+    /**
+     * Pide una pagina de la vista actual.
+     */
+    @FunctionalInterface
+    private interface Paginador {
+        /**
+         * @param cursor El cursor de la pagina, o null para la primera.
+         * @param tamaño El numero maximo de elementos de la pagina.
+         * @return La pagina pedida.
+         */
+        CompletableFuture<? extends Pagina<?>> pedir(String cursor, int tamaño);
+    }
+
+    /**
+     * Busca en la base de datos los elementos de una vista.
+     */
+    @FunctionalInterface
+    private interface Buscador {
+        /**
+         * @param consulta El texto buscado.
+         * @param limite El numero maximo de elementos a devolver.
+         * @return Los elementos encontrados, los mas relevantes primero.
+         */
+        CompletableFuture<? extends List<?>> buscar(String consulta, int limite);
+    }
+
+    /**
+     * Estado guardado de una vista de la tabla principal.
+     */
+    private static class EstadoVista {
+        private final List<TableColumn<Object, ?>> columnas;
+        /** Todas las filas cargadas; los cambios de la vista se hacen siempre sobre esta lista. */
+        private final ObservableList<Object> elementos = FXCollections.observableArrayList();
+        /** Las filas que cumplen la busqueda. */
+        private final FilteredList<Object> filtrados = new FilteredList<>(elementos);
+        /** Las filas que cumplen la busqueda en el orden de las columnas; es lo que muestra la tabla. */
+        private final SortedList<Object> ordenados = new SortedList<>(filtrados);
+        private final IndiceBusqueda<Object> indice = new IndiceBusqueda<>(BibliotecaController::textosBusqueda);
+        /** Resultados de la busqueda en la base de datos, por relevancia, para las vistas con {@link Buscador}. */
+        private final ObservableList<Object> resultados = FXCollections.observableArrayList();
+        private final SortedList<Object> resultadosOrdenados = new SortedList<>(resultados);
+        private final Paginador paginador;
+        /** Busca en la base de datos en lugar de filtrar las filas cargadas, o null para filtrarlas. */
+        private final Buscador buscador;
+        private final Tabla[] tablas;
+        /** Cursor de la siguiente pagina, o null si se han cargado todas. */
+        private String siguienteCursor;
+        /** Version de las tablas con la que se leyeron los datos, o -1 si hay que actualizarlos. */
+        private long version = -1;
+        /** Si ya se ha cargado la primera pagina. */
+        private boolean cargada;
+        private Object seleccionado;
+        private String busqueda = "";
+        /** Si hay una busqueda aplicada. */
+        private boolean buscando;
+        private final List<TableColumn<Object, ?>> ordenColumnas = new ArrayList<>();
+
+        private EstadoVista(List<TableColumn<Object, ?>> columnas, Paginador paginador, Buscador buscador, Tabla[] tablas) {
+            this.columnas = columnas;
+            this.paginador = paginador;
+            this.buscador = buscador;
+            this.tablas = tablas;
+        }
+
+        /**
+         * @return La lista que muestra la tabla: los resultados de la base de datos si se esta buscando en ella,
+         * o las filas cargadas que cumplen la busqueda.
+         */
+        private SortedList<Object> mostrados() {
+            return buscando && buscador != null ? resultadosOrdenados : ordenados;
+        }
+    }
 
     @FXML private Button btnAlumnos, btnLibros, btnPrestamos, btnHistoricoPrestamos, btnInformes;
     @FXML private TableView<Object> tableView;
+    @FXML private TextField txtBuscar;
     @FXML private MenuBar menuBar;
+    @FXML private MenuItem menuMoverPortadas;
     @FXML private Button btnAñadir, btnModificar, btnEliminar;
 
-    private final AlumnoDAO alumnoDAO = new AlumnoDAO();
-    private final LibroDAO libroDAO = new LibroDAO();
-    private final PrestamoDAO prestamoDAO = new PrestamoDAO();
-    private final HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
 
     private String vistaActual = "alumnos";
+    private int cargaActual;
+    private Node placeholderVacio;
+    /**
+     * Columnas, datos y version de cada vista ya mostrada, por nombre de vista.
+     */
+    private final Map<String, EstadoVista> vistas = new HashMap<>();
+    private Paginador paginador;
+    private String siguienteCursor;
+    private boolean cargandoPagina;
+    private final PauseTransition pausaBusqueda = new PauseTransition(Duration.millis(RETARDO_BUSQUEDA));
+    private int busquedaActual;
 
     /**
      * Inicializa la interfaz de la biblioteca, configurando las tooltips para cada boton y configurando la tabla de alumnos.
@@ -57,9 +194,14 @@ public class BibliotecaController {
     private void initialize() {
         logger.info("Inicializando BibliotecaController.");
         try {
+            placeholderVacio = tableView.getPlaceholder();
+            tableView.skinProperty().addListener((obs, oldSkin, newSkin) -> engancharScroll());
+            pausaBusqueda.setOnFinished(e -> buscar());
+            txtBuscar.textProperty().addListener((obs, oldText, newText) -> pausaBusqueda.playFromStart());
             openAlumnosTable();
             btnModificar.setDisable(true);
             btnEliminar.setDisable(true);
+            menuMoverPortadas.setVisible(AlmacenPortadas.activo());
             tableView.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
                 boolean seleccion = newSelection != null;
                 btnModificar.setDisable(!seleccion);
@@ -88,25 +230,7 @@ public class BibliotecaController {
     private void openAlumnosTable() {
         logger.info("Cargando tabla de alumnos.");
         try {
-            vistaActual = "alumnos";
-            tableView.getColumns().clear();
-            tableView.setItems(FXCollections.observableArrayList());
-
-            TableColumn<Object, String> colDni = new TableColumn<>(LanguageManager.getProperty("dni"));
-            colDni.setCellValueFactory(new PropertyValueFactory<>("dni"));
-            TableColumn<Object, String> colNombre = new TableColumn<>(LanguageManager.getProperty("nombre"));
-            colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
-            TableColumn<Object, String> colApellido1 = new TableColumn<>(LanguageManager.getProperty("apellido1"));
-            colApellido1.setCellValueFactory(new PropertyValueFactory<>("apellido1"));
-            TableColumn<Object, String> colApellido2 = new TableColumn<>(LanguageManager.getProperty("apellido2"));
-            colApellido2.setCellValueFactory(new PropertyValueFactory<>("apellido2"));
-
-            tableView.getColumns().addAll(colDni, colNombre, colApellido1, colApellido2);
-            tableView.setItems(FXCollections.observableArrayList(alumnoDAO.obtenerTodosLosAlumnos()));
-
-            btnAñadir.setDisable(false);
-            btnModificar.setDisable(true);
-            btnEliminar.setDisable(true);
+            mostrarVista("alumnos", this::crearColumnasAlumnos, asyncDAO::obtenerPaginaAlumnos, null, Tabla.ALUMNO);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al cargar la tabla de alumnos.", e);
         }
@@ -121,27 +245,8 @@ public class BibliotecaController {
     private void openLibrosTable() {
         logger.info("Cargando tabla de libros.");
         try {
-            vistaActual = "libros";
-            tableView.getColumns().clear();
-            tableView.setItems(FXCollections.observableArrayList());
-
-            TableColumn<Object, Integer> colCodigo = new TableColumn<>(LanguageManager.getProperty("codigo"));
-            colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
-            TableColumn<Object, String> colTitulo = new TableColumn<>(LanguageManager.getProperty("titulo"));
-            colTitulo.setCellValueFactory(new PropertyValueFactory<>("titulo"));
-            TableColumn<Object, String> colAutor = new TableColumn<>(LanguageManager.getProperty("autor"));
-            colAutor.setCellValueFactory(new PropertyValueFactory<>("autor"));
-            TableColumn<Object, String> colEditorial = new TableColumn<>(LanguageManager.getProperty("editorial"));
-            colEditorial.setCellValueFactory(new PropertyValueFactory<>("editorial"));
-            TableColumn<Object, String> colEstado = new TableColumn<>(LanguageManager.getProperty("estado"));
-            colEstado.setCellValueFactory(new PropertyValueFactory<>("estado"));
-
-            tableView.getColumns().addAll(colCodigo, colTitulo, colAutor, colEditorial, colEstado);
-            tableView.setItems(FXCollections.observableArrayList(libroDAO.obtenerTodosLosLibros()));
-
-            btnAñadir.setDisable(false);
-            btnModificar.setDisable(true);
-            btnEliminar.setDisable(true);
+            mostrarVista("libros", this::crearColumnasLibros, asyncDAO::obtenerPaginaLibros, asyncDAO::buscarLibros,
+                    Tabla.LIBRO);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al cargar la tabla de libros.", e);
         }
@@ -155,25 +260,8 @@ public class BibliotecaController {
     private void openPrestamosTable() {
         logger.info("Cargando tabla de préstamos.");
         try {
-            vistaActual = "prestamos";
-            tableView.getColumns().clear();
-            tableView.setItems(FXCollections.observableArrayList());
-
-            TableColumn<Object, Integer> colId = new TableColumn<>(LanguageManager.getProperty("id.prestamo"));
-            colId.setCellValueFactory(new PropertyValueFactory<>("idPrestamo"));
-            TableColumn<Object, String> colDniAlumno = new TableColumn<>(LanguageManager.getProperty("dni.alumno"));
-            colDniAlumno.setCellValueFactory(new PropertyValueFactory<>("dniAlumno"));
-            TableColumn<Object, Integer> colCodigoLibro = new TableColumn<>(LanguageManager.getProperty("codigo.libro"));
-            colCodigoLibro.setCellValueFactory(new PropertyValueFactory<>("codigoLibro"));
-            TableColumn<Object, String> colFechaPrestamo = new TableColumn<>(LanguageManager.getProperty("fecha.prestamo"));
-            colFechaPrestamo.setCellValueFactory(new PropertyValueFactory<>("fechaPrestamo"));
-
-            tableView.getColumns().setAll(colId, colDniAlumno, colCodigoLibro, colFechaPrestamo);
-            tableView.setItems(FXCollections.observableArrayList(prestamoDAO.obtenerTodosLosPrestamos()));
-
-            btnAñadir.setDisable(false);
-            btnModificar.setDisable(true);
-            btnEliminar.setDisable(true);
+            mostrarVista("prestamos", this::crearColumnasPrestamos, asyncDAO::obtenerPaginaPrestamos, null,
+                    Tabla.PRESTAMO, Tabla.ALUMNO, Tabla.LIBRO);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al cargar la tabla de préstamos.", e);
         }
@@ -187,32 +275,326 @@ public class BibliotecaController {
     private void openHistoricoPrestamosTable() {
         logger.info("Cargando tabla de histórico de préstamos.");
         try {
-            vistaActual = "historico_prestamos";
-            tableView.getColumns().clear();
-            tableView.setItems(FXCollections.observableArrayList());
-
-            TableColumn<Object, Integer> colId = new TableColumn<>(LanguageManager.getProperty("id.prestamo"));
-            colId.setCellValueFactory(new PropertyValueFactory<>("idPrestamo"));
-            TableColumn<Object, String> colDniAlumno = new TableColumn<>(LanguageManager.getProperty("dni.alumno"));
-            colDniAlumno.setCellValueFactory(new PropertyValueFactory<>("dniAlumno"));
-            TableColumn<Object, Integer> colCodigoLibro = new TableColumn<>(LanguageManager.getProperty("codigo.libro"));
-            colCodigoLibro.setCellValueFactory(new PropertyValueFactory<>("codigoLibro"));
-            TableColumn<Object, String> colFechaPrestamo = new TableColumn<>(LanguageManager.getProperty("fecha.prestamo"));
-            colFechaPrestamo.setCellValueFactory(new PropertyValueFactory<>("fechaPrestamo"));
-            TableColumn<Object, String> colFechaDevolucion = new TableColumn<>(LanguageManager.getProperty("fecha.devolucion"));
-            colFechaDevolucion.setCellValueFactory(new PropertyValueFactory<>("fechaDevolucion"));
-
-            tableView.getColumns().setAll(colId, colDniAlumno, colCodigoLibro, colFechaPrestamo, colFechaDevolucion);
-            tableView.setItems(FXCollections.observableArrayList(historicoPrestamoDAO.obtenerTodosLosHistoricos()));
-
-            btnAñadir.setDisable(false);
-            btnModificar.setDisable(true);
-            btnEliminar.setDisable(true);
+            mostrarVista("historico_prestamos", this::crearColumnasHistoricos, asyncDAO::obtenerPaginaHistoricos, null,
+                    Tabla.HISTORICO_PRESTAMO, Tabla.ALUMNO, Tabla.LIBRO);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al cargar la tabla de histórico de préstamos.", e);
         }
     }
 
+    /**
+     * Muestra una vista en la tabla principal.
+     * Cada vista conserva sus columnas y sus datos al cambiar a otra, junto con la version de las tablas
+     * de las que se leyeron ({@link Tabla}). Al volver a una vista cuyas tablas no se han modificado desde
+     * entonces se muestra al instante, sin consultar la base de datos; si se han modificado, se muestra
+     * lo que tenia y se actualiza aplicando solo las diferencias. La primera vez se carga por paginas.
+     * Pulsar el boton de la vista que ya se esta mostrando la actualiza igualmente, para ver los cambios
+     * hechos desde otros puestos. Cada vista conserva tambien su busqueda y su orden.
+     * @param vista El nombre de la vista.
+     * @param columnas Crea las columnas de la vista.
+     * @param paginador Funcion que pide la pagina de la vista que empieza en un cursor.
+     * @param buscador Funcion que busca en la base de datos, o null para buscar entre las filas cargadas.
+     * @param tablas Las tablas cuyos datos muestra la vista.
+     */
+    private void mostrarVista(String vista, Supplier<List<TableColumn<Object, ?>>> columnas, Paginador paginador,
+                              Buscador buscador, Tabla... tablas) {
+        if (vista.equals(vistaActual) && vistas.containsKey(vista) && !cargandoPagina) {
+            actualizarTablaActual();
+            return;
+        }
+        guardarEstadoVista();
+        EstadoVista estado = vistas.computeIfAbsent(vista, v -> crearEstadoVista(columnas.get(), paginador, buscador, tablas));
+        vistaActual = vista;
+        // Se descartan las paginas pedidas para la vista anterior
+        cargaActual++;
+        cargandoPagina = false;
+        this.paginador = estado.paginador;
+        siguienteCursor = estado.siguienteCursor;
+        tableView.getColumns().setAll(estado.columnas);
+        tableView.getSortOrder().setAll(estado.ordenColumnas);
+        // Solo la vista mostrada sigue el orden de la tabla: las columnas de las demas no son de su tipo
+        mostrarLista(estado);
+        tableView.setPlaceholder(placeholderVacio);
+        pausaBusqueda.stop();
+        txtBuscar.setText(estado.busqueda);
+
+        btnAñadir.setDisable(false);
+        btnModificar.setDisable(true);
+        btnEliminar.setDisable(true);
+
+        if (!estado.cargada) {
+            estado.elementos.clear();
+            cargarPaginas(estado);
+            return;
+        }
+        if (estado.seleccionado != null && tableView.getItems().contains(estado.seleccionado)) {
+            tableView.getSelectionModel().select(estado.seleccionado);
+            tableView.scrollTo(estado.seleccionado);
+        }
+        if (estado.version != Tabla.version(estado.tablas)) {
+            actualizarTablaActual();
+        } else {
+            logger.info("Vista " + vista + " sin cambios, se muestra sin consultar la base de datos.");
+        }
+    }
+
+    /**
+     * Guarda el cursor, la seleccion, la busqueda y el orden de la vista que se va a dejar de mostrar.
+     * Si tenia una carga en curso, que se va a descartar, se marca para cargarla o actualizarla al volver.
+     */
+    private void guardarEstadoVista() {
+        EstadoVista estado = vistas.get(vistaActual);
+        if (estado == null) {
+            return;
+        }
+        estado.siguienteCursor = siguienteCursor;
+        estado.seleccionado = tableView.getSelectionModel().getSelectedItem();
+        estado.busqueda = txtBuscar.getText();
+        estado.ordenColumnas.clear();
+        estado.ordenColumnas.addAll(tableView.getSortOrder());
+        estado.mostrados().comparatorProperty().unbind();
+        if (cargandoPagina) {
+            if (estado.elementos.isEmpty()) {
+                estado.cargada = false;
+            } else {
+                estado.version = -1;
+            }
+        }
+    }
+
+    /**
+     * Crea el estado de una vista, con su indice de busqueda enganchado a la lista de filas cargadas.
+     * Mientras hay una busqueda escrita, cualquier cambio en las filas la vuelve a aplicar, para que las
+     * filas nuevas o releidas se filtren igual que las demas.
+     */
+    private EstadoVista crearEstadoVista(List<TableColumn<Object, ?>> columnas, Paginador paginador, Buscador buscador,
+                                         Tabla[] tablas) {
+        EstadoVista estado = new EstadoVista(columnas, paginador, buscador, tablas);
+        estado.elementos.addListener((ListChangeListener<Object>) cambio -> {
+            while (cambio.next()) {
+                if (cambio.wasRemoved()) {
+                    estado.indice.quitar(cambio.getRemoved());
+                }
+                if (cambio.wasAdded()) {
+                    estado.indice.añadir(cambio.getAddedSubList());
+                }
+            }
+            if (estado.buscando && vistas.get(vistaActual) == estado) {
+                pausaBusqueda.playFromStart();
+            }
+        });
+        return estado;
+    }
+
+    /**
+     * Muestra en la tabla la lista de la vista que corresponde a su busqueda. Solo esa lista sigue el orden
+     * de las columnas de la tabla: las de las demas vistas no son de su tipo.
+     */
+    private void mostrarLista(EstadoVista estado) {
+        estado.ordenados.comparatorProperty().unbind();
+        estado.resultadosOrdenados.comparatorProperty().unbind();
+        SortedList<Object> mostrados = estado.mostrados();
+        mostrados.comparatorProperty().bind(tableView.comparatorProperty());
+        if (tableView.getItems() != mostrados) {
+            tableView.setItems(mostrados);
+        }
+    }
+
+    /**
+     * Aplica a la vista actual el texto del cuadro de busqueda: se muestran las filas que contienen,
+     * al comienzo de alguna de sus palabras, todas las palabras escritas, sin distinguir acentos ni mayusculas.
+     * La busqueda se hace en el indice de la vista fuera del hilo de JavaFX, que solo aplica el resultado,
+     * y abarca solo las filas ya cargadas: las paginas que se cargan despues al desplazarse vuelven a aplicarla.
+     * Las vistas con {@link Buscador}, como la de libros, buscan en cambio en la base de datos y muestran
+     * sus resultados por relevancia, sin necesidad de cargar toda la tabla.
+     */
+    private void buscar() {
+        EstadoVista estado = vistas.get(vistaActual);
+        if (estado == null) {
+            return;
+        }
+        String texto = txtBuscar.getText();
+        int busqueda = ++busquedaActual;
+        if (texto == null || texto.isBlank()) {
+            estado.buscando = false;
+            estado.filtrados.setPredicate(null);
+            estado.resultados.clear();
+            mostrarLista(estado);
+            return;
+        }
+        estado.buscando = true;
+        if (estado.buscador != null) {
+            DatabaseExecutor.enFx(estado.buscador.buscar(texto, RESULTADOS_BUSQUEDA), encontrados -> {
+                if (busqueda == busquedaActual && vistas.get(vistaActual) == estado) {
+                    estado.resultados.setAll(encontrados);
+                    mostrarLista(estado);
+                }
+            }, error -> logger.log(Level.WARNING, "Error al buscar en la vista " + vistaActual + ".", error));
+            return;
+        }
+        DatabaseExecutor.enFx(CompletableFuture.supplyAsync(() -> estado.indice.buscar(texto)), encontrados -> {
+            if (busqueda == busquedaActual) {
+                estado.filtrados.setPredicate(encontrados == null ? null : encontrados::contains);
+            }
+        }, error -> logger.log(Level.WARNING, "Error al buscar en la vista " + vistaActual + ".", error));
+    }
+
+    /**
+     * Obtiene los textos por los que se puede buscar un elemento de cualquiera de las vistas.
+     */
+    private static String[] textosBusqueda(Object elemento) {
+        if (elemento instanceof Alumno alumno) {
+            return new String[]{alumno.getDni(), alumno.getNombre(), alumno.getApellido1(), alumno.getApellido2()};
+        } else if (elemento instanceof Libro libro) {
+            return new String[]{libro.getTitulo(), libro.getAutor(), libro.getEditorial()};
+        } else if (elemento instanceof Prestamo prestamo) {
+            return new String[]{prestamo.getDniAlumno(), prestamo.getNombreAlumno(), prestamo.getTituloLibro()};
+        } else if (elemento instanceof HistoricoPrestamo historico) {
+            return new String[]{historico.getDniAlumno(), historico.getNombreAlumno(), historico.getTituloLibro()};
+        }
+        return new String[0];
+    }
+
+    private List<TableColumn<Object, ?>> crearColumnasAlumnos() {
+        TableColumn<Object, String> colDni = new TableColumn<>(LanguageManager.getProperty("dni"));
+        colDni.setCellValueFactory(propiedad(Alumno.class, Alumno::dniProperty));
+        TableColumn<Object, String> colNombre = new TableColumn<>(LanguageManager.getProperty("nombre"));
+        colNombre.setCellValueFactory(propiedad(Alumno.class, Alumno::nombreProperty));
+        TableColumn<Object, String> colApellido1 = new TableColumn<>(LanguageManager.getProperty("apellido1"));
+        colApellido1.setCellValueFactory(propiedad(Alumno.class, Alumno::apellido1Property));
+        TableColumn<Object, String> colApellido2 = new TableColumn<>(LanguageManager.getProperty("apellido2"));
+        colApellido2.setCellValueFactory(propiedad(Alumno.class, Alumno::apellido2Property));
+        return List.of(colDni, colNombre, colApellido1, colApellido2);
+    }
+
+    private List<TableColumn<Object, ?>> crearColumnasLibros() {
+        TableColumn<Object, Object> colPortada = new TableColumn<>(LanguageManager.getProperty("portada"));
+        colPortada.setCellValueFactory(celda -> new ReadOnlyObjectWrapper<>(celda.getValue()));
+        colPortada.setCellFactory(columna -> new CeldaPortada());
+        colPortada.setPrefWidth(Portadas.LADO_MINIATURA + 16);
+        colPortada.setSortable(false);
+        TableColumn<Object, Number> colCodigo = new TableColumn<>(LanguageManager.getProperty("codigo"));
+        colCodigo.setCellValueFactory(propiedad(Libro.class, Libro::codigoProperty));
+        TableColumn<Object, String> colTitulo = new TableColumn<>(LanguageManager.getProperty("titulo"));
+        colTitulo.setCellValueFactory(propiedad(Libro.class, Libro::tituloProperty));
+        TableColumn<Object, String> colAutor = new TableColumn<>(LanguageManager.getProperty("autor"));
+        colAutor.setCellValueFactory(propiedad(Libro.class, Libro::autorProperty));
+        TableColumn<Object, String> colEditorial = new TableColumn<>(LanguageManager.getProperty("editorial"));
+        colEditorial.setCellValueFactory(propiedad(Libro.class, Libro::editorialProperty));
+        TableColumn<Object, String> colEstado = new TableColumn<>(LanguageManager.getProperty("estado"));
+        colEstado.setCellValueFactory(propiedad(Libro.class, Libro::estadoProperty));
+        return List.of(colPortada, colCodigo, colTitulo, colAutor, colEditorial, colEstado);
+    }
+
+    private List<TableColumn<Object, ?>> crearColumnasPrestamos() {
+        TableColumn<Object, Number> colId = new TableColumn<>(LanguageManager.getProperty("id.prestamo"));
+        colId.setCellValueFactory(propiedad(Prestamo.class, Prestamo::idPrestamoProperty));
+        TableColumn<Object, String> colDniAlumno = new TableColumn<>(LanguageManager.getProperty("dni.alumno"));
+        colDniAlumno.setCellValueFactory(propiedad(Prestamo.class, Prestamo::dniAlumnoProperty));
+        TableColumn<Object, String> colAlumno = new TableColumn<>(LanguageManager.getProperty("alumno"));
+        colAlumno.setCellValueFactory(propiedad(Prestamo.class, Prestamo::nombreAlumnoProperty));
+        TableColumn<Object, Number> colCodigoLibro = new TableColumn<>(LanguageManager.getProperty("codigo.libro"));
+        colCodigoLibro.setCellValueFactory(propiedad(Prestamo.class, Prestamo::codigoLibroProperty));
+        TableColumn<Object, String> colLibro = new TableColumn<>(LanguageManager.getProperty("libro"));
+        colLibro.setCellValueFactory(propiedad(Prestamo.class, Prestamo::tituloLibroProperty));
+        TableColumn<Object, LocalDateTime> colFechaPrestamo = new TableColumn<>(LanguageManager.getProperty("fecha.prestamo"));
+        colFechaPrestamo.setCellValueFactory(propiedad(Prestamo.class, Prestamo::fechaPrestamoProperty));
+        return List.of(colId, colDniAlumno, colAlumno, colCodigoLibro, colLibro, colFechaPrestamo);
+    }
+
+    private List<TableColumn<Object, ?>> crearColumnasHistoricos() {
+        TableColumn<Object, Number> colId = new TableColumn<>(LanguageManager.getProperty("id.prestamo"));
+        colId.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::idPrestamoProperty));
+        TableColumn<Object, String> colDniAlumno = new TableColumn<>(LanguageManager.getProperty("dni.alumno"));
+        colDniAlumno.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::dniAlumnoProperty));
+        TableColumn<Object, String> colAlumno = new TableColumn<>(LanguageManager.getProperty("alumno"));
+        colAlumno.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::nombreAlumnoProperty));
+        TableColumn<Object, Number> colCodigoLibro = new TableColumn<>(LanguageManager.getProperty("codigo.libro"));
+        colCodigoLibro.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::codigoLibroProperty));
+        TableColumn<Object, String> colLibro = new TableColumn<>(LanguageManager.getProperty("libro"));
+        colLibro.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::tituloLibroProperty));
+        TableColumn<Object, LocalDateTime> colFechaPrestamo = new TableColumn<>(LanguageManager.getProperty("fecha.prestamo"));
+        colFechaPrestamo.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::fechaPrestamoProperty));
+        TableColumn<Object, LocalDateTime> colFechaDevolucion = new TableColumn<>(LanguageManager.getProperty("fecha.devolucion"));
+        colFechaDevolucion.setCellValueFactory(propiedad(HistoricoPrestamo.class, HistoricoPrestamo::fechaDevolucionProperty));
+        return List.of(colId, colDniAlumno, colAlumno, colCodigoLibro, colLibro, colFechaPrestamo, colFechaDevolucion);
+    }
+
+    /**
+     * Crea la factoria de valores de una columna de la tabla principal, que enlaza cada celda con una propiedad
+     * del elemento de su fila. Sustituye a {@code PropertyValueFactory}, que busca el metodo por reflexion.
+     * @param tipo El tipo de los elementos de la vista.
+     * @param propiedad Obtiene la propiedad a mostrar de un elemento.
+     * @return La factoria de valores de la columna.
+     */
+    private static <T, V> Callback<TableColumn.CellDataFeatures<Object, V>, ObservableValue<V>> propiedad(
+            Class<T> tipo, Function<T, ? extends ObservableValue<V>> propiedad) {
+        return celda -> propiedad.apply(tipo.cast(celda.getValue()));
+    }
+
+    /**
+     * Empieza a cargar en segundo plano los datos de la vista actual por paginas, mostrando un indicador
+     * de carga en la tabla. Solo se pide la primera pagina; las siguientes se piden al desplazarse hasta el final.
+     * @param estado La vista a cargar, con la funcion que pide sus paginas.
+     */
+    private void cargarPaginas(EstadoVista estado) {
+        int carga = ++cargaActual;
+        siguienteCursor = null;
+        estado.version = Tabla.version(estado.tablas);
+        tableView.setPlaceholder(new Label(LanguageManager.getProperty("cargando"), new ProgressIndicator()));
+        pedirPagina(null, carga);
+    }
+
+    /**
+     * Pide la pagina siguiente de la vista actual si quedan paginas y no hay ya una en curso.
+     */
+    private void cargarSiguientePagina() {
+        EstadoVista estado = vistas.get(vistaActual);
+        if (!cargandoPagina && siguienteCursor != null && estado.mostrados() == estado.ordenados) {
+            pedirPagina(siguienteCursor, cargaActual);
+        }
+    }
+
+    /**
+     * Pide una pagina y añade sus elementos al final de la tabla.
+     * Si mientras tanto se ha pedido otra vista, el resultado se descarta.
+     * @param cursor El cursor de la pagina.
+     * @param carga La carga a la que pertenece la pagina.
+     */
+    private void pedirPagina(String cursor, int carga) {
+        cargandoPagina = true;
+        DatabaseExecutor.enFx(paginador.pedir(cursor, TAMAÑO_PAGINA), pagina -> {
+            if (carga == cargaActual) {
+                vistas.get(vistaActual).elementos.addAll(pagina.getElementos());
+                siguienteCursor = pagina.getSiguienteCursor();
+                cargandoPagina = false;
+                vistas.get(vistaActual).cargada = true;
+                tableView.setPlaceholder(placeholderVacio);
+            }
+        }, error -> {
+            if (carga == cargaActual) {
+                cargandoPagina = false;
+                tableView.setPlaceholder(placeholderVacio);
+            }
+        });
+    }
+
+    /**
+     * Escucha la barra de desplazamiento vertical de la tabla para pedir la pagina siguiente
+     * cuando el usuario se acerca al final de los elementos cargados.
+     */
+    private void engancharScroll() {
+        for (Node nodo : tableView.lookupAll(".scroll-bar")) {
+            if (nodo instanceof ScrollBar barra && barra.getOrientation() == Orientation.VERTICAL) {
+                barra.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= barra.getMax() * UMBRAL_SCROLL) {
+                        cargarSiguientePagina();
+                    }
+                });
+            }
+        }
+    }
+
     /**
      * Abre la ventana de informes para generar y ver los informes disponibles.
      */
@@ -223,18 +605,192 @@ public class BibliotecaController {
     }
 
     /**
-     * Actualiza la tabla actual basada en la vista seleccionada.
-     * Si estamos en "libros", se recarga la lista de libros con baja=0.
+     * Actualiza la tabla actual con los datos de la base de datos sin volver a cargarla.
+     * Se vuelven a leer las filas ya cargadas, en bloques mayores que las paginas, y solo se aplican las
+     * diferencias por clave primaria: las filas sin cambios se conservan, y con ellas la seleccion y la
+     * posicion de desplazamiento. Las filas posteriores se siguen cargando al desplazarse.
      */
     public void actualizarTablaActual() {
         logger.info("Actualizando la tabla actual: " + vistaActual);
-        switch (vistaActual) {
-            case "alumnos" -> openAlumnosTable();
-            case "libros" -> openLibrosTable();
-            case "prestamos" -> openPrestamosTable();
-            case "historico_prestamos" -> openHistoricoPrestamosTable();
-            default -> logger.warning("Vista desconocida: " + vistaActual);
+        EstadoVista estado = vistas.get(vistaActual);
+        if (estado == null) {
+            return;
+        }
+        int carga = ++cargaActual;
+        cargandoPagina = true;
+        // La version se toma antes de leer: lo que se escriba durante la lectura dejara la vista desactualizada
+        long version = Tabla.version(estado.tablas);
+        int objetivo = Math.max(estado.elementos.size(), TAMAÑO_PAGINA);
+        releerFilas(null, objetivo, new ArrayList<>(objetivo), carga, estado, version);
+    }
+
+    /**
+     * Lee la siguiente parte de las filas a refrescar y, al tener todas, aplica las diferencias a la tabla.
+     * @param cursor El cursor desde el que leer.
+     * @param objetivo El numero de filas a releer.
+     * @param instantanea Las filas leidas hasta ahora.
+     * @param carga La carga a la que pertenece el refresco; si se pide otra vista, se descarta.
+     * @param estado La vista que se actualiza.
+     * @param version La version de las tablas de la vista al empezar a releerla.
+     */
+    private void releerFilas(String cursor, int objetivo, List<Object> instantanea, int carga,
+                             EstadoVista estado, long version) {
+        int tamaño = Math.max(TAMAÑO_PAGINA, Math.min(objetivo - instantanea.size(), FILAS_POR_REFRESCO));
+        DatabaseExecutor.enFx(paginador.pedir(cursor, tamaño), pagina -> {
+            if (carga != cargaActual) {
+                return;
+            }
+            instantanea.addAll(pagina.getElementos());
+            if (pagina.getSiguienteCursor() != null && instantanea.size() < objetivo) {
+                releerFilas(pagina.getSiguienteCursor(), objetivo, instantanea, carga, estado, version);
+                return;
+            }
+            Object seleccionado = tableView.getSelectionModel().getSelectedItem();
+            DiferenciasLista.Cambios cambios = DiferenciasLista.aplicar(estado.elementos, instantanea,
+                    BibliotecaController::clave, BibliotecaController::mismosDatos);
+            if (seleccionado != null && tableView.getSelectionModel().getSelectedItem() == null) {
+                // La fila seleccionada se ha reemplazado por su version nueva: se selecciona esa
+                Object clave = clave(seleccionado);
+                tableView.getItems().stream().filter(elemento -> clave.equals(clave(elemento))).findFirst()
+                        .ifPresent(elemento -> tableView.getSelectionModel().select(elemento));
+            }
+            siguienteCursor = pagina.getSiguienteCursor();
+            cargandoPagina = false;
+            estado.cargada = true;
+            estado.version = version;
+            logger.info("Tabla actualizada: " + cambios.añadidos() + " añadidos, " + cambios.modificados()
+                    + " modificados, " + cambios.eliminados() + " eliminados.");
+        }, error -> {
+            if (carga == cargaActual) {
+                cargandoPagina = false;
+            }
+        });
+    }
+
+    /**
+     * Obtiene la clave primaria de un elemento de cualquiera de las vistas.
+     */
+    private static Object clave(Object elemento) {
+        if (elemento instanceof Alumno alumno) {
+            return alumno.getDni();
+        } else if (elemento instanceof Libro libro) {
+            return libro.getCodigo();
+        } else if (elemento instanceof Prestamo prestamo) {
+            return prestamo.getIdPrestamo();
+        } else if (elemento instanceof HistoricoPrestamo historico) {
+            return historico.getIdPrestamo();
         }
+        return elemento;
+    }
+
+    /**
+     * Compara los datos de dos elementos con la misma clave.
+     */
+    private static boolean mismosDatos(Object actual, Object nuevo) {
+        if (actual instanceof Alumno alumno && nuevo instanceof Alumno otro) {
+            return alumno.mismosDatos(otro);
+        } else if (actual instanceof Libro libro && nuevo instanceof Libro otro) {
+            return libro.mismosDatos(otro);
+        } else if (actual instanceof Prestamo prestamo && nuevo instanceof Prestamo otro) {
+            return prestamo.mismosDatos(otro);
+        } else if (actual instanceof HistoricoPrestamo historico && nuevo instanceof HistoricoPrestamo otro) {
+            return historico.mismosDatos(otro);
+        }
+        return false;
+    }
+
+    /**
+     * Añade a la tabla actual un elemento recien insertado, sin volver a consultar la tabla.
+     * Solo se añade si pertenece a la vista actual y ya se han cargado todas sus paginas; si quedan
+     * paginas por cargar, el elemento llegara con la que le corresponda y añadirlo ahora lo duplicaria.
+     * @param elemento El elemento insertado.
+     */
+    public void agregarElemento(Object elemento) {
+        if (!perteneceAVistaActual(elemento) || cargandoPagina || siguienteCursor != null) {
+            return;
+        }
+        if (elemento instanceof Libro libro && libro.getBaja() == 1) {
+            return;
+        }
+        vistas.get(vistaActual).elementos.add(elemento);
+        tableView.getSelectionModel().select(elemento);
+        tableView.scrollTo(elemento);
+    }
+
+    /**
+     * Refleja en la tabla actual los cambios de un elemento modificado, que se edita sobre la misma instancia
+     * mostrada en la tabla. Los libros dados de baja se quitan de la tabla.
+     * Como la instancia es la misma, se vuelve a indexar a mano para que la busqueda vea sus textos nuevos.
+     * Si se ha editado un resultado de la busqueda en la base de datos, sustituye a la fila cargada con su clave.
+     * @param elemento El elemento modificado.
+     */
+    public void actualizarElemento(Object elemento) {
+        if (!perteneceAVistaActual(elemento)) {
+            return;
+        }
+        EstadoVista estado = vistas.get(vistaActual);
+        if (elemento instanceof Libro libro && libro.getBaja() == 1) {
+            quitarElemento(estado, elemento);
+            return;
+        }
+        int posicion = posicionPorClave(estado.elementos, elemento);
+        if (posicion < 0) {
+            // Un resultado de la busqueda en la base de datos que aun no se ha cargado en la vista
+            tableView.refresh();
+            return;
+        }
+        if (estado.elementos.get(posicion) != elemento) {
+            // Se ha editado un resultado de la busqueda en la base de datos: sustituye a la fila cargada
+            estado.elementos.set(posicion, elemento);
+        } else {
+            estado.indice.quitar(List.of(elemento));
+            estado.indice.añadir(List.of(elemento));
+            if (estado.buscando) {
+                pausaBusqueda.playFromStart();
+            }
+        }
+        tableView.refresh();
+    }
+
+    /**
+     * Quita un elemento de las filas cargadas de una vista y de sus resultados de busqueda. Se busca por clave,
+     * porque los resultados de la base de datos son instancias distintas de las filas cargadas.
+     * @param estado La vista.
+     * @param elemento El elemento a quitar.
+     */
+    private static void quitarElemento(EstadoVista estado, Object elemento) {
+        Object clave = clave(elemento);
+        estado.elementos.removeIf(fila -> clave.equals(clave(fila)));
+        estado.resultados.removeIf(fila -> clave.equals(clave(fila)));
+    }
+
+    /**
+     * Busca por clave la posicion de un elemento en una lista.
+     * @return La posicion, o -1 si no esta.
+     */
+    private static int posicionPorClave(List<Object> lista, Object elemento) {
+        Object clave = clave(elemento);
+        for (int i = 0; i < lista.size(); i++) {
+            if (clave.equals(clave(lista.get(i)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Comprueba si un elemento es del tipo que muestra la vista actual.
+     * @param elemento El elemento a comprobar.
+     * @return true si el elemento se muestra en la vista actual.
+     */
+    private boolean perteneceAVistaActual(Object elemento) {
+        return switch (vistaActual) {
+            case "alumnos" -> elemento instanceof Alumno;
+            case "libros" -> elemento instanceof Libro;
+            case "prestamos" -> elemento instanceof Prestamo;
+            case "historico_prestamos" -> elemento instanceof HistoricoPrestamo;
+            default -> false;
+        };
     }
 
     /**
@@ -296,10 +852,14 @@ public class BibliotecaController {
                     alumnoController.setBibliotecaController(this);
                 } else if (controller instanceof LibroController libroController) {
                     libroController.setLibro((Libro) seleccionado);
+                    libroController.setBibliotecaController(this);
                 } else if (controller instanceof PrestamoController prestamoController) {
                     prestamoController.setPrestamo((Prestamo) seleccionado);
+                    prestamoController.setBibliotecaController(this);
                 } else if (controller instanceof ModifyHistoricoController historicoController) {
                     historicoController.setHistorico((HistoricoPrestamo) seleccionado);
+                    // La fecha de devolucion se modifica sobre la misma fila, basta con repintarla
+                    stage.setOnHidden(event -> actualizarElemento(seleccionado));
                 }
 
                 stage.show();
@@ -326,54 +886,33 @@ public class BibliotecaController {
 
             Optional<ButtonType> result = alert.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                boolean eliminado = false;
-
-                try {
-                    switch (vistaActual) {
-                        case "alumnos" -> {
-                            String dni = ((Alumno) seleccionado).getDni();
-
-                            // PASO 1: Eliminar registros en Historico_prestamo
-                            historicoPrestamoDAO.eliminarPorDni(dni);
-
-                            // PASO 2: Eliminar registros en Prestamo
-                            prestamoDAO.eliminarPorDni(dni);
-
-                            // PASO 3: Intentar eliminar el alumno
-                            eliminado = alumnoDAO.eliminarAlumno(dni);
-                        }
-                        case "libros" -> {
-                            int codigo = ((Libro) seleccionado).getCodigo();
-                            // PASO 1: Eliminar registros en Historico_prestamo relacionados con este libro
-                            historicoPrestamoDAO.eliminarPorCodigoLibro(codigo);
-
-                            // PASO 2: Eliminar registros en Prestamo relacionados con este libro
-                            prestamoDAO.eliminarPorCodigoLibro(codigo);
-
-                            // PASO 3: Eliminar el libro
-                            eliminado = libroDAO.eliminarLibro(codigo);
-                        }
-                        case "prestamos" -> {
-                            int idPrestamo = ((Prestamo) seleccionado).getIdPrestamo();
-                            eliminado = prestamoDAO.eliminarPrestamo(idPrestamo);
-                        }
-                        case "historico_prestamos" -> {
-                            int idPrestamo = ((HistoricoPrestamo) seleccionado).getIdPrestamo();
-                            eliminado = historicoPrestamoDAO.eliminarHistoricoPrestamo(idPrestamo);
-                        }
-                        default -> logger.warning("Vista desconocida al eliminar: " + vistaActual);
-                    }
+                // Alumnos y libros se eliminan junto con sus préstamos e historial en una sola transacción
+                CompletableFuture<Boolean> eliminacion = switch (vistaActual) {
+                    case "alumnos" -> asyncDAO.eliminarAlumnoConPrestamos(((Alumno) seleccionado).getDni());
+                    case "libros" -> asyncDAO.eliminarLibroConPrestamos(((Libro) seleccionado).getCodigo());
+                    case "prestamos" -> asyncDAO.eliminarPrestamo(((Prestamo) seleccionado).getIdPrestamo());
+                    case "historico_prestamos" -> asyncDAO.eliminarHistoricoPrestamo(((HistoricoPrestamo) seleccionado).getIdPrestamo());
+                    default -> null;
+                };
+
+                if (eliminacion == null) {
+                    logger.warning("Vista desconocida al eliminar: " + vistaActual);
+                    return;
+                }
 
+                EstadoVista estado = vistas.get(vistaActual);
+                btnEliminar.setDisable(true);
+                DatabaseExecutor.enFx(eliminacion, eliminado -> {
                     if (eliminado) {
-                        tableView.getItems().remove(seleccionado);
+                        quitarElemento(estado, seleccionado);
                     } else {
+                        btnEliminar.setDisable(tableView.getSelectionModel().getSelectedItem() == null);
                         mostrarAlertaError(LanguageManager.getProperty("error.eliminar.detalle"));
                     }
-
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "Error al eliminar el elemento de la base de datos.", e);
+                }, error -> {
+                    btnEliminar.setDisable(tableView.getSelectionModel().getSelectedItem() == null);
                     mostrarAlertaError(LanguageManager.getProperty("error.eliminar.detalle"));
-                }
+                });
             }
         } else {
             logger.info("No hay elemento seleccionado para eliminar.");
@@ -418,14 +957,233 @@ public class BibliotecaController {
                 historicoController.setBibliotecaController(this);
             }
 
-            // Al cerrar la ventana, se actualiza la tabla actual
-            stage.setOnHidden(event -> actualizarTablaActual());
             stage.show();
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error al abrir la ventana: " + fxmlPath, e);
         }
     }
 
+    /**
+     * Importa alumnos desde un archivo CSV elegido por el usuario.
+     */
+    @FXML
+    private void importarAlumnosCSV() {
+        importarCSV("alumnos", ImportadorCSV::importarAlumnos);
+    }
+
+    /**
+     * Importa libros desde un archivo CSV elegido por el usuario.
+     */
+    @FXML
+    private void importarLibrosCSV() {
+        importarCSV("libros", ImportadorCSV::importarLibros);
+    }
+
+    /**
+     * Pide el archivo CSV, lo importa en segundo plano y muestra el informe con los errores por fila.
+     * @param vista La vista que se recarga al terminar si es la actual.
+     * @param importacion La importacion a realizar con el archivo elegido.
+     */
+    private void importarCSV(String vista, Importacion importacion) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(LanguageManager.getProperty("menu.archivo.importar"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File archivo = fileChooser.showOpenDialog(menuBar.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        logger.info("Importando " + vista + " desde: " + archivo);
+        menuBar.setDisable(true);
+        DatabaseExecutor.enFx(DatabaseExecutor.supply(() -> {
+            try {
+                return importacion.importar(archivo.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), informe -> {
+            menuBar.setDisable(false);
+            if (vista.equals(vistaActual)) {
+                actualizarTablaActual();
+            }
+
+            Alert alert = new Alert(informe.getErrores().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+            alert.setTitle(LanguageManager.getProperty("menu.archivo.importar"));
+            alert.setHeaderText(LanguageManager.getProperty("importacion.terminada"));
+            alert.setContentText(LanguageManager.getProperty("importacion.insertadas") + " " + informe.getInsertadas()
+                    + " / " + informe.getFilasLeidas());
+            if (!informe.getErrores().isEmpty()) {
+                TextArea errores = new TextArea(String.join("\n", informe.getErrores()));
+                errores.setEditable(false);
+                alert.getDialogPane().setExpandableContent(errores);
+                alert.getDialogPane().setExpanded(true);
+            }
+            alert.showAndWait();
+        }, error -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle(LanguageManager.getProperty("error"));
+            alert.setHeaderText(LanguageManager.getProperty("importacion.error"));
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        });
+    }
+
+    /**
+     * Exporta todo el historial de prestamos a un archivo CSV elegido por el usuario.
+     * El historial se lee en streaming en segundo plano, por lo que no se carga entero en memoria.
+     */
+    @FXML
+    private void exportarHistoricosCSV() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(LanguageManager.getProperty("menu.archivo.exportar.historicos"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        fileChooser.setInitialFileName("historico_prestamos.csv");
+        File archivo = fileChooser.showSaveDialog(menuBar.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        logger.info("Exportando historial de préstamos a: " + archivo);
+        menuBar.setDisable(true);
+        DatabaseExecutor.enFx(DatabaseExecutor.supply(() -> {
+            try {
+                return ExportadorCSV.exportarHistoricos(archivo.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }), total -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle(LanguageManager.getProperty("menu.archivo.exportar.historicos"));
+            alert.setHeaderText(LanguageManager.getProperty("exportacion.terminada"));
+            alert.setContentText(LanguageManager.getProperty("exportacion.registros") + " " + total);
+            alert.showAndWait();
+        }, error -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle(LanguageManager.getProperty("error"));
+            alert.setHeaderText(LanguageManager.getProperty("exportacion.error"));
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        });
+    }
+
+    /**
+     * Recomprime en segundo plano las portadas ya guardadas, tras pedir confirmacion,
+     * y muestra cuantas se han recomprimido y los bytes ahorrados.
+     */
+    @FXML
+    private void recomprimirPortadas() {
+        Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmacion.setTitle(LanguageManager.getProperty("confirmacion"));
+        confirmacion.setHeaderText(LanguageManager.getProperty("menu.archivo.recomprimir.portadas"));
+        confirmacion.setContentText(LanguageManager.getProperty("recompresion.confirmar"));
+        Optional<ButtonType> respuesta = confirmacion.showAndWait();
+        if (respuesta.isEmpty() || respuesta.get() != ButtonType.OK) {
+            return;
+        }
+
+        logger.info("Recomprimiendo las portadas guardadas.");
+        menuBar.setDisable(true);
+        DatabaseExecutor.enFx(DatabaseExecutor.supply(RecompresorPortadas::recomprimir), informe -> {
+            menuBar.setDisable(false);
+            if ("libros".equals(vistaActual)) {
+                actualizarTablaActual();
+            }
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle(LanguageManager.getProperty("menu.archivo.recomprimir.portadas"));
+            alert.setHeaderText(LanguageManager.getProperty("recompresion.terminada"));
+            alert.setContentText(String.format(LanguageManager.getProperty("recompresion.resumen"),
+                    informe.getRecomprimidas(), informe.getRevisadas(), informe.getOmitidas(),
+                    informe.getBytesAntes() / 1024, informe.getBytesDespues() / 1024, informe.getBytesAhorrados() / 1024));
+            alert.showAndWait();
+        }, error -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle(LanguageManager.getProperty("error"));
+            alert.setHeaderText(LanguageManager.getProperty("menu.archivo.recomprimir.portadas"));
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        });
+    }
+
+    /**
+     * Mueve en segundo plano las portadas guardadas en la tabla Libro al almacen de portadas, tras pedir
+     * confirmacion, y muestra cuantas se han movido. La opcion solo se muestra con el almacen activo.
+     */
+    @FXML
+    private void moverPortadasAlmacen() {
+        Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmacion.setTitle(LanguageManager.getProperty("confirmacion"));
+        confirmacion.setHeaderText(LanguageManager.getProperty("menu.archivo.mover.portadas"));
+        confirmacion.setContentText(LanguageManager.getProperty("almacen.confirmar"));
+        Optional<ButtonType> respuesta = confirmacion.showAndWait();
+        if (respuesta.isEmpty() || respuesta.get() != ButtonType.OK) {
+            return;
+        }
+
+        logger.info("Moviendo las portadas al almacén de portadas.");
+        menuBar.setDisable(true);
+        DatabaseExecutor.enFx(DatabaseExecutor.supply(MigradorPortadas::migrar), informe -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle(LanguageManager.getProperty("menu.archivo.mover.portadas"));
+            alert.setHeaderText(LanguageManager.getProperty("almacen.terminado"));
+            alert.setContentText(String.format(LanguageManager.getProperty("almacen.resumen"),
+                    informe.getMovidas(), informe.getBytesMovidos() / 1024, informe.getFallidas(),
+                    informe.getBytesAlmacen() / 1024));
+            alert.showAndWait();
+        }, error -> {
+            menuBar.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle(LanguageManager.getProperty("error"));
+            alert.setHeaderText(LanguageManager.getProperty("menu.archivo.mover.portadas"));
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        });
+    }
+
+    /**
+     * Celda de la tabla de libros que muestra la miniatura de la portada.
+     * Las miniaturas llegan de forma asincrona, asi que al recibir una se comprueba
+     * que la celda sigue mostrando el mismo libro, ya que las celdas se reutilizan al desplazarse.
+     */
+    private static class CeldaPortada extends TableCell<Object, Object> {
+        private final ImageView imageView = new ImageView();
+
+        CeldaPortada() {
+            imageView.setFitWidth(Portadas.LADO_MINIATURA);
+            imageView.setFitHeight(Portadas.LADO_MINIATURA);
+            imageView.setPreserveRatio(true);
+            setGraphic(imageView);
+        }
+
+        @Override
+        protected void updateItem(Object item, boolean empty) {
+            super.updateItem(item, empty);
+            imageView.setImage(null);
+            if (!empty && item instanceof Libro libro) {
+                String huella = libro.getPortadaHash();
+                Portadas.cargarMiniatura(libro, imagen -> {
+                    if (getItem() == libro && Objects.equals(huella, libro.getPortadaHash())) {
+                        imageView.setImage(imagen);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Importacion de un archivo CSV.
+     */
+    @FunctionalInterface
+    private interface Importacion {
+        ImportadorCSV.Informe importar(Path archivo) throws IOException;
+    }
+
     /**
      * Abre la ventana de ayuda con la guia rapida de la aplicacion.
      */
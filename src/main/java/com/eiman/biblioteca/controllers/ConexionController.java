@@ -1,7 +1,9 @@
 package com.eiman.biblioteca.controllers;
 
 import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
+import com.eiman.biblioteca.utils.MigrationRunner;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -11,6 +13,8 @@ import javafx.stage.Stage;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
@@ -51,7 +55,12 @@ public class ConexionController {
 
         try {
             DatabaseConnection.setConnectionData(url, user, password);
-            DatabaseConnection.getConnection();
+            try (Connection conexion = DatabaseConnection.getConnection()) {
+                if (!conexion.isValid(5)) {
+                    throw new SQLException("La conexión obtenida del pool no es válida.");
+                }
+                logger.info("Conexión de prueba obtenida del pool.");
+            }
             statusLabel.setText("Conexión de exitosa.");
             connectButton.setDisable(false); // Habilitar el botón de conexión si la prueba fue exitosa
         } catch (Exception e) {
@@ -63,6 +72,7 @@ public class ConexionController {
 
     /**
      * Guarda las credenciales y la URL de conexión si la prueba fue exitosa.
+     * Antes de abrir la ventana principal aplica las migraciones pendientes del esquema.
      */
     @FXML
     private void onConnect() {
@@ -81,11 +91,24 @@ public class ConexionController {
         // Intentar conectar a la base de datos con la configuración guardada
         try {
             DatabaseConnection.setConnectionData(url, user, password);
-            if (DatabaseConnection.getConnection() != null) {
+            try (Connection conexion = DatabaseConnection.getConnection()) {
+                if (!conexion.isValid(5)) {
+                    throw new SQLException("La conexión obtenida del pool no es válida.");
+                }
                 logger.info("Conexión exitosa a la base de datos.");
-                statusLabel.setText("Conexión exitosa.");
-                loadMainWindow();
             }
+            statusLabel.setText("Conexión exitosa. Actualizando el esquema...");
+            connectButton.setDisable(true);
+            DatabaseExecutor.enFx(DatabaseExecutor.supply(() -> {
+                try {
+                    return MigrationRunner.migrar();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }), aplicadas -> loadMainWindow(), error -> {
+                statusLabel.setText("Error al actualizar el esquema de la base de datos.");
+                connectButton.setDisable(false);
+            });
         } catch (Exception e) {
             statusLabel.setText("Error al conectar a la base de datos.");
             logger.log(Level.SEVERE, "Error al conectar a la base de datos.", e);
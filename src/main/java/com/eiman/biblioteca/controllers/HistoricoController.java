@@ -1,21 +1,18 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.HistoricoPrestamoDAO;
-import com.eiman.biblioteca.dao.LibroDAO;
-import com.eiman.biblioteca.dao.PrestamoDAO;
+import com.eiman.biblioteca.dao.AsyncDAO;
 import com.eiman.biblioteca.models.HistoricoPrestamo;
-import com.eiman.biblioteca.models.Libro;
 import com.eiman.biblioteca.models.Prestamo;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,10 +26,10 @@ public class HistoricoController {
     private static final Logger logger = Logger.getLogger(HistoricoController.class.getName());
 
     @FXML private TableView<Prestamo> tablePrestamos;
-    @FXML private TableColumn<Prestamo, Integer> colIdPrestamo;
+    @FXML private TableColumn<Prestamo, Number> colIdPrestamo;
     @FXML private TableColumn<Prestamo, String> colDniAlumno;
-    @FXML private TableColumn<Prestamo, Integer> colCodigoLibro;
-    @FXML private TableColumn<Prestamo, String> colFechaPrestamo;
+    @FXML private TableColumn<Prestamo, Number> colCodigoLibro;
+    @FXML private TableColumn<Prestamo, LocalDateTime> colFechaPrestamo;
     @FXML private ChoiceBox<String> choiceEstadoLibro;
     @FXML private DatePicker dateDevolucion;
     @FXML private Spinner<Integer> spinnerHora;
@@ -40,9 +37,7 @@ public class HistoricoController {
     @FXML private Button btnDevolver;
 
     private BibliotecaController bibliotecaController;
-    private final PrestamoDAO prestamoDAO = new PrestamoDAO();
-    private final HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
-    private final LibroDAO libroDAO = new LibroDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
 
     /**
      * Inicializa la vista, configura las columnas de la tabla de préstamos
@@ -61,8 +56,8 @@ public class HistoricoController {
             spinnerMinutos.getValueFactory().setValue(LocalTime.now().getMinute());
 
             tablePrestamos.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
-                if (newSelection != null) {
-                    cargarEstadoLibro(newSelection.getCodigoLibro());
+                if (newSelection != null && newSelection.getEstadoLibro() != null) {
+                    choiceEstadoLibro.setValue(newSelection.getEstadoLibro());
                 }
             });
 
@@ -91,42 +86,25 @@ public class HistoricoController {
      */
     private void configurarColumnas() {
         logger.info("Configurando columnas de la tabla de préstamos.");
-        colIdPrestamo.setCellValueFactory(new PropertyValueFactory<>("idPrestamo"));
-        colDniAlumno.setCellValueFactory(new PropertyValueFactory<>("dniAlumno"));
-        colCodigoLibro.setCellValueFactory(new PropertyValueFactory<>("codigoLibro"));
-        colFechaPrestamo.setCellValueFactory(new PropertyValueFactory<>("fechaPrestamo"));
+        colIdPrestamo.setCellValueFactory(celda -> celda.getValue().idPrestamoProperty());
+        colDniAlumno.setCellValueFactory(celda -> celda.getValue().dniAlumnoProperty());
+        colCodigoLibro.setCellValueFactory(celda -> celda.getValue().codigoLibroProperty());
+        colFechaPrestamo.setCellValueFactory(celda -> celda.getValue().fechaPrestamoProperty());
     }
 
     /**
      * Carga los préstamos activos en la tabla.
-     * Los préstamos activos se obtienen desde la base de datos.
+     * Los préstamos activos se obtienen desde la base de datos en segundo plano,
+     * mostrando un indicador de carga mientras tanto.
      */
     private void cargarPrestamosActivos() {
         logger.info("Cargando préstamos activos en la tabla.");
-        try {
-            List<Prestamo> prestamosActivos = prestamoDAO.obtenerPrestamosActivos();
+        Node placeholder = tablePrestamos.getPlaceholder();
+        tablePrestamos.setPlaceholder(new Label(LanguageManager.getProperty("cargando"), new ProgressIndicator()));
+        DatabaseExecutor.enFx(asyncDAO.obtenerPrestamosActivos(), prestamosActivos -> {
             tablePrestamos.setItems(FXCollections.observableArrayList(prestamosActivos));
-            tablePrestamos.refresh();
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error al cargar la lista de préstamos activos.", e);
-        }
-    }
-
-    /**
-     * Carga el estado del libro basado en el código del libro del préstamo seleccionado.
-     * Actualiza el campo `choiceEstadoLibro` con el estado actual del libro.
-     * @param codigoLibro El código del libro cuyo estado se desea cargar.
-     */
-    private void cargarEstadoLibro(int codigoLibro) {
-        logger.info("Cargando estado del libro con código: " + codigoLibro);
-        try {
-            Libro libro = libroDAO.obtenerLibroPorCodigo(codigoLibro);
-            if (libro != null) {
-                choiceEstadoLibro.setValue(libro.getEstado());
-            }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error al cargar el estado del libro con código: " + codigoLibro, e);
-        }
+            tablePrestamos.setPlaceholder(placeholder);
+        }, error -> tablePrestamos.setPlaceholder(placeholder));
     }
 
     /**
@@ -167,22 +145,27 @@ public class HistoricoController {
                     prestamoSeleccionado.getFechaPrestamo(),
                     LocalDateTime.of(fechaSeleccionada, horaDevolucion)
             );
-
-            historicoPrestamoDAO.insertarHistoricoPrestamo(historico);
-            prestamoDAO.eliminarPrestamo(prestamoSeleccionado.getIdPrestamo());
-
-            Libro libro = libroDAO.obtenerLibroPorCodigo(prestamoSeleccionado.getCodigoLibro());
-            if (libro != null) {
-                libro.setEstado(nuevoEstado);
-                libroDAO.actualizarLibro(libro);
-            }
-
-            cargarPrestamosActivos();
-            if (bibliotecaController != null) {
-                bibliotecaController.actualizarTablaActual();
-            }
-
-            logger.info("Libro devuelto exitosamente.");
+            historico.setNombreAlumno(prestamoSeleccionado.getNombreAlumno());
+            historico.setTituloLibro(prestamoSeleccionado.getTituloLibro());
+            historico.setEstadoLibro(nuevoEstado);
+
+            // El historial, el préstamo y el estado del libro se actualizan en una única transacción
+            btnDevolver.setDisable(true);
+            DatabaseExecutor.enFx(asyncDAO.registrarDevolucion(historico, nuevoEstado), registrada -> {
+                btnDevolver.setDisable(false);
+                if (!registrada) {
+                    mostrarAlerta(LanguageManager.getProperty("error.devolucion"));
+                    return;
+                }
+                cargarPrestamosActivos();
+                if (bibliotecaController != null) {
+                    bibliotecaController.agregarElemento(historico);
+                }
+                logger.info("Libro devuelto exitosamente.");
+            }, error -> {
+                btnDevolver.setDisable(false);
+                mostrarAlerta(LanguageManager.getProperty("error.devolucion"));
+            });
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al procesar la devolución del libro.", e);
         }
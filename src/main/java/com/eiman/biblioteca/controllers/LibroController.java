@@ -1,8 +1,10 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.LibroDAO;
+import com.eiman.biblioteca.dao.AsyncDAO;
 import com.eiman.biblioteca.models.Libro;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
+import com.eiman.biblioteca.utils.Portadas;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -14,7 +16,9 @@ import javafx.stage.Stage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controlador para la ventana de gestion de libros.
@@ -29,9 +33,14 @@ public class LibroController {
 
     private BibliotecaController bibliotecaController;
 
-    private final LibroDAO libroDAO = new LibroDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
     private Libro libroActual;
     private byte[] portada;
+    private boolean portadaModificada;
+    /**
+     * Contador de imagenes elegidas, para descartar la preparacion de una imagen que ya se ha reemplazado.
+     */
+    private int seleccionPortada;
 
     @FXML private ChoiceBox<String> choiceEstadoLibro;
 
@@ -73,22 +82,37 @@ public class LibroController {
             txtEditorial.setText(libro.getEditorial());
             choiceEstadoLibro.setValue(libro.getEstado());
             chkBaja.setSelected(libro.getBaja() == 1);
-            portada = libro.getPortada();
 
-            if (portada != null) {
-                imgPortada.setImage(new Image(new ByteArrayInputStream(portada)));
-            }
+            // Los libros de los listados no traen la portada: se lee y se decodifica en segundo plano,
+            // reducida al tamaño del formulario. Solo se guarda si el usuario la cambia.
+            double ancho = imgPortada.getFitWidth();
+            double alto = imgPortada.getFitHeight();
+            int codigo = libro.getCodigo();
+            DatabaseExecutor.enFx(DatabaseExecutor.supply(() -> {
+                byte[] bytes = asyncDAO.libros().obtenerPortada(codigo);
+                return bytes != null ? new Image(new ByteArrayInputStream(bytes), ancho, alto, true, true) : null;
+            }), imagen -> {
+                if (imagen != null && !portadaModificada && libroActual == libro) {
+                    imgPortada.setImage(imagen);
+                }
+            }, error -> { });
         }
     }
 
     /**
      * Guarda el libro en la base de datos. Si el libro es nuevo, se inserta,
      * de lo contrario, se actualiza su informacion.
-     * Si el libro pasa a baja=1, dejara de mostrarse en la tabla de libros tras recargarla.
+     * El libro nuevo se añade a la tabla principal con el codigo generado y el modificado se repinta en ella;
+     * si el libro pasa a baja=1, se quita de la tabla.
+     * Si no se puede guardar se muestra el error y la ventana sigue abierta; el libro modificado,
+     * que es la misma instancia que muestra la tabla, recupera sus datos anteriores.
      */
     @FXML
     private void guardarLibro() {
-        if (libroActual == null) {
+        CompletableFuture<Boolean> guardado;
+        boolean nuevo = libroActual == null;
+        Libro anterior = null;
+        if (nuevo) {
             // Libro nuevo
             libroActual = new Libro(
                     0, // Codigo generado por la BD si es AUTO_INCREMENT
@@ -99,29 +123,106 @@ public class LibroController {
                     chkBaja.isSelected() ? 1 : 0,
                     portada
             );
-            libroDAO.insertarLibro(libroActual);
+            Libro libro = libroActual;
+            guardado = DatabaseExecutor.supply(() -> {
+                int codigo = asyncDAO.libros().insertarLibro(libro);
+                if (codigo > 0) {
+                    Portadas.guardarMiniatura(libro.getPortadaHash(), libro.getPortada());
+                }
+                return codigo > 0;
+            });
         } else {
             // Actualizar libro existente
+            anterior = new Libro(libroActual.getCodigo(), libroActual.getTitulo(), libroActual.getAutor(),
+                    libroActual.getEditorial(), libroActual.getEstado(), libroActual.getBaja(), null);
             libroActual.setTitulo(txtTitulo.getText());
             libroActual.setAutor(txtAutor.getText());
             libroActual.setEditorial(txtEditorial.getText());
             libroActual.setEstado(choiceEstadoLibro.getValue());
             libroActual.setBaja(chkBaja.isSelected() ? 1 : 0);
-            libroActual.setPortada(portada);
-            libroDAO.actualizarLibro(libroActual);
+            Libro libro = libroActual;
+            boolean cambiarPortada = portadaModificada;
+            byte[] nuevaPortada = portada;
+            // La portada se guarda primero: si falla no se ha guardado nada, y si despues falla el resto
+            // de datos, el libro ya tiene la huella de la portada nueva y solo se restauran esos datos
+            guardado = DatabaseExecutor.supply(() -> {
+                if (cambiarPortada) {
+                    String huella = asyncDAO.libros().actualizarPortada(libro.getCodigo(), nuevaPortada);
+                    if (huella == null) {
+                        return false;
+                    }
+                    if (huella.isEmpty()) {
+                        huella = null;
+                    }
+                    Portadas.guardarMiniatura(huella, nuevaPortada);
+                    libro.setPortadaHash(huella);
+                }
+                return asyncDAO.libros().actualizarLibro(libro);
+            });
         }
 
-        // Refrescar la tabla de la ventana principal para que el libro dado de baja desaparezca si baja=1
-        if (bibliotecaController != null) {
-            bibliotecaController.actualizarTablaActual();
+        Libro libro = libroActual;
+        Libro datosAnteriores = anterior;
+        btnGuardar.setDisable(true);
+        DatabaseExecutor.enFx(guardado, guardadoOk -> {
+            if (!guardadoOk) {
+                restaurar(libro, datosAnteriores);
+                mostrarError(LanguageManager.getProperty("error.guardar"));
+                return;
+            }
+            // La tabla muestra la miniatura: no hace falta mantener la portada completa en memoria
+            libro.setPortada(null);
+            if (bibliotecaController != null) {
+                if (nuevo) {
+                    bibliotecaController.agregarElemento(libro);
+                } else {
+                    bibliotecaController.actualizarElemento(libro);
+                }
+            }
+
+            cerrarVentana();
+        }, error -> {
+            restaurar(libro, datosAnteriores);
+            mostrarError(LanguageManager.getProperty("error.guardar"));
+        });
+    }
+
+    /**
+     * Deshace los cambios que no se han podido guardar y permite reintentar. Un libro nuevo se descarta
+     * para crear otro al reintentar; uno modificado recupera sus datos anteriores.
+     * @param libro El libro que se intentaba guardar.
+     * @param anterior Copia de sus datos antes de editarlo, o null si era nuevo.
+     */
+    private void restaurar(Libro libro, Libro anterior) {
+        if (anterior == null) {
+            libroActual = null;
+        } else {
+            libro.setTitulo(anterior.getTitulo());
+            libro.setAutor(anterior.getAutor());
+            libro.setEditorial(anterior.getEditorial());
+            libro.setEstado(anterior.getEstado());
+            libro.setBaja(anterior.getBaja());
         }
+        btnGuardar.setDisable(false);
+    }
 
-        cerrarVentana();
+    /**
+     * Muestra una alerta de error con el mensaje proporcionado.
+     * @param mensaje El mensaje a mostrar en la alerta.
+     */
+    private void mostrarError(String mensaje) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(LanguageManager.getProperty("error"));
+        alert.setHeaderText(null);
+        alert.setContentText(mensaje);
+        alert.showAndWait();
     }
 
     /**
      * Abre un selector de archivos para elegir una imagen de portada.
-     * La imagen seleccionada se muestra en el campo ImageView y se guarda en la variable portada.
+     * La imagen seleccionada se muestra en el campo ImageView y, en segundo plano, se reduce y recodifica
+     * con {@link Portadas#ajustarPortada(byte[])} antes de guardarla en la variable portada.
+     * Mientras se prepara no se puede guardar el libro.
      */
     @FXML
     private void selectPortada() {
@@ -131,12 +232,33 @@ public class LibroController {
 
         File file = fileChooser.showOpenDialog(null);
         if (file != null) {
-            try {
-                portada = Files.readAllBytes(file.toPath());
-                imgPortada.setImage(new Image(file.toURI().toString()));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            int seleccion = ++seleccionPortada;
+            imgPortada.setImage(new Image(file.toURI().toString(),
+                    imgPortada.getFitWidth(), imgPortada.getFitHeight(), true, true, true));
+            btnGuardar.setDisable(true);
+            DatabaseExecutor.enFx(DatabaseExecutor.supply(() -> {
+                try {
+                    return Portadas.ajustarPortada(Files.readAllBytes(file.toPath()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }), ajustada -> {
+                if (seleccion == seleccionPortada) {
+                    portada = ajustada;
+                    portadaModificada = true;
+                    btnGuardar.setDisable(false);
+                }
+            }, error -> {
+                if (seleccion == seleccionPortada) {
+                    imgPortada.setImage(null);
+                    btnGuardar.setDisable(false);
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle(LanguageManager.getProperty("error"));
+                    alert.setHeaderText(LanguageManager.getProperty("selecciona.imagen"));
+                    alert.setContentText(error.getMessage());
+                    alert.showAndWait();
+                }
+            });
         }
     }
 
@@ -145,7 +267,10 @@ public class LibroController {
      */
     @FXML
     private void removePortada() {
+        seleccionPortada++;
+        btnGuardar.setDisable(false);
         portada = null;
+        portadaModificada = true;
         imgPortada.setImage(null);
     }
 
@@ -1,11 +1,8 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.AlumnoDAO;
-import com.eiman.biblioteca.dao.HistoricoPrestamoDAO;
-import com.eiman.biblioteca.dao.LibroDAO;
-import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.dao.AsyncDAO;
 import com.eiman.biblioteca.models.HistoricoPrestamo;
-import com.eiman.biblioteca.models.Libro;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -33,9 +30,7 @@ public class ModifyHistoricoController {
     @FXML private ChoiceBox<String> choiceEstadoLibro;
     @FXML private Button btnGuardar, btnCancelar;
 
-    private final HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
-    private final LibroDAO libroDAO = new LibroDAO();
-    private final AlumnoDAO alumnoDAO = new AlumnoDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
     private HistoricoPrestamo historicoActual;
 
     /**
@@ -67,6 +62,7 @@ public class ModifyHistoricoController {
     /**
      * Establece el historial de préstamo a modificar.
      * Carga la información del alumno, libro, fecha de devolución y estado del libro en los campos correspondientes.
+     * El registro viene de la consulta combinada del historial, por lo que no se hacen consultas adicionales.
      * @param historico El historial de préstamo a modificar.
      */
     public void setHistorico(HistoricoPrestamo historico) {
@@ -74,21 +70,17 @@ public class ModifyHistoricoController {
         try {
             this.historicoActual = historico;
 
-            Alumno alumno = alumnoDAO.obtenerAlumnoPorDni(historico.getDniAlumno());
-            lblAlumno.setText((LanguageManager.getProperty("alumno")) + " " +
-                    (alumno != null ? alumno.getNombre() + " " + alumno.getApellido1() : LanguageManager.getProperty("desconocido")));
-
-            Libro libro = libroDAO.obtenerLibroPorCodigo(historico.getCodigoLibro());
-            lblLibro.setText((LanguageManager.getProperty("libro")) + " " +
-                    (libro != null ? libro.getTitulo() : LanguageManager.getProperty("desconocido")));
+            lblAlumno.setText(LanguageManager.getProperty("alumno") + " " +
+                    (historico.getNombreAlumno() != null ? historico.getNombreAlumno() : LanguageManager.getProperty("desconocido")));
+            lblLibro.setText(LanguageManager.getProperty("libro") + " " +
+                    (historico.getTituloLibro() != null ? historico.getTituloLibro() : LanguageManager.getProperty("desconocido")));
+            if (historico.getEstadoLibro() != null) {
+                choiceEstadoLibro.setValue(historico.getEstadoLibro());
+            }
 
             dateDevolucion.setValue(historico.getFechaDevolucion().toLocalDate());
             spinnerHora.getValueFactory().setValue(historico.getFechaDevolucion().getHour());
             spinnerMinutos.getValueFactory().setValue(historico.getFechaDevolucion().getMinute());
-
-            if (libro != null) {
-                choiceEstadoLibro.setValue(libro.getEstado());
-            }
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al cargar los datos del historial de préstamo.", e);
         }
@@ -111,26 +103,35 @@ public class ModifyHistoricoController {
                     dateDevolucion.getValue(),
                     LocalTime.of(spinnerHora.getValue(), spinnerMinutos.getValue())
             );
+            // El registro es el mismo que muestra la tabla: se guarda la fecha anterior por si falla el guardado
+            LocalDateTime fechaAnterior = historicoActual.getFechaDevolucion();
             historicoActual.setFechaDevolucion(nuevaFechaDevolucion);
 
             String nuevoEstado = choiceEstadoLibro.getValue();
-            if (nuevoEstado != null) {
-                Libro libro = libroDAO.obtenerLibroPorCodigo(historicoActual.getCodigoLibro());
-                if (libro != null) {
-                    libro.setEstado(nuevoEstado);
-                    libroDAO.actualizarLibro(libro);
+            btnGuardar.setDisable(true);
+            DatabaseExecutor.enFx(asyncDAO.actualizarDevolucion(historicoActual, nuevoEstado), guardado -> {
+                if (!guardado) {
+                    restaurar(fechaAnterior);
+                    return;
                 }
-            }
-
-            historicoPrestamoDAO.actualizarHistoricoPrestamo(historicoActual);
-
-            logger.info("Historial de préstamo actualizado correctamente.");
-            cerrarVentana();
+                logger.info("Historial de préstamo actualizado correctamente.");
+                cerrarVentana();
+            }, error -> restaurar(fechaAnterior));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al guardar cambios en el historial de préstamo.", e);
         }
     }
 
+    /**
+     * Deshace el cambio de fecha que no se ha podido guardar, avisa al usuario y permite reintentar.
+     * @param fechaAnterior La fecha de devolución antes de editarla.
+     */
+    private void restaurar(LocalDateTime fechaAnterior) {
+        historicoActual.setFechaDevolucion(fechaAnterior);
+        btnGuardar.setDisable(false);
+        mostrarAlerta(LanguageManager.getProperty("error.guardar"));
+    }
+
     /**
      * Cancela la operación y cierra la ventana sin guardar cambios.
      */
@@ -1,13 +1,13 @@
 package com.eiman.biblioteca.controllers;
 
-import com.eiman.biblioteca.dao.AlumnoDAO;
-import com.eiman.biblioteca.dao.LibroDAO;
-import com.eiman.biblioteca.dao.PrestamoDAO;
+import com.eiman.biblioteca.dao.AsyncDAO;
 import com.eiman.biblioteca.models.Alumno;
 import com.eiman.biblioteca.models.Libro;
 import com.eiman.biblioteca.models.Prestamo;
+import com.eiman.biblioteca.utils.Autocompletado;
+import com.eiman.biblioteca.utils.Configuracion;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
 import com.eiman.biblioteca.utils.LanguageManager;
-import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
@@ -15,10 +15,9 @@ import javafx.stage.Stage;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Controlador para la ventana de gestión de préstamos.
@@ -27,6 +26,10 @@ import java.util.stream.Collectors;
  */
 public class PrestamoController {
     private static final Logger logger = Logger.getLogger(PrestamoController.class.getName());
+    /**
+     * Numero maximo de alumnos o libros que se sugieren mientras se escribe.
+     */
+    private static final int SUGERENCIAS = Configuracion.getInt("prestamos.sugerencias", 20);
 
     @FXML private ComboBox<Alumno> comboAlumnos;
     @FXML private ComboBox<Libro> comboLibros;
@@ -36,21 +39,18 @@ public class PrestamoController {
     @FXML private Button btnGuardar, btnCancelar;
 
     private BibliotecaController bibliotecaController;
-    private final AlumnoDAO alumnoDAO = new AlumnoDAO();
-    private final LibroDAO libroDAO = new LibroDAO();
-    private final PrestamoDAO prestamoDAO = new PrestamoDAO();
+    private final AsyncDAO asyncDAO = new AsyncDAO();
     private Prestamo prestamoActual;
 
     /**
      * Inicializa los componentes de la interfaz de usuario, configurando los spinners para hora y minutos,
-     * y cargando los alumnos y libros disponibles para préstamo.
+     * y los selectores de alumno y libro, que no cargan nada hasta que se escribe en ellos o se despliegan.
      */
     @FXML
     private void initialize() {
         logger.info("Inicializando la ventana de gestión de préstamos.");
         try {
-            cargarAlumnos();
-            cargarLibrosDisponibles();
+            configurarSelectores();
 
             datePrestamo.setValue(LocalDate.now());
             spinnerHora.getValueFactory().setValue(LocalTime.now().getHour());
@@ -70,6 +70,7 @@ public class PrestamoController {
 
     /**
      * Establece el préstamo que se está editando, cargando sus valores en los campos del formulario.
+     * El préstamo viene de la consulta combinada, por lo que el alumno y el libro se muestran sin consultarlos.
      * @param prestamo El préstamo a editar.
      */
     public void setPrestamo(Prestamo prestamo) {
@@ -77,8 +78,10 @@ public class PrestamoController {
         try {
             this.prestamoActual = prestamo;
             if (prestamo != null) {
-                comboAlumnos.setValue(alumnoDAO.obtenerAlumnoPorDni(prestamo.getDniAlumno()));
-                comboLibros.setValue(libroDAO.obtenerLibroPorCodigo(prestamo.getCodigoLibro()));
+                comboAlumnos.setValue(new Alumno(prestamo.getDniAlumno(),
+                        prestamo.getNombreAlumno() != null ? prestamo.getNombreAlumno() : prestamo.getDniAlumno(), null, null));
+                comboLibros.setValue(new Libro(prestamo.getCodigoLibro(), prestamo.getTituloLibro(), null, null,
+                        prestamo.getEstadoLibro(), 0, null));
                 datePrestamo.setValue(prestamo.getFechaPrestamo().toLocalDate());
                 spinnerHora.getValueFactory().setValue(prestamo.getFechaPrestamo().getHour());
                 spinnerMinutos.getValueFactory().setValue(prestamo.getFechaPrestamo().getMinute());
@@ -89,37 +92,19 @@ public class PrestamoController {
     }
 
     /**
-     * Carga todos los alumnos disponibles en el ComboBox de alumnos.
-     */
-    private void cargarAlumnos() {
-        logger.info("Cargando lista de alumnos.");
-        try {
-            List<Alumno> alumnos = alumnoDAO.obtenerTodosLosAlumnos();
-            comboAlumnos.setItems(FXCollections.observableArrayList(alumnos));
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error al cargar la lista de alumnos.", e);
-        }
-    }
-
-    /**
-     * Carga los libros disponibles para préstamo, excluyendo los que están prestados o dados de baja.
+     * Configura los selectores de alumno y libro para sugerir, mientras se escribe, los primeros alumnos
+     * cuyo DNI, nombre o primer apellido empiezan por lo escrito, completados con los de nombre o DNI
+     * parecido para tolerar erratas, y los primeros libros disponibles
+     * (no prestados ni dados de baja) cuyo titulo empieza por lo escrito.
+     * Los alumnos se muestran con su DNI para distinguir a los que se llaman igual.
      */
-    private void cargarLibrosDisponibles() {
-        logger.info("Cargando lista de libros disponibles para préstamo.");
-        try {
-            List<Libro> libros = libroDAO.obtenerTodosLosLibros();
-            List<Integer> librosPrestados = prestamoDAO.obtenerTodosLosPrestamos().stream()
-                    .map(Prestamo::getCodigoLibro)
-                    .collect(Collectors.toList());
-
-            comboLibros.setItems(FXCollections.observableArrayList(
-                    libros.stream()
-                            .filter(libro -> libro.getBaja() == 0 && !librosPrestados.contains(libro.getCodigo()))
-                            .collect(Collectors.toList())
-            ));
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error al cargar la lista de libros disponibles.", e);
-        }
+    private void configurarSelectores() {
+        Autocompletado.enlazar(comboAlumnos, prefijo -> asyncDAO.sugerirAlumnos(prefijo, SUGERENCIAS),
+                alumno -> alumno.getDni() + " - " + alumno);
+        Autocompletado.enlazar(comboLibros, prefijo -> asyncDAO.obtenerLibrosDisponibles(prefijo, SUGERENCIAS),
+                Libro::toString);
+        comboAlumnos.setPromptText(LanguageManager.getProperty("escribe.alumno"));
+        comboLibros.setPromptText(LanguageManager.getProperty("escribe.libro"));
     }
 
     /**
@@ -149,27 +134,77 @@ public class PrestamoController {
             LocalTime horaPrestamo = LocalTime.of(horaSeleccionada, minutosSeleccionados);
             LocalDateTime fechaHoraPrestamo = LocalDateTime.of(fechaSeleccionada, horaPrestamo);
 
-            if (prestamoActual == null) {
+            CompletableFuture<Boolean> guardado;
+            boolean nuevo = prestamoActual == null;
+            Prestamo anterior = null;
+            if (nuevo) {
                 prestamoActual = new Prestamo(0, alumnoSeleccionado.getDni(), libroSeleccionado.getCodigo(), fechaHoraPrestamo);
-                prestamoDAO.insertarPrestamo(prestamoActual);
+                guardado = asyncDAO.insertarPrestamo(prestamoActual).thenApply(id -> id > 0);
             } else {
+                anterior = new Prestamo(prestamoActual.getIdPrestamo(), prestamoActual.getDniAlumno(),
+                        prestamoActual.getCodigoLibro(), prestamoActual.getFechaPrestamo());
+                anterior.setNombreAlumno(prestamoActual.getNombreAlumno());
+                anterior.setTituloLibro(prestamoActual.getTituloLibro());
+                anterior.setEstadoLibro(prestamoActual.getEstadoLibro());
                 prestamoActual.setDniAlumno(alumnoSeleccionado.getDni());
                 prestamoActual.setCodigoLibro(libroSeleccionado.getCodigo());
                 prestamoActual.setFechaPrestamo(fechaHoraPrestamo);
-                prestamoDAO.actualizarPrestamo(prestamoActual);
+                guardado = asyncDAO.actualizarPrestamo(prestamoActual);
             }
-
-            if (bibliotecaController != null) {
-                bibliotecaController.actualizarTablaActual();
-            }
-
-            logger.info("Préstamo guardado correctamente.");
-            cerrarVentana();
+            // Datos combinados que muestra la tabla principal, tomados de la seleccion sin consultarlos de nuevo
+            prestamoActual.setNombreAlumno(alumnoSeleccionado.toString());
+            prestamoActual.setTituloLibro(libroSeleccionado.getTitulo());
+            prestamoActual.setEstadoLibro(libroSeleccionado.getEstado());
+
+            Prestamo prestamo = prestamoActual;
+            Prestamo datosAnteriores = anterior;
+            btnGuardar.setDisable(true);
+            DatabaseExecutor.enFx(guardado, guardadoOk -> {
+                if (!guardadoOk) {
+                    restaurar(prestamo, datosAnteriores);
+                    mostrarAlerta(LanguageManager.getProperty("error.guardar"));
+                    return;
+                }
+                if (bibliotecaController != null) {
+                    if (nuevo) {
+                        bibliotecaController.agregarElemento(prestamo);
+                    } else {
+                        bibliotecaController.actualizarElemento(prestamo);
+                    }
+                }
+
+                logger.info("Préstamo guardado correctamente.");
+                cerrarVentana();
+            }, error -> {
+                restaurar(prestamo, datosAnteriores);
+                mostrarAlerta(LanguageManager.getProperty("error.guardar"));
+            });
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error al guardar el préstamo.", e);
         }
     }
 
+    /**
+     * Deshace los cambios que no se han podido guardar y permite reintentar. Un préstamo nuevo se descarta
+     * para crear otro al reintentar; uno modificado, que es la misma instancia que muestra la tabla,
+     * recupera sus datos anteriores.
+     * @param prestamo El préstamo que se intentaba guardar.
+     * @param anterior Copia de sus datos antes de editarlo, o null si era nuevo.
+     */
+    private void restaurar(Prestamo prestamo, Prestamo anterior) {
+        if (anterior == null) {
+            prestamoActual = null;
+        } else {
+            prestamo.setDniAlumno(anterior.getDniAlumno());
+            prestamo.setCodigoLibro(anterior.getCodigoLibro());
+            prestamo.setFechaPrestamo(anterior.getFechaPrestamo());
+            prestamo.setNombreAlumno(anterior.getNombreAlumno());
+            prestamo.setTituloLibro(anterior.getTituloLibro());
+            prestamo.setEstadoLibro(anterior.getEstadoLibro());
+        }
+        btnGuardar.setDisable(false);
+    }
+
     /**
      * Muestra una alerta de advertencia con el mensaje proporcionado.
      * @param mensaje El mensaje a mostrar en la alerta.
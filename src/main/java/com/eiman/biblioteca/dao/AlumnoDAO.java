@@ -1,11 +1,16 @@
 package com.eiman.biblioteca.dao;
 
 import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.utils.Configuracion;
 import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.UnitOfWork;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,14 +21,41 @@ import java.util.logging.Logger;
 public class AlumnoDAO {
     private static final Logger logger = Logger.getLogger(AlumnoDAO.class.getName());
     private static final String TABLE_NAME = "Alumno";
+    /**
+     * Alumnos leidos por DNI, compartidos por todas las instancias del DAO.
+     * Se guardan y se entregan copias, para que los cambios hechos en un formulario
+     * no lleguen a la cache hasta que se guardan en la base de datos.
+     */
+    private static final CacheLRU<String, Alumno> cache = new CacheLRU<>(Configuracion.getInt("cache.alumnos.max", 1000));
+    /**
+     * Fraccion minima de los trigramas de una busqueda aproximada que debe compartir un alumno para sugerirlo.
+     */
+    private static final double SIMILITUD_MINIMA = 0.3;
+    private static final Object bloqueoIndice = new Object();
+    /**
+     * Indice de trigramas del DNI y el nombre completo de todos los alumnos, para la busqueda aproximada.
+     * Se construye en la primera busqueda y despues se mantiene con las escrituras de este DAO;
+     * es null mientras no se ha construido o tras una importacion por lotes, que obliga a reconstruirlo.
+     * Las altas hechas desde otros equipos no pasan por este DAO: el indice se reconstruye al caducar.
+     */
+    private static IndiceTrigramas<Alumno> indiceAproximado;
+    /** Momento, en nanosegundos de {@link System#nanoTime()}, en que se construyo el indice. */
+    private static long indiceConstruido;
+    /**
+     * Nanosegundos tras los que el indice se reconstruye en la siguiente busqueda.
+     */
+    private static final long CADUCIDAD_INDICE =
+            TimeUnit.SECONDS.toNanos(Configuracion.getInt("busqueda.alumnos.caducidadSegundos", 300));
 
     /**
      * Inserta un nuevo alumno en la base de datos.
      * Si el alumno ya existe (mismo DNI), lanzará una excepción.
      *
      * @param alumno El alumno a insertar.
+     * @return true si el alumno se insertó, false si ocurrió un error.
+     * @throws IllegalArgumentException Si ya existe un alumno con el mismo DNI.
      */
-    public void insertarAlumno(Alumno alumno) {
+    public boolean insertarAlumno(Alumno alumno) {
         logger.info("Intentando insertar un nuevo alumno con DNI: " + alumno.getDni());
         String sql = "INSERT INTO Alumno (dni, nombre, apellido1, apellido2) VALUES (?, ?, ?, ?)";
 
@@ -35,26 +67,68 @@ public class AlumnoDAO {
             stmt.setString(3, alumno.getApellido1());
             stmt.setString(4, alumno.getApellido2());
             stmt.executeUpdate();
+            Tabla.ALUMNO.marcarModificada();
+            indexar(alumno);
             logger.info("Alumno insertado exitosamente: " + alumno.getDni());
+            return true;
 
         } catch (SQLIntegrityConstraintViolationException e) {
             logger.log(Level.WARNING, "Intento de insertar un alumno con DNI duplicado: " + alumno.getDni(), e);
             throw new IllegalArgumentException("Ya existe un alumno con el mismo DNI.");
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error al insertar el alumno con DNI: " + alumno.getDni(), e);
+            return false;
         }
     }
 
+    /**
+     * Inserta varios alumnos enviando las inserciones por lotes, en bloques de {@code db.batchSize} filas.
+     * Los alumnos que no se pueden insertar (por ejemplo, por DNI duplicado) no impiden insertar el resto.
+     *
+     * @param alumnos Los alumnos a insertar.
+     * @return El número de alumnos insertados y el error de cada alumno que falló, por su posición en la lista.
+     */
+    public ResultadoLote insertarAlumnos(List<Alumno> alumnos) {
+        return insertarAlumnos(alumnos, InsercionPorLotes.TAMAÑO_LOTE);
+    }
+
+    /**
+     * Inserta varios alumnos enviando las inserciones por lotes del tamaño indicado.
+     *
+     * @param alumnos    Los alumnos a insertar.
+     * @param tamañoLote El número de filas de cada lote.
+     * @return El número de alumnos insertados y el error de cada alumno que falló, por su posición en la lista.
+     */
+    public ResultadoLote insertarAlumnos(List<Alumno> alumnos, int tamañoLote) {
+        logger.info("Insertando " + alumnos.size() + " alumnos por lotes de " + tamañoLote);
+        String sql = "INSERT INTO Alumno (dni, nombre, apellido1, apellido2) VALUES (?, ?, ?, ?)";
+        ResultadoLote resultado = InsercionPorLotes.insertar(sql, alumnos, tamañoLote, (stmt, alumno) -> {
+            stmt.setString(1, alumno.getDni());
+            stmt.setString(2, alumno.getNombre());
+            stmt.setString(3, alumno.getApellido1());
+            stmt.setString(4, alumno.getApellido2());
+        });
+        Tabla.ALUMNO.marcarModificada();
+        descartarIndice();
+        return resultado;
+    }
+
     /**
      * Obtiene un alumno de la base de datos usando su DNI.
+     * Los alumnos ya leidos se sirven desde la cache sin consultar la base de datos.
      *
      * @param dni El DNI del alumno.
      * @return El alumno con el DNI especificado, o null si no se encuentra.
      */
     public Alumno obtenerAlumnoPorDni(String dni) {
+        Alumno cacheado = cache.obtener(dni);
+        if (cacheado != null) {
+            return copiar(cacheado);
+        }
+
         logger.info("Buscando alumno con DNI: " + dni);
         Alumno alumno = null;
-        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE dni = ?";
+        String sql = "SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME + " WHERE dni = ?";
 
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -63,12 +137,8 @@ public class AlumnoDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                alumno = new Alumno(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido1"),
-                        rs.getString("apellido2")
-                );
+                alumno = Mapeadores.alumno(rs).mapear(rs);
+                cache.guardar(dni, copiar(alumno));
                 logger.info("Alumno encontrado: " + alumno.getDni());
             } else {
                 logger.info("No se encontró ningún alumno con DNI: " + dni);
@@ -86,35 +156,114 @@ public class AlumnoDAO {
      */
     public List<Alumno> obtenerTodosLosAlumnos() {
         logger.info("Obteniendo lista de todos los alumnos.");
+        try {
+            return leerTodosLosAlumnos();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener la lista de alumnos.", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Lee todos los alumnos sin ocultar los errores, para quien no puede confundir un fallo con una tabla vacía.
+     */
+    private static List<Alumno> leerTodosLosAlumnos() throws SQLException {
         List<Alumno> alumnos = new ArrayList<>();
-        String sql = "SELECT * FROM " + TABLE_NAME;
+        String sql = "SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME;
 
         try (Connection connection = DatabaseConnection.getConnection();
              Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            MapeadorFila<Alumno> mapeador = Mapeadores.alumno(rs);
             while (rs.next()) {
-                Alumno alumno = new Alumno(
-                        rs.getString("dni"),
-                        rs.getString("nombre"),
-                        rs.getString("apellido1"),
-                        rs.getString("apellido2")
-                );
-                alumnos.add(alumno);
+                alumnos.add(mapeador.mapear(rs));
             }
             logger.info("Total de alumnos obtenidos: " + alumnos.size());
+        }
+        return alumnos;
+    }
+
+    /**
+     * Busca los alumnos cuyo DNI, nombre o primer apellido empiezan por un texto, para sugerirlos mientras se escribe.
+     * Cada columna se consulta por separado con su índice y se detiene al llegar al límite, de modo que
+     * el coste no depende del número de alumnos; después se unen los resultados sin repetidos.
+     *
+     * @param prefijo El comienzo buscado, o null o vacío para devolver los primeros alumnos por apellido.
+     * @param limite  El número máximo de alumnos a devolver.
+     * @return Los alumnos encontrados ordenados por apellidos y nombre.
+     */
+    public List<Alumno> buscarAlumnosPorPrefijo(String prefijo, int limite) {
+        logger.info("Buscando alumnos con el prefijo: " + prefijo);
+        List<Alumno> alumnos = new ArrayList<>();
+        String patron = Consultas.prefijoLike(prefijo == null ? "" : prefijo);
+        String sql = "SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM ("
+                + "(SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME + " WHERE dni LIKE ? ORDER BY dni LIMIT ?)"
+                + " UNION (SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME + " WHERE apellido1 LIKE ? ORDER BY apellido1 LIMIT ?)"
+                + " UNION (SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME + " WHERE nombre LIKE ? ORDER BY nombre LIMIT ?)"
+                + ") a ORDER BY apellido1, apellido2, nombre LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            for (int i = 1; i <= 6; i += 2) {
+                stmt.setString(i, patron);
+                stmt.setInt(i + 1, limite);
+            }
+            stmt.setInt(7, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Alumno> mapeador = Mapeadores.alumno(rs);
+                while (rs.next()) {
+                    alumnos.add(mapeador.mapear(rs));
+                }
+            }
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al obtener la lista de alumnos.", e);
+            logger.log(Level.SEVERE, "Error al buscar alumnos por prefijo.", e);
         }
         return alumnos;
     }
 
+    /**
+     * Obtiene una página de alumnos ordenados por DNI usando paginación por clave,
+     * de forma que el coste de cada página no depende de cuántas se hayan leído antes.
+     *
+     * @param cursor El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamaño El número máximo de alumnos de la página.
+     * @return La página de alumnos con el cursor de la siguiente.
+     */
+    public Pagina<Alumno> obtenerPaginaAlumnos(String cursor, int tamaño) {
+        logger.info("Obteniendo página de alumnos desde el cursor: " + cursor);
+        List<Alumno> alumnos = new ArrayList<>();
+        String sql = "SELECT " + Mapeadores.COLUMNAS_ALUMNO + " FROM " + TABLE_NAME
+                + (cursor == null ? "" : " WHERE dni > ?") + " ORDER BY dni LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (cursor != null) {
+                stmt.setString(i++, cursor);
+            }
+            stmt.setInt(i, tamaño + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Alumno> mapeador = Mapeadores.alumno(rs);
+                while (rs.next()) {
+                    alumnos.add(mapeador.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener la página de alumnos.", e);
+        }
+        return Pagina.de(alumnos, tamaño, Alumno::getDni);
+    }
+
     /**
      * Actualiza los datos de un alumno en la base de datos.
      *
      * @param alumno El alumno con los datos actualizados.
+     * @return true si el alumno se actualizó, false si no se encontró o ocurrió un error.
      */
-    public void actualizarAlumno(Alumno alumno) {
+    public boolean actualizarAlumno(Alumno alumno) {
         logger.info("Intentando actualizar datos del alumno con DNI: " + alumno.getDni());
         String sql = "UPDATE " + TABLE_NAME + " SET nombre = ?, apellido1 = ?, apellido2 = ? WHERE dni = ?";
 
@@ -126,14 +275,21 @@ public class AlumnoDAO {
             stmt.setString(3, alumno.getApellido2());
             stmt.setString(4, alumno.getDni());
             int rowsUpdated = stmt.executeUpdate();
+            Tabla.ALUMNO.marcarModificada();
 
             if (rowsUpdated > 0) {
+                cache.guardar(alumno.getDni(), copiar(alumno));
+                indexar(alumno);
                 logger.info("Alumno actualizado exitosamente: " + alumno.getDni());
-            } else {
-                logger.warning("No se encontró el alumno con DNI: " + alumno.getDni() + " para actualizar.");
+                return true;
             }
+            cache.invalidar(alumno.getDni());
+            logger.warning("No se encontró el alumno con DNI: " + alumno.getDni() + " para actualizar.");
+            return false;
         } catch (SQLException e) {
+            cache.invalidar(alumno.getDni());
             logger.log(Level.SEVERE, "Error al actualizar el alumno con DNI: " + alumno.getDni(), e);
+            return false;
         }
     }
 
@@ -145,13 +301,37 @@ public class AlumnoDAO {
      */
     public boolean eliminarAlumno(String dni) {
         logger.info("Intentando eliminar alumno con DNI: " + dni);
-        String sql = "DELETE FROM Alumno WHERE dni = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean eliminado = eliminarAlumno(conn, dni);
+            if (eliminado) {
+                desindexar(dni);
+            }
+            return eliminado;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar el alumno con DNI: " + dni, e);
+            return false;
+        }
+    }
+
+    /**
+     * Elimina un alumno usando su DNI y la conexión indicada, para poder hacerlo dentro de una transacción.
+     * No lo quita del índice de búsqueda aproximada, porque la transacción aún puede deshacerse:
+     * debe hacerlo quien la confirma.
+     *
+     * @param conn La conexión a usar.
+     * @param dni  El DNI del alumno a eliminar.
+     * @return true si el alumno fue eliminado, false si no se encontró.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public boolean eliminarAlumno(Connection conn, String dni) throws SQLException {
+        String sql = "DELETE FROM Alumno WHERE dni = ?";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, dni);
             int affectedRows = pstmt.executeUpdate();
+            Tabla.ALUMNO.marcarModificada();
+            cache.invalidar(dni);
 
             if (affectedRows > 0) {
                 logger.info("Alumno eliminado exitosamente: " + dni);
@@ -160,9 +340,168 @@ public class AlumnoDAO {
                 logger.warning("No se encontró el alumno con DNI: " + dni + " para eliminar.");
                 return false;
             }
+        }
+    }
+
+    /**
+     * Elimina un alumno junto con sus préstamos y su historial en una única transacción.
+     * Si el alumno no existe o alguna operación falla, no se elimina nada.
+     *
+     * @param dni El DNI del alumno a eliminar.
+     * @return true si el alumno fue eliminado, false si no se encontró o ocurrió un error.
+     */
+    public boolean eliminarAlumnoConPrestamos(String dni) {
+        logger.info("Eliminando alumno con DNI: " + dni + " junto con sus préstamos e historial.");
+        HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
+        PrestamoDAO prestamoDAO = new PrestamoDAO();
+
+        try {
+            boolean eliminado = UnitOfWork.ejecutar(connection -> {
+                historicoPrestamoDAO.eliminarPorDni(connection, dni);
+                prestamoDAO.eliminarPorDni(connection, dni);
+                if (!eliminarAlumno(connection, dni)) {
+                    // Nada que confirmar: se deshacen los borrados previos
+                    connection.rollback();
+                    return false;
+                }
+                return true;
+            });
+            if (eliminado) {
+                desindexar(dni);
+            }
+            return eliminado;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error al eliminar el alumno con DNI: " + dni, e);
             return false;
+        } finally {
+            // Tras confirmar: una lectura concurrente pudo guardar el alumno antes del commit
+            cache.invalidar(dni);
+            Tabla.marcarModificadas(Tabla.ALUMNO, Tabla.PRESTAMO, Tabla.HISTORICO_PRESTAMO);
+        }
+    }
+
+    /**
+     * Busca los alumnos cuyo DNI o nombre completo se parecen a un texto, aunque tenga erratas,
+     * con el índice de trigramas en memoria ({@link IndiceTrigramas}). La primera llamada lee todos
+     * los alumnos para construir el índice; las siguientes no consultan la base de datos hasta que
+     * el índice caduca y se vuelve a leer, para incluir los alumnos dados de alta desde otros equipos.
+     *
+     * @param consulta El texto buscado.
+     * @param limite   El número máximo de alumnos a devolver.
+     * @return Los alumnos más parecidos primero.
+     * @throws IllegalStateException Si no se pueden leer los alumnos para construir el índice.
+     */
+    public List<Alumno> buscarAlumnosAproximado(String consulta, int limite) {
+        List<Alumno> alumnos = new ArrayList<>();
+        for (Alumno alumno : obtenerIndice().buscar(consulta, limite, SIMILITUD_MINIMA)) {
+            alumnos.add(copiar(alumno));
+        }
+        return alumnos;
+    }
+
+    /**
+     * Sugiere alumnos para un texto escrito: primero los que empiezan por él ({@link #buscarAlumnosPorPrefijo}),
+     * y si no llegan al límite, los más parecidos de la búsqueda aproximada, para tolerar erratas.
+     *
+     * @param texto  El texto escrito.
+     * @param limite El número máximo de alumnos a devolver.
+     * @return Los alumnos sugeridos, sin repetidos.
+     * @throws IllegalStateException Si no se pueden leer los alumnos para construir el índice de búsqueda aproximada.
+     */
+    public List<Alumno> sugerirAlumnos(String texto, int limite) {
+        List<Alumno> alumnos = buscarAlumnosPorPrefijo(texto, limite);
+        if (alumnos.size() >= limite || texto == null || texto.isBlank()) {
+            return alumnos;
+        }
+        Set<String> dnis = new HashSet<>();
+        for (Alumno alumno : alumnos) {
+            dnis.add(alumno.getDni());
+        }
+        for (Alumno alumno : buscarAlumnosAproximado(texto, limite)) {
+            if (alumnos.size() >= limite) {
+                break;
+            }
+            if (dnis.add(alumno.getDni())) {
+                alumnos.add(alumno);
+            }
+        }
+        return alumnos;
+    }
+
+    /**
+     * Obtiene el índice de búsqueda aproximada, construyéndolo si aún no existe o si ha caducado.
+     * Se construye con el bloqueo tomado, de modo que una escritura que termine mientras tanto
+     * espera y se aplica sobre el índice ya construido. Si la lectura falla no se guarda nada y la
+     * siguiente búsqueda lo vuelve a intentar; entre tanto se sigue usando el índice caducado, si lo hay.
+     */
+    private static IndiceTrigramas<Alumno> obtenerIndice() {
+        synchronized (bloqueoIndice) {
+            if (indiceAproximado == null || System.nanoTime() - indiceConstruido > CADUCIDAD_INDICE) {
+                long inicio = System.nanoTime();
+                IndiceTrigramas<Alumno> indice = new IndiceTrigramas<>();
+                try {
+                    for (Alumno alumno : leerTodosLosAlumnos()) {
+                        indice.guardar(alumno.getDni(), textoAproximado(alumno), copiar(alumno));
+                    }
+                } catch (SQLException e) {
+                    if (indiceAproximado == null) {
+                        throw new IllegalStateException("No se pudo construir el índice de búsqueda aproximada de alumnos.", e);
+                    }
+                    logger.log(Level.WARNING, "No se pudo renovar el índice de búsqueda aproximada de alumnos.", e);
+                    return indiceAproximado;
+                }
+                indiceAproximado = indice;
+                indiceConstruido = System.nanoTime();
+                logger.info("Índice de búsqueda aproximada de alumnos construido: " + indice.tamaño() + " alumnos en "
+                        + (indiceConstruido - inicio) / 1_000_000 + " ms.");
+            }
+            return indiceAproximado;
         }
     }
+
+    /**
+     * Añade o actualiza un alumno en el índice de búsqueda aproximada, si está construido.
+     */
+    private static void indexar(Alumno alumno) {
+        synchronized (bloqueoIndice) {
+            if (indiceAproximado != null) {
+                indiceAproximado.guardar(alumno.getDni(), textoAproximado(alumno), copiar(alumno));
+            }
+        }
+    }
+
+    /**
+     * Quita un alumno del índice de búsqueda aproximada, si está construido.
+     */
+    private static void desindexar(String dni) {
+        synchronized (bloqueoIndice) {
+            if (indiceAproximado != null) {
+                indiceAproximado.quitar(dni);
+            }
+        }
+    }
+
+    /**
+     * Descarta el índice de búsqueda aproximada para que la siguiente búsqueda lo reconstruya.
+     */
+    private static void descartarIndice() {
+        synchronized (bloqueoIndice) {
+            indiceAproximado = null;
+        }
+    }
+
+    private static String textoAproximado(Alumno alumno) {
+        return alumno.getDni() + " " + alumno;
+    }
+
+    /**
+     * @return Las estadisticas de uso de la cache de alumnos.
+     */
+    public static String resumenCache() {
+        return cache.resumen();
+    }
+
+    private static Alumno copiar(Alumno alumno) {
+        return new Alumno(alumno.getDni(), alumno.getNombre(), alumno.getApellido1(), alumno.getApellido2());
+    }
 }
@@ -0,0 +1,285 @@
+package com.eiman.biblioteca.dao;
+
+import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.models.HistoricoPrestamo;
+import com.eiman.biblioteca.models.Libro;
+import com.eiman.biblioteca.models.Prestamo;
+import com.eiman.biblioteca.utils.DatabaseExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fachada asincrona sobre los DAO de Alumno, Libro, Prestamo e Historico_prestamo.
+ * Cada operacion se ejecuta en un hilo de {@link DatabaseExecutor} y devuelve un {@link CompletableFuture},
+ * de modo que los controladores no bloquean el hilo de JavaFX durante las consultas.
+ * Para volver al hilo de JavaFX con el resultado se usa {@link DatabaseExecutor#enFx}.
+ */
+public class AsyncDAO {
+    private final AlumnoDAO alumnoDAO = new AlumnoDAO();
+    private final LibroDAO libroDAO = new LibroDAO();
+    private final PrestamoDAO prestamoDAO = new PrestamoDAO();
+    private final HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
+
+    // ---------------------------------------------------------------- Alumno
+
+    /**
+     * @see AlumnoDAO#insertarAlumno(Alumno)
+     */
+    public CompletableFuture<Boolean> insertarAlumno(Alumno alumno) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.insertarAlumno(alumno));
+    }
+
+    /**
+     * @see AlumnoDAO#obtenerAlumnoPorDni(String)
+     */
+    public CompletableFuture<Alumno> obtenerAlumnoPorDni(String dni) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.obtenerAlumnoPorDni(dni));
+    }
+
+    /**
+     * @see AlumnoDAO#obtenerTodosLosAlumnos()
+     */
+    public CompletableFuture<List<Alumno>> obtenerTodosLosAlumnos() {
+        return DatabaseExecutor.supply(alumnoDAO::obtenerTodosLosAlumnos);
+    }
+
+    /**
+     * @see AlumnoDAO#buscarAlumnosPorPrefijo(String, int)
+     */
+    public CompletableFuture<List<Alumno>> buscarAlumnosPorPrefijo(String prefijo, int limite) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.buscarAlumnosPorPrefijo(prefijo, limite));
+    }
+
+    /**
+     * @see AlumnoDAO#sugerirAlumnos(String, int)
+     */
+    public CompletableFuture<List<Alumno>> sugerirAlumnos(String texto, int limite) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.sugerirAlumnos(texto, limite));
+    }
+
+    /**
+     * @see AlumnoDAO#obtenerPaginaAlumnos(String, int)
+     */
+    public CompletableFuture<Pagina<Alumno>> obtenerPaginaAlumnos(String cursor, int tamaño) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.obtenerPaginaAlumnos(cursor, tamaño));
+    }
+
+    /**
+     * @see AlumnoDAO#actualizarAlumno(Alumno)
+     */
+    public CompletableFuture<Boolean> actualizarAlumno(Alumno alumno) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.actualizarAlumno(alumno));
+    }
+
+    /**
+     * @see AlumnoDAO#eliminarAlumno(String)
+     */
+    public CompletableFuture<Boolean> eliminarAlumno(String dni) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.eliminarAlumno(dni));
+    }
+
+    /**
+     * @see AlumnoDAO#eliminarAlumnoConPrestamos(String)
+     */
+    public CompletableFuture<Boolean> eliminarAlumnoConPrestamos(String dni) {
+        return DatabaseExecutor.supply(() -> alumnoDAO.eliminarAlumnoConPrestamos(dni));
+    }
+
+    // ----------------------------------------------------------------- Libro
+
+    /**
+     * @see LibroDAO#insertarLibro(Libro)
+     */
+    public CompletableFuture<Integer> insertarLibro(Libro libro) {
+        return DatabaseExecutor.supply(() -> libroDAO.insertarLibro(libro));
+    }
+
+    /**
+     * @see LibroDAO#obtenerLibroPorCodigo(int)
+     */
+    public CompletableFuture<Libro> obtenerLibroPorCodigo(int codigo) {
+        return DatabaseExecutor.supply(() -> libroDAO.obtenerLibroPorCodigo(codigo));
+    }
+
+    /**
+     * @see LibroDAO#obtenerLibrosDisponibles(String, int)
+     */
+    public CompletableFuture<List<Libro>> obtenerLibrosDisponibles(String prefijoTitulo, int limite) {
+        return DatabaseExecutor.supply(() -> libroDAO.obtenerLibrosDisponibles(prefijoTitulo, limite));
+    }
+
+    /**
+     * @see LibroDAO#buscar(String, int)
+     */
+    public CompletableFuture<List<Libro>> buscarLibros(String consulta, int limite) {
+        return DatabaseExecutor.supply(() -> libroDAO.buscar(consulta, limite));
+    }
+
+    /**
+     * @see LibroDAO#obtenerPaginaLibros(String, int)
+     */
+    public CompletableFuture<Pagina<Libro>> obtenerPaginaLibros(String cursor, int tamaño) {
+        return DatabaseExecutor.supply(() -> libroDAO.obtenerPaginaLibros(cursor, tamaño));
+    }
+
+    /**
+     * @see LibroDAO#obtenerPortada(int)
+     */
+    public CompletableFuture<byte[]> obtenerPortada(int codigo) {
+        return DatabaseExecutor.supply(() -> libroDAO.obtenerPortada(codigo));
+    }
+
+    /**
+     * @see LibroDAO#actualizarLibro(Libro)
+     */
+    public CompletableFuture<Boolean> actualizarLibro(Libro libro) {
+        return DatabaseExecutor.supply(() -> libroDAO.actualizarLibro(libro));
+    }
+
+    /**
+     * @see LibroDAO#eliminarLibro(int)
+     */
+    public CompletableFuture<Boolean> eliminarLibro(int codigo) {
+        return DatabaseExecutor.supply(() -> libroDAO.eliminarLibro(codigo));
+    }
+
+    /**
+     * @see LibroDAO#eliminarLibroConPrestamos(int)
+     */
+    public CompletableFuture<Boolean> eliminarLibroConPrestamos(int codigo) {
+        return DatabaseExecutor.supply(() -> libroDAO.eliminarLibroConPrestamos(codigo));
+    }
+
+    // -------------------------------------------------------------- Prestamo
+
+    /**
+     * @see PrestamoDAO#insertarPrestamo(Prestamo)
+     */
+    public CompletableFuture<Integer> insertarPrestamo(Prestamo prestamo) {
+        return DatabaseExecutor.supply(() -> prestamoDAO.insertarPrestamo(prestamo));
+    }
+
+    /**
+     * @see PrestamoDAO#obtenerPrestamoPorId(int)
+     */
+    public CompletableFuture<Prestamo> obtenerPrestamoPorId(int idPrestamo) {
+        return DatabaseExecutor.supply(() -> prestamoDAO.obtenerPrestamoPorId(idPrestamo));
+    }
+
+    /**
+     * @see PrestamoDAO#obtenerTodosLosPrestamos()
+     */
+    public CompletableFuture<List<Prestamo>> obtenerTodosLosPrestamos() {
+        return DatabaseExecutor.supply(prestamoDAO::obtenerTodosLosPrestamos);
+    }
+
+    /**
+     * @see PrestamoDAO#obtenerPaginaPrestamos(String, int)
+     */
+    public CompletableFuture<Pagina<Prestamo>> obtenerPaginaPrestamos(String cursor, int tamaño) {
+        return DatabaseExecutor.supply(() -> prestamoDAO.obtenerPaginaPrestamos(cursor, tamaño));
+    }
+
+    /**
+     * @see PrestamoDAO#obtenerPrestamosActivos()
+     */
+    public CompletableFuture<List<Prestamo>> obtenerPrestamosActivos() {
+        return DatabaseExecutor.supply(prestamoDAO::obtenerPrestamosActivos);
+    }
+
+    /**
+     * @see PrestamoDAO#actualizarPrestamo(Prestamo)
+     */
+    public CompletableFuture<Boolean> actualizarPrestamo(Prestamo prestamo) {
+        return DatabaseExecutor.supply(() -> prestamoDAO.actualizarPrestamo(prestamo));
+    }
+
+    /**
+     * @see PrestamoDAO#eliminarPrestamo(int)
+     */
+    public CompletableFuture<Boolean> eliminarPrestamo(int idPrestamo) {
+        return DatabaseExecutor.supply(() -> prestamoDAO.eliminarPrestamo(idPrestamo));
+    }
+
+    // ---------------------------------------------------- Historico_prestamo
+
+    /**
+     * @see HistoricoPrestamoDAO#insertarHistoricoPrestamo(HistoricoPrestamo)
+     */
+    public CompletableFuture<Void> insertarHistoricoPrestamo(HistoricoPrestamo historico) {
+        return DatabaseExecutor.run(() -> historicoPrestamoDAO.insertarHistoricoPrestamo(historico));
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#obtenerTodosLosHistoricos()
+     */
+    public CompletableFuture<List<HistoricoPrestamo>> obtenerTodosLosHistoricos() {
+        return DatabaseExecutor.supply(historicoPrestamoDAO::obtenerTodosLosHistoricos);
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#obtenerPaginaHistoricos(String, int)
+     */
+    public CompletableFuture<Pagina<HistoricoPrestamo>> obtenerPaginaHistoricos(String cursor, int tamaño) {
+        return DatabaseExecutor.supply(() -> historicoPrestamoDAO.obtenerPaginaHistoricos(cursor, tamaño));
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#actualizarHistoricoPrestamo(HistoricoPrestamo)
+     */
+    public CompletableFuture<Void> actualizarHistoricoPrestamo(HistoricoPrestamo historico) {
+        return DatabaseExecutor.run(() -> historicoPrestamoDAO.actualizarHistoricoPrestamo(historico));
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#registrarDevolucion(HistoricoPrestamo, String)
+     */
+    public CompletableFuture<Boolean> registrarDevolucion(HistoricoPrestamo historico, String nuevoEstado) {
+        return DatabaseExecutor.supply(() -> historicoPrestamoDAO.registrarDevolucion(historico, nuevoEstado));
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#actualizarDevolucion(HistoricoPrestamo, String)
+     */
+    public CompletableFuture<Boolean> actualizarDevolucion(HistoricoPrestamo historico, String nuevoEstado) {
+        return DatabaseExecutor.supply(() -> historicoPrestamoDAO.actualizarDevolucion(historico, nuevoEstado));
+    }
+
+    /**
+     * @see HistoricoPrestamoDAO#eliminarHistoricoPrestamo(int)
+     */
+    public CompletableFuture<Boolean> eliminarHistoricoPrestamo(int idPrestamo) {
+        return DatabaseExecutor.supply(() -> historicoPrestamoDAO.eliminarHistoricoPrestamo(idPrestamo));
+    }
+
+    // --------------------------------------------------------------- Accesos
+
+    /**
+     * @return El DAO sincrono de alumnos, para componer varias operaciones en una misma tarea.
+     */
+    public AlumnoDAO alumnos() {
+        return alumnoDAO;
+    }
+
+    /**
+     * @return El DAO sincrono de libros, para componer varias operaciones en una misma tarea.
+     */
+    public LibroDAO libros() {
+        return libroDAO;
+    }
+
+    /**
+     * @return El DAO sincrono de prestamos, para componer varias operaciones en una misma tarea.
+     */
+    public PrestamoDAO prestamos() {
+        return prestamoDAO;
+    }
+
+    /**
+     * @return El DAO sincrono del historico, para componer varias operaciones en una misma tarea.
+     */
+    public HistoricoPrestamoDAO historicos() {
+        return historicoPrestamoDAO;
+    }
+}
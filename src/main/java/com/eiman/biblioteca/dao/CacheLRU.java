@@ -0,0 +1,102 @@
+package com.eiman.biblioteca.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU acotada de entidades por clave, compartida por los hilos de {@code DatabaseExecutor}.
+ * Cuando se supera el tamaño maximo se expulsa la entrada usada hace mas tiempo.
+ * Solo se guardan entidades encontradas: una clave que no existe en la base de datos se vuelve a consultar.
+ *
+ * @param <K> Tipo de la clave.
+ * @param <V> Tipo de la entidad.
+ */
+class CacheLRU<K, V> {
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entradas;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Crea la cache.
+     *
+     * @param maxSize Numero maximo de entidades guardadas; 0 desactiva la cache.
+     */
+    CacheLRU(int maxSize) {
+        this.maxSize = maxSize;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > CacheLRU.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Busca una entidad y la marca como usada recientemente.
+     *
+     * @param clave La clave de la entidad.
+     * @return La entidad guardada, o null si no esta en la cache.
+     */
+    synchronized V obtener(K clave) {
+        V valor = entradas.get(clave);
+        if (valor != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+        }
+        return valor;
+    }
+
+    /**
+     * Guarda o reemplaza una entidad.
+     *
+     * @param clave La clave de la entidad.
+     * @param valor La entidad; si es null se quita la clave de la cache.
+     */
+    synchronized void guardar(K clave, V valor) {
+        if (valor == null) {
+            entradas.remove(clave);
+        } else if (maxSize > 0) {
+            entradas.put(clave, valor);
+        }
+    }
+
+    /**
+     * Quita una entidad de la cache, para que la siguiente lectura vaya a la base de datos.
+     *
+     * @param clave La clave de la entidad.
+     */
+    synchronized void invalidar(K clave) {
+        entradas.remove(clave);
+    }
+
+    /**
+     * Vacia la cache.
+     */
+    synchronized void vaciar() {
+        entradas.clear();
+    }
+
+    /**
+     * @return Un resumen legible con el tamaño, los aciertos, los fallos y la tasa de aciertos.
+     */
+    String resumen() {
+        int tamaño;
+        synchronized (this) {
+            tamaño = entradas.size();
+        }
+        return resumen(tamaño, maxSize, aciertos.sum(), fallos.sum());
+    }
+
+    /**
+     * Formatea las estadisticas de una cache.
+     */
+    static String resumen(int tamaño, int maxSize, long aciertos, long fallos) {
+        long consultas = aciertos + fallos;
+        double tasa = consultas == 0 ? 0 : 100.0 * aciertos / consultas;
+        return String.format("%d/%d entradas, %d aciertos / %d fallos (%.1f%% de aciertos)",
+                tamaño, maxSize, aciertos, fallos, tasa);
+    }
+}
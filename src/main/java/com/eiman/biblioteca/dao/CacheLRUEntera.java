@@ -0,0 +1,225 @@
+package com.eiman.biblioteca.dao;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU acotada de entidades con clave entera, sin convertir las claves a {@link Integer}.
+ * Las entidades se guardan en nodos de tamaño fijo enlazados por orden de uso, y una tabla hash
+ * de direccionamiento abierto (sondeo lineal) asocia cada clave con su nodo. Al llenarse se
+ * reutiliza el nodo usado hace mas tiempo. Es segura entre hilos sincronizando cada operacion.
+ * Igual que {@link CacheLRU}, solo se guardan entidades encontradas.
+ *
+ * @param <V> Tipo de la entidad.
+ */
+class CacheLRUEntera<V> {
+    private static final int VACIO = -1;
+
+    private final int maxSize;
+    private final int[] claves;
+    private final Object[] valores;
+    private final int[] anterior;
+    private final int[] siguiente;
+    /** Indice del nodo de cada celda de la tabla, o VACIO. */
+    private final int[] tabla;
+    private final int mascara;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private int tamaño;
+    /** Nodo usado mas recientemente. */
+    private int cabeza = VACIO;
+    /** Nodo usado hace mas tiempo, el primero en expulsarse. */
+    private int cola = VACIO;
+    /** Primer nodo libre; los libres se encadenan por {@code siguiente}. */
+    private int libre;
+
+    /**
+     * Crea la cache.
+     *
+     * @param maxSize Numero maximo de entidades guardadas; 0 desactiva la cache.
+     */
+    CacheLRUEntera(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        claves = new int[this.maxSize];
+        valores = new Object[this.maxSize];
+        anterior = new int[this.maxSize];
+        siguiente = new int[this.maxSize];
+        // Tabla con al menos el doble de celdas que nodos, para que los sondeos sean cortos
+        int celdas = Integer.highestOneBit(Math.max(2, this.maxSize) * 2 - 1) << 1;
+        tabla = new int[celdas];
+        mascara = celdas - 1;
+        vaciar();
+    }
+
+    /**
+     * Busca una entidad y la marca como usada recientemente.
+     *
+     * @param clave La clave de la entidad.
+     * @return La entidad guardada, o null si no esta en la cache.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V obtener(int clave) {
+        int celda = buscar(clave);
+        if (tabla[celda] == VACIO) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        int nodo = tabla[celda];
+        moverAlPrincipio(nodo);
+        return (V) valores[nodo];
+    }
+
+    /**
+     * Guarda o reemplaza una entidad, expulsando la usada hace mas tiempo si la cache esta llena.
+     *
+     * @param clave La clave de la entidad.
+     * @param valor La entidad; si es null se quita la clave de la cache.
+     */
+    synchronized void guardar(int clave, V valor) {
+        if (valor == null) {
+            invalidar(clave);
+            return;
+        }
+        if (maxSize == 0) {
+            return;
+        }
+        int celda = buscar(clave);
+        if (tabla[celda] != VACIO) {
+            int nodo = tabla[celda];
+            valores[nodo] = valor;
+            moverAlPrincipio(nodo);
+            return;
+        }
+        if (tamaño == maxSize) {
+            invalidar(claves[cola]);
+            celda = buscar(clave);
+        }
+        int nodo = libre;
+        libre = siguiente[nodo];
+        claves[nodo] = clave;
+        valores[nodo] = valor;
+        tabla[celda] = nodo;
+        enlazarAlPrincipio(nodo);
+        tamaño++;
+    }
+
+    /**
+     * Quita una entidad de la cache, para que la siguiente lectura vaya a la base de datos.
+     *
+     * @param clave La clave de la entidad.
+     */
+    synchronized void invalidar(int clave) {
+        int celda = buscar(clave);
+        int nodo = tabla[celda];
+        if (nodo == VACIO) {
+            return;
+        }
+        borrarCelda(celda);
+        desenlazar(nodo);
+        valores[nodo] = null;
+        siguiente[nodo] = libre;
+        libre = nodo;
+        tamaño--;
+    }
+
+    /**
+     * Vacia la cache.
+     */
+    synchronized void vaciar() {
+        Arrays.fill(tabla, VACIO);
+        Arrays.fill(valores, null);
+        for (int i = 0; i < maxSize; i++) {
+            siguiente[i] = i + 1 < maxSize ? i + 1 : VACIO;
+        }
+        libre = maxSize > 0 ? 0 : VACIO;
+        cabeza = VACIO;
+        cola = VACIO;
+        tamaño = 0;
+    }
+
+    /**
+     * @return Un resumen legible con el tamaño, los aciertos, los fallos y la tasa de aciertos.
+     */
+    String resumen() {
+        int actual;
+        synchronized (this) {
+            actual = tamaño;
+        }
+        return CacheLRU.resumen(actual, maxSize, aciertos.sum(), fallos.sum());
+    }
+
+    /**
+     * Devuelve la celda de la tabla que contiene la clave o, si no esta, la celda vacia donde iria.
+     */
+    private int buscar(int clave) {
+        int celda = dispersar(clave) & mascara;
+        while (tabla[celda] != VACIO && claves[tabla[celda]] != clave) {
+            celda = (celda + 1) & mascara;
+        }
+        return celda;
+    }
+
+    /**
+     * Vacia una celda desplazando hacia atras las claves siguientes del mismo grupo,
+     * para que las busquedas no se corten en el hueco.
+     */
+    private void borrarCelda(int celda) {
+        int hueco = celda;
+        int actual = celda;
+        while (true) {
+            actual = (actual + 1) & mascara;
+            int nodo = tabla[actual];
+            if (nodo == VACIO) {
+                break;
+            }
+            int ideal = dispersar(claves[nodo]) & mascara;
+            // La clave puede ocupar el hueco si su celda ideal no esta entre el hueco (excluido) y su celda actual
+            boolean entre = hueco <= actual
+                    ? hueco < ideal && ideal <= actual
+                    : hueco < ideal || ideal <= actual;
+            if (!entre) {
+                tabla[hueco] = nodo;
+                hueco = actual;
+            }
+        }
+        tabla[hueco] = VACIO;
+    }
+
+    private static int dispersar(int clave) {
+        int h = clave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void moverAlPrincipio(int nodo) {
+        if (nodo != cabeza) {
+            desenlazar(nodo);
+            enlazarAlPrincipio(nodo);
+        }
+    }
+
+    private void enlazarAlPrincipio(int nodo) {
+        anterior[nodo] = VACIO;
+        siguiente[nodo] = cabeza;
+        if (cabeza != VACIO) {
+            anterior[cabeza] = nodo;
+        }
+        cabeza = nodo;
+        if (cola == VACIO) {
+            cola = nodo;
+        }
+    }
+
+    private void desenlazar(int nodo) {
+        if (anterior[nodo] != VACIO) {
+            siguiente[anterior[nodo]] = siguiente[nodo];
+        } else {
+            cabeza = siguiente[nodo];
+        }
+        if (siguiente[nodo] != VACIO) {
+            anterior[siguiente[nodo]] = anterior[nodo];
+        } else {
+            cola = anterior[nodo];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.eiman.biblioteca.dao;
+
+/**
+ * Utilidades para construir los parametros de las consultas de los DAO.
+ */
+final class Consultas {
+
+    private Consultas() {
+    }
+
+    /**
+     * Escapa los comodines de LIKE para que el texto se compare literalmente.
+     *
+     * @param texto El texto a escapar.
+     * @return El texto con los comodines escapados.
+     */
+    static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Crea el patron LIKE de los valores que empiezan por un texto, que puede resolverse con un indice de la columna.
+     *
+     * @param prefijo El comienzo buscado; se ignoran los espacios de los extremos.
+     * @return El patron para LIKE.
+     */
+    static String prefijoLike(String prefijo) {
+        return escaparLike(prefijo.strip()) + "%";
+    }
+}
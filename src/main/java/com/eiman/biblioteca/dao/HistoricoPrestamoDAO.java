@@ -1,11 +1,14 @@
 package com.eiman.biblioteca.dao;
 
 import com.eiman.biblioteca.models.HistoricoPrestamo;
+import com.eiman.biblioteca.utils.Configuracion;
 import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.UnitOfWork;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,6 +19,19 @@ import java.util.logging.Logger;
 public class HistoricoPrestamoDAO {
     private static final Logger logger = Logger.getLogger(HistoricoPrestamoDAO.class.getName());
     private static final String TABLE_NAME = "Historico_prestamo";
+    /**
+     * Filas que el driver trae en cada viaje al recorrer el historial en streaming.
+     */
+    private static final int FILAS_POR_LECTURA = Configuracion.getInt("db.streamFetchSize", 1000);
+    /**
+     * Consulta del historial combinada con el nombre del alumno y el título y estado del libro.
+     * Se usa LEFT JOIN para no perder los registros anonimizados, cuyo alumno ya no existe.
+     */
+    private static final String SELECT_DETALLE = "SELECT h.id_prestamo, h.dni_alumno, h.codigo_libro, h.fecha_prestamo, " +
+            "h.fecha_devolucion, CONCAT_WS(' ', a.nombre, a.apellido1, a.apellido2) AS nombre_alumno, l.titulo, l.estado " +
+            "FROM Historico_prestamo h " +
+            "LEFT JOIN Alumno a ON a.dni = h.dni_alumno " +
+            "LEFT JOIN Libro l ON l.codigo = h.codigo_libro";
 
     /**
      * Inserta un nuevo registro de histórico de préstamo en la base de datos.
@@ -24,11 +40,26 @@ public class HistoricoPrestamoDAO {
      */
     public void insertarHistoricoPrestamo(HistoricoPrestamo historicoPrestamo) {
         logger.info("Insertando un nuevo registro en el historial de préstamos.");
-        String sql = "INSERT INTO Historico_prestamo (id_prestamo, dni_alumno, codigo_libro, fecha_prestamo, fecha_devolucion) VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            insertarHistoricoPrestamo(connection, historicoPrestamo);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al insertar el registro de histórico de préstamo.", e);
+        }
+    }
 
+    /**
+     * Inserta un nuevo registro de histórico de préstamo usando la conexión indicada,
+     * para poder hacerlo dentro de una transacción.
+     *
+     * @param connection        La conexión a usar.
+     * @param historicoPrestamo El registro de histórico de préstamo a insertar.
+     * @throws SQLException Si ocurre un error al insertar.
+     */
+    public void insertarHistoricoPrestamo(Connection connection, HistoricoPrestamo historicoPrestamo) throws SQLException {
+        String sql = "INSERT INTO Historico_prestamo (id_prestamo, dni_alumno, codigo_libro, fecha_prestamo, fecha_devolucion) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, historicoPrestamo.getIdPrestamo());
             stmt.setString(2, historicoPrestamo.getDniAlumno());
             stmt.setInt(3, historicoPrestamo.getCodigoLibro());
@@ -36,36 +67,58 @@ public class HistoricoPrestamoDAO {
             stmt.setTimestamp(5, Timestamp.valueOf(historicoPrestamo.getFechaDevolucion()));
 
             stmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
             logger.info("Registro de histórico de préstamo insertado exitosamente.");
+        }
+    }
 
+    /**
+     * Registra la devolución de un préstamo en una única transacción: inserta el registro en el historial,
+     * elimina el préstamo activo y actualiza el estado del libro devuelto.
+     *
+     * @param historico   El registro del historial con la fecha de devolución.
+     * @param nuevoEstado El estado en el que se devuelve el libro.
+     * @return true si la devolución se registró, false si ocurrió un error y no se aplicó ningún cambio.
+     */
+    public boolean registrarDevolucion(HistoricoPrestamo historico, String nuevoEstado) {
+        logger.info("Registrando la devolución del préstamo con ID: " + historico.getIdPrestamo());
+        PrestamoDAO prestamoDAO = new PrestamoDAO();
+        LibroDAO libroDAO = new LibroDAO();
+
+        try {
+            return UnitOfWork.ejecutar(connection -> {
+                insertarHistoricoPrestamo(connection, historico);
+                prestamoDAO.eliminarPrestamo(connection, historico.getIdPrestamo());
+                libroDAO.actualizarEstado(connection, historico.getCodigoLibro(), nuevoEstado);
+                return true;
+            });
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al insertar el registro de histórico de préstamo.", e);
+            logger.log(Level.SEVERE, "Error al registrar la devolución del préstamo con ID: " + historico.getIdPrestamo(), e);
+            return false;
+        } finally {
+            LibroDAO.invalidarCache(historico.getCodigoLibro());
+            Tabla.marcarModificadas(Tabla.HISTORICO_PRESTAMO, Tabla.PRESTAMO, Tabla.LIBRO);
         }
     }
 
     /**
      * Obtiene todos los registros del historial de préstamos de la base de datos.
+     * Carga el historial entero en memoria; para exportarlo o procesarlo completo se usa {@link #recorrerHistoricos}.
      *
      * @return Una lista con todos los registros del historial de préstamos.
      */
     public List<HistoricoPrestamo> obtenerTodosLosHistoricos() {
         logger.info("Obteniendo todos los registros del historial de préstamos.");
         List<HistoricoPrestamo> historicos = new ArrayList<>();
-        String sql = "SELECT * FROM " + TABLE_NAME;
+        String sql = "SELECT " + Mapeadores.COLUMNAS_HISTORICO + " FROM " + TABLE_NAME;
 
         try (Connection connection = DatabaseConnection.getConnection();
              Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            MapeadorFila<HistoricoPrestamo> mapeador = Mapeadores.historico(rs);
             while (rs.next()) {
-                HistoricoPrestamo historicoPrestamo = new HistoricoPrestamo(
-                        rs.getInt("id_prestamo"),
-                        rs.getString("dni_alumno"),
-                        rs.getInt("codigo_libro"),
-                        rs.getTimestamp("fecha_prestamo").toLocalDateTime(),
-                        rs.getTimestamp("fecha_devolucion") != null ? rs.getTimestamp("fecha_devolucion").toLocalDateTime() : null
-                );
-                historicos.add(historicoPrestamo);
+                historicos.add(mapeador.mapear(rs));
             }
             logger.info("Total de registros obtenidos: " + historicos.size());
 
@@ -75,6 +128,76 @@ public class HistoricoPrestamoDAO {
         return historicos;
     }
 
+    /**
+     * Recorre todo el historial de préstamos, ordenado por id, entregando cada registro al visitante
+     * según se lee. Se usa un cursor de solo avance y solo lectura con un tamaño de lectura acotado
+     * ({@code db.streamFetchSize}), de modo que el driver no guarda el resultado completo en memoria
+     * y el consumo es constante sea cual sea el tamaño del historial.
+     * Cada registro incluye el nombre del alumno y el título y estado del libro.
+     * <p>
+     * Mientras dura el recorrido la conexión queda ocupada con el resultado, así que el visitante
+     * no debe guardar los registros ni lanzar consultas largas por cada uno.
+     *
+     * @param visitante Acción que recibe cada registro del historial.
+     * @return El número de registros recorridos.
+     * @throws SQLException Si falla la consulta o la lectura, para no dar por bueno un recorrido incompleto.
+     */
+    public long recorrerHistoricos(Consumer<HistoricoPrestamo> visitante) throws SQLException {
+        logger.info("Recorriendo el historial de préstamos en bloques de " + FILAS_POR_LECTURA + " filas.");
+        String sql = SELECT_DETALLE + " ORDER BY h.id_prestamo";
+        long total = 0;
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(FILAS_POR_LECTURA);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<HistoricoPrestamo> mapeador = Mapeadores.historico(rs);
+                while (rs.next()) {
+                    visitante.accept(mapeador.mapear(rs));
+                    total++;
+                }
+            }
+        }
+        logger.info("Registros del historial recorridos: " + total);
+        return total;
+    }
+
+    /**
+     * Obtiene una página del historial de préstamos ordenada por id usando paginación por clave,
+     * para no tener que cargar en memoria un historial que crece sin límite.
+     * Cada registro incluye el nombre del alumno y el título y estado del libro.
+     *
+     * @param cursor El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamaño El número máximo de registros de la página.
+     * @return La página de registros con el cursor de la siguiente.
+     */
+    public Pagina<HistoricoPrestamo> obtenerPaginaHistoricos(String cursor, int tamaño) {
+        logger.info("Obteniendo página del historial de préstamos desde el cursor: " + cursor);
+        List<HistoricoPrestamo> historicos = new ArrayList<>();
+        String sql = SELECT_DETALLE
+                + (cursor == null ? "" : " WHERE h.id_prestamo > ?") + " ORDER BY h.id_prestamo LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (cursor != null) {
+                stmt.setInt(i++, Integer.parseInt(cursor));
+            }
+            stmt.setInt(i, tamaño + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<HistoricoPrestamo> mapeador = Mapeadores.historico(rs);
+                while (rs.next()) {
+                    historicos.add(mapeador.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener la página del historial de préstamos.", e);
+        }
+        return Pagina.de(historicos, tamaño, HistoricoPrestamo::getIdPrestamo);
+    }
+
     /**
      * Actualiza la fecha de devolución de un registro del historial de préstamos.
      *
@@ -82,18 +205,59 @@ public class HistoricoPrestamoDAO {
      */
     public void actualizarHistoricoPrestamo(HistoricoPrestamo historico) {
         logger.info("Actualizando la fecha de devolución en el historial de préstamos para el ID: " + historico.getIdPrestamo());
-        String sql = "UPDATE Historico_prestamo SET fecha_devolucion = ? WHERE id_prestamo = ?";
 
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            actualizarHistoricoPrestamo(connection, historico);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al actualizar la fecha de devolución en el historial de préstamos.", e);
+        }
+    }
 
+    /**
+     * Actualiza la fecha de devolución de un registro del historial usando la conexión indicada.
+     *
+     * @param connection La conexión a usar.
+     * @param historico  El registro del historial de préstamo con la fecha de devolución actualizada.
+     * @throws SQLException Si ocurre un error al actualizar.
+     */
+    public void actualizarHistoricoPrestamo(Connection connection, HistoricoPrestamo historico) throws SQLException {
+        String sql = "UPDATE Historico_prestamo SET fecha_devolucion = ? WHERE id_prestamo = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setTimestamp(1, Timestamp.valueOf(historico.getFechaDevolucion()));
             stmt.setInt(2, historico.getIdPrestamo());
             stmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
             logger.info("Registro actualizado correctamente.");
+        }
+    }
 
+    /**
+     * Actualiza en una única transacción la fecha de devolución de un registro del historial
+     * y, si se indica, el estado del libro devuelto.
+     *
+     * @param historico   El registro del historial con la fecha de devolución actualizada.
+     * @param nuevoEstado El nuevo estado del libro, o null para no modificarlo.
+     * @return true si los cambios se guardaron, false si ocurrió un error y no se aplicó ningún cambio.
+     */
+    public boolean actualizarDevolucion(HistoricoPrestamo historico, String nuevoEstado) {
+        logger.info("Actualizando la devolución del préstamo con ID: " + historico.getIdPrestamo());
+        LibroDAO libroDAO = new LibroDAO();
+
+        try {
+            return UnitOfWork.ejecutar(connection -> {
+                if (nuevoEstado != null) {
+                    libroDAO.actualizarEstado(connection, historico.getCodigoLibro(), nuevoEstado);
+                }
+                actualizarHistoricoPrestamo(connection, historico);
+                return true;
+            });
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al actualizar la fecha de devolución en el historial de préstamos.", e);
+            logger.log(Level.SEVERE, "Error al actualizar la devolución del préstamo con ID: " + historico.getIdPrestamo(), e);
+            return false;
+        } finally {
+            LibroDAO.invalidarCache(historico.getCodigoLibro());
+            Tabla.marcarModificadas(Tabla.HISTORICO_PRESTAMO, Tabla.PRESTAMO, Tabla.LIBRO);
         }
     }
 
@@ -111,6 +275,7 @@ public class HistoricoPrestamoDAO {
 
             stmt.setString(1, dni);
             int filasAfectadas = stmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
 
             if (filasAfectadas == 0) {
                 logger.warning("No se encontraron registros en Historico_prestamo con dni_alumno: " + dni);
@@ -138,6 +303,7 @@ public class HistoricoPrestamoDAO {
 
             pstmt.setInt(1, idPrestamo);
             int affectedRows = pstmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
 
             if (affectedRows > 0) {
                 logger.info("Registro eliminado exitosamente con ID: " + idPrestamo);
@@ -159,17 +325,29 @@ public class HistoricoPrestamoDAO {
      */
     public void eliminarPorDni(String dni) {
         logger.info("Eliminando registros del historial de préstamos para el DNI: " + dni);
-        String sql = "DELETE FROM Historico_prestamo WHERE dni_alumno = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            eliminarPorDni(conn, dni);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar registros del historial de préstamos por DNI.", e);
+        }
+    }
 
+    /**
+     * Elimina registros del historial de préstamos por DNI de alumno usando la conexión indicada.
+     *
+     * @param conn La conexión a usar.
+     * @param dni  El DNI del alumno cuyos registros deben ser eliminados.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public void eliminarPorDni(Connection conn, String dni) throws SQLException {
+        String sql = "DELETE FROM Historico_prestamo WHERE dni_alumno = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, dni);
             int filasAfectadas = pstmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
             logger.info("Registros eliminados: " + filasAfectadas);
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al eliminar registros del historial de préstamos por DNI.", e);
         }
     }
 
@@ -180,17 +358,29 @@ public class HistoricoPrestamoDAO {
      */
     public void eliminarPorCodigoLibro(int codigoLibro) {
         logger.info("Eliminando registros del historial de préstamos para el código de libro: " + codigoLibro);
-        String sql = "DELETE FROM Historico_prestamo WHERE codigo_libro = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            eliminarPorCodigoLibro(conn, codigoLibro);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar registros del historial de préstamos por código de libro.", e);
+        }
+    }
+
+    /**
+     * Elimina registros del historial de préstamos por código de libro usando la conexión indicada.
+     *
+     * @param conn        La conexión a usar.
+     * @param codigoLibro El código del libro cuyos registros deben ser eliminados.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public void eliminarPorCodigoLibro(Connection conn, int codigoLibro) throws SQLException {
+        String sql = "DELETE FROM Historico_prestamo WHERE codigo_libro = ?";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, codigoLibro);
             int filasAfectadas = pstmt.executeUpdate();
+            Tabla.HISTORICO_PRESTAMO.marcarModificada();
             logger.info("Registros eliminados: " + filasAfectadas);
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al eliminar registros del historial de préstamos por código de libro.", e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package com.eiman.biblioteca.dao;
+
+import com.eiman.biblioteca.utils.IndiceBusqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice en memoria de trigramas para buscar elementos por un texto aproximado, tolerando erratas.
+ * Cada palabra del texto de un elemento se descompone en grupos de tres caracteres, con dos espacios
+ * delante y uno detras ("  g", " ga", "gar", "arc", ... "ia "), y un elemento es candidato en la medida
+ * en que comparte los trigramas de la busqueda: "garica lopz" sigue encontrando a "García López".
+ * <p>
+ * Los elementos se guardan en posiciones numeradas y cada trigrama, codificado como un entero,
+ * tiene un array de posiciones; la busqueda solo recorre los arrays de los trigramas buscados
+ * y cuenta las coincidencias en otro array, sin crear objetos por candidato. Al quitar o cambiar
+ * un elemento su posicion queda libre y se descarta al buscar; cuando las posiciones libres
+ * son muchas, los arrays se compactan.
+ * <p>
+ * Las operaciones estan sincronizadas, porque el indice se comparte entre todos los hilos del DAO.
+ *
+ * @param <T> Tipo de los elementos.
+ */
+class IndiceTrigramas<T> {
+    /**
+     * Numero de simbolos distintos de un trigrama: el espacio, las letras a-z y las cifras 0-9.
+     */
+    private static final int SIMBOLOS = 37;
+    private static final int TRIGRAMAS = SIMBOLOS * SIMBOLOS * SIMBOLOS;
+
+    /** Posiciones de los elementos que contienen cada trigrama, por codigo de trigrama. */
+    private final int[][] listas = new int[TRIGRAMAS][];
+    private final int[] tamaños = new int[TRIGRAMAS];
+    /** Trigramas distintos de cada posicion, o 0 si la posicion esta libre. */
+    private int[] numTrigramas = new int[1024];
+    private Object[] valores = new Object[1024];
+    private String[] claves = new String[1024];
+    private int posiciones;
+    private int libres;
+    private final Map<String, Integer> posicionPorClave = new HashMap<>();
+    /** Coincidencias de cada posicion durante una busqueda; se deja a cero al terminar. */
+    private int[] coincidencias = new int[1024];
+
+    /**
+     * Añade un elemento o reemplaza el que tenia la misma clave.
+     *
+     * @param clave La clave del elemento.
+     * @param texto El texto por el que se busca el elemento.
+     * @param valor El elemento.
+     */
+    synchronized void guardar(String clave, String texto, T valor) {
+        quitar(clave);
+        int[] trigramas = trigramas(texto);
+        if (posiciones == numTrigramas.length) {
+            int capacidad = posiciones * 2;
+            numTrigramas = Arrays.copyOf(numTrigramas, capacidad);
+            valores = Arrays.copyOf(valores, capacidad);
+            claves = Arrays.copyOf(claves, capacidad);
+            coincidencias = Arrays.copyOf(coincidencias, capacidad);
+        }
+        int posicion = posiciones++;
+        numTrigramas[posicion] = Math.max(trigramas.length, 1);
+        valores[posicion] = valor;
+        claves[posicion] = clave;
+        posicionPorClave.put(clave, posicion);
+        for (int trigrama : trigramas) {
+            int[] lista = listas[trigrama];
+            if (lista == null) {
+                lista = listas[trigrama] = new int[4];
+            } else if (tamaños[trigrama] == lista.length) {
+                lista = listas[trigrama] = Arrays.copyOf(lista, lista.length * 2);
+            }
+            lista[tamaños[trigrama]++] = posicion;
+        }
+    }
+
+    /**
+     * Quita un elemento; si no esta, no hace nada.
+     *
+     * @param clave La clave del elemento.
+     */
+    synchronized void quitar(String clave) {
+        Integer posicion = posicionPorClave.remove(clave);
+        if (posicion == null) {
+            return;
+        }
+        numTrigramas[posicion] = 0;
+        valores[posicion] = null;
+        claves[posicion] = null;
+        if (++libres > 1024 && libres > posiciones / 4) {
+            compactar();
+        }
+    }
+
+    /**
+     * @return El numero de elementos del indice.
+     */
+    synchronized int tamaño() {
+        return posicionPorClave.size();
+    }
+
+    /**
+     * Busca los elementos mas parecidos a un texto. Se ordenan por el numero de trigramas de la busqueda
+     * que contienen y, a igualdad, por el menor numero de trigramas propios, de modo que un texto
+     * corto que coincide entero va antes que uno largo que lo contiene.
+     *
+     * @param consulta El texto buscado.
+     * @param maximo   El numero maximo de elementos a devolver.
+     * @param umbral   La fraccion minima de los trigramas de la busqueda que debe tener un elemento, entre 0 y 1.
+     * @return Los elementos encontrados, los mas parecidos primero.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<T> buscar(String consulta, int maximo, double umbral) {
+        int[] buscados = trigramas(consulta);
+        List<T> resultado = new ArrayList<>();
+        if (buscados.length == 0 || maximo <= 0) {
+            return resultado;
+        }
+        int minimo = Math.max(1, (int) Math.ceil(buscados.length * umbral));
+        int[] tocadas = new int[64];
+        int numTocadas = 0;
+        for (int trigrama : buscados) {
+            int[] lista = listas[trigrama];
+            for (int i = 0; i < tamaños[trigrama]; i++) {
+                int posicion = lista[i];
+                if (coincidencias[posicion]++ == 0) {
+                    if (numTocadas == tocadas.length) {
+                        tocadas = Arrays.copyOf(tocadas, numTocadas * 2);
+                    }
+                    tocadas[numTocadas++] = posicion;
+                }
+            }
+        }
+
+        // Los mejores se mantienen ordenados en arrays del tamaño maximo, insertando cada candidato en su sitio
+        int[] mejores = new int[maximo];
+        int[] comunesMejores = new int[maximo];
+        int numMejores = 0;
+        for (int t = 0; t < numTocadas; t++) {
+            int posicion = tocadas[t];
+            int comunes = coincidencias[posicion];
+            coincidencias[posicion] = 0;
+            if (comunes < minimo || numTrigramas[posicion] == 0) {
+                continue;
+            }
+            if (numMejores == maximo
+                    && !mejor(comunes, posicion, comunesMejores[maximo - 1], mejores[maximo - 1])) {
+                continue;
+            }
+            int i = numMejores < maximo ? numMejores++ : maximo - 1;
+            while (i > 0 && mejor(comunes, posicion, comunesMejores[i - 1], mejores[i - 1])) {
+                mejores[i] = mejores[i - 1];
+                comunesMejores[i] = comunesMejores[i - 1];
+                i--;
+            }
+            mejores[i] = posicion;
+            comunesMejores[i] = comunes;
+        }
+        for (int i = 0; i < numMejores; i++) {
+            resultado.add((T) valores[mejores[i]]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Indica si una posicion candidata va antes que otra ya elegida.
+     */
+    private boolean mejor(int comunesCandidata, int candidata, int comunesElegida, int elegida) {
+        if (comunesCandidata != comunesElegida) {
+            return comunesCandidata > comunesElegida;
+        }
+        return numTrigramas[candidata] < numTrigramas[elegida];
+    }
+
+    /**
+     * Reconstruye los arrays sin las posiciones libres.
+     */
+    private void compactar() {
+        int[] nuevaPosicion = new int[posiciones];
+        int siguiente = 0;
+        for (int posicion = 0; posicion < posiciones; posicion++) {
+            if (numTrigramas[posicion] == 0) {
+                nuevaPosicion[posicion] = -1;
+                continue;
+            }
+            nuevaPosicion[posicion] = siguiente;
+            numTrigramas[siguiente] = numTrigramas[posicion];
+            valores[siguiente] = valores[posicion];
+            claves[siguiente] = claves[posicion];
+            posicionPorClave.put(claves[siguiente], siguiente);
+            siguiente++;
+        }
+        Arrays.fill(numTrigramas, siguiente, posiciones, 0);
+        Arrays.fill(valores, siguiente, posiciones, null);
+        Arrays.fill(claves, siguiente, posiciones, null);
+        for (int trigrama = 0; trigrama < TRIGRAMAS; trigrama++) {
+            int[] lista = listas[trigrama];
+            int tamaño = 0;
+            for (int i = 0; i < tamaños[trigrama]; i++) {
+                int posicion = nuevaPosicion[lista[i]];
+                if (posicion >= 0) {
+                    lista[tamaño++] = posicion;
+                }
+            }
+            tamaños[trigrama] = tamaño;
+        }
+        posiciones = siguiente;
+        libres = 0;
+    }
+
+    /**
+     * Obtiene los codigos de los trigramas distintos de un texto, sin acentos ni mayusculas.
+     */
+    static int[] trigramas(String texto) {
+        String normalizado = IndiceBusqueda.normalizar(texto);
+        int[] resultado = new int[normalizado.length() * 2 + 4];
+        int total = 0;
+        // a y b son los dos simbolos anteriores; al empezar una palabra valen 0, el espacio de relleno
+        int a = 0;
+        int b = 0;
+        boolean enPalabra = false;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            int c = i < normalizado.length() ? simbolo(normalizado.charAt(i)) : 0;
+            if (c == 0) {
+                if (enPalabra) {
+                    resultado[total++] = (a * SIMBOLOS + b) * SIMBOLOS;
+                    enPalabra = false;
+                    a = 0;
+                    b = 0;
+                }
+                continue;
+            }
+            resultado[total++] = (a * SIMBOLOS + b) * SIMBOLOS + c;
+            a = b;
+            b = c;
+            enPalabra = true;
+        }
+        int[] trigramas = Arrays.copyOf(resultado, total);
+        Arrays.sort(trigramas);
+        int distintos = 0;
+        for (int i = 0; i < trigramas.length; i++) {
+            if (i == 0 || trigramas[i] != trigramas[i - 1]) {
+                trigramas[distintos++] = trigramas[i];
+            }
+        }
+        return Arrays.copyOf(trigramas, distintos);
+    }
+
+    /**
+     * Codigo de un caracter dentro de un trigrama, o 0 si separa palabras.
+     */
+    private static int simbolo(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+}
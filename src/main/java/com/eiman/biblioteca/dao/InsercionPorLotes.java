@@ -0,0 +1,96 @@
+package com.eiman.biblioteca.dao;
+
+import com.eiman.biblioteca.utils.Configuracion;
+import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.UnitOfWork;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Insercion de listas de elementos con {@code addBatch}/{@code executeBatch}, en bloques del tamaño configurado.
+ * Cada bloque se envia en una sola transaccion; si falla, se deshace y se reintenta fila a fila
+ * para insertar las filas validas y saber exactamente cuales fallan.
+ */
+class InsercionPorLotes {
+    private static final Logger logger = Logger.getLogger(InsercionPorLotes.class.getName());
+
+    /**
+     * Numero de filas por defecto de cada bloque, configurable con {@code db.batchSize}.
+     */
+    static final int TAMAÑO_LOTE = Configuracion.getInt("db.batchSize", 500);
+
+    /**
+     * Asigna los parametros de la sentencia de insercion para un elemento.
+     *
+     * @param <T> Tipo del elemento.
+     */
+    @FunctionalInterface
+    interface Asignador<T> {
+        void asignar(PreparedStatement stmt, T elemento) throws SQLException;
+    }
+
+    private InsercionPorLotes() {
+    }
+
+    /**
+     * Inserta los elementos en bloques.
+     *
+     * @param sql        Sentencia INSERT con los parametros de un elemento.
+     * @param elementos  Los elementos a insertar.
+     * @param tamañoLote Numero de filas de cada bloque.
+     * @param asignador  Asigna los parametros de cada elemento.
+     * @param <T>        Tipo de los elementos.
+     * @return El numero de filas insertadas y los errores por posicion.
+     */
+    static <T> ResultadoLote insertar(String sql, List<T> elementos, int tamañoLote, Asignador<T> asignador) {
+        ResultadoLote resultado = new ResultadoLote();
+        int tamaño = Math.max(1, tamañoLote);
+        for (int inicio = 0; inicio < elementos.size(); inicio += tamaño) {
+            List<T> bloque = elementos.subList(inicio, Math.min(inicio + tamaño, elementos.size()));
+            try {
+                UnitOfWork.ejecutar(connection -> {
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        for (T elemento : bloque) {
+                            asignador.asignar(stmt, elemento);
+                            stmt.addBatch();
+                        }
+                        return stmt.executeBatch();
+                    }
+                });
+                resultado.sumarInsertados(bloque.size());
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Falló el bloque que empieza en la fila " + inicio + ", se inserta fila a fila.", e);
+                insertarUnoAUno(sql, bloque, inicio, asignador, resultado);
+            }
+        }
+        logger.info("Inserción por lotes terminada: " + resultado.getInsertados() + " filas insertadas, "
+                + resultado.getErrores().size() + " con errores.");
+        return resultado;
+    }
+
+    private static <T> void insertarUnoAUno(String sql, List<T> bloque, int desplazamiento,
+                                            Asignador<T> asignador, ResultadoLote resultado) {
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bloque.size(); i++) {
+                try {
+                    asignador.asignar(stmt, bloque.get(i));
+                    stmt.executeUpdate();
+                    resultado.sumarInsertados(1);
+                } catch (SQLException e) {
+                    resultado.añadirError(desplazamiento + i, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "No se pudo obtener una conexión para insertar fila a fila.", e);
+            for (int i = 0; i < bloque.size(); i++) {
+                resultado.añadirError(desplazamiento + i, e.getMessage());
+            }
+        }
+    }
+}
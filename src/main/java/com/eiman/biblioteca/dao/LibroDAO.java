@@ -1,13 +1,20 @@
 package com.eiman.biblioteca.dao;
 
 import com.eiman.biblioteca.models.Libro;
+import com.eiman.biblioteca.utils.AlmacenPortadas;
+import com.eiman.biblioteca.utils.Configuracion;
 import com.eiman.biblioteca.utils.DatabaseConnection;
+import com.eiman.biblioteca.utils.Portadas;
+import com.eiman.biblioteca.utils.UnitOfWork;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * Clase DAO que gestiona la conexión y operaciones CRUD para la tabla Libro.
@@ -16,44 +23,129 @@ import java.util.logging.Logger;
 public class LibroDAO {
     private static final Logger logger = Logger.getLogger(LibroDAO.class.getName());
     private static final String TABLE_NAME = "Libro";
+    /**
+     * Referencias de cada portada del almacén de portadas ({@link AlmacenPortadas}), por huella.
+     */
+    private static final String TABLA_ALMACEN = "Portada_almacen";
+    private static final int HUELLAS_POR_PURGA = 100;
+    /**
+     * Longitud mínima de las palabras que guarda el índice de texto completo (innodb_ft_min_token_size).
+     * Las palabras más cortas de una búsqueda no se encontrarían y se ignoran.
+     */
+    private static final int LONGITUD_MINIMA_PALABRA = Configuracion.getInt("busqueda.longitudMinima", 3);
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /**
+     * Libros leidos por codigo (sin portada), compartidos por todas las instancias del DAO.
+     * Se guardan y se entregan copias, para que los cambios hechos en un formulario
+     * no lleguen a la cache hasta que se guardan en la base de datos.
+     */
+    private static final CacheLRUEntera<Libro> cache = new CacheLRUEntera<>(Configuracion.getInt("cache.libros.max", 1000));
 
     /**
-     * Inserta un nuevo libro en la base de datos.
+     * Inserta un nuevo libro en la base de datos y le asigna el código generado por la base de datos.
+     * Si el almacén de portadas está activo, la portada se guarda en él y la fila solo lleva su huella.
      *
      * @param libro El libro a insertar.
+     * @return El código generado para el libro, o 0 si no se pudo insertar.
      */
-    public void insertarLibro(Libro libro) {
+    public int insertarLibro(Libro libro) {
         logger.info("Intentando insertar un nuevo libro: " + libro.getTitulo());
-        String sql = "INSERT INTO " + TABLE_NAME + " (titulo, autor, editorial, estado, baja, portada) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO " + TABLE_NAME + " (titulo, autor, editorial, estado, baja, portada, portada_hash) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        byte[] portada = libro.getPortada();
+        String huella = Portadas.huella(portada);
+        boolean externa = portada != null && AlmacenPortadas.activo();
+        List<String> guardadas = new ArrayList<>();
 
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try {
+            return UnitOfWork.ejecutar(connection -> {
+                if (externa) {
+                    referenciarPortada(connection, huella, portada, guardadas);
+                }
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, libro.getTitulo());
+                    stmt.setString(2, libro.getAutor());
+                    stmt.setString(3, libro.getEditorial());
+                    stmt.setString(4, libro.getEstado());
+                    stmt.setInt(5, libro.getBaja());
+                    stmt.setBytes(6, externa ? null : portada);
+                    stmt.setString(7, huella);
+                    stmt.executeUpdate();
+
+                    try (ResultSet claves = stmt.getGeneratedKeys()) {
+                        if (!claves.next()) {
+                            throw new SQLException("La base de datos no devolvió el código del libro insertado.");
+                        }
+                        libro.setCodigo(claves.getInt(1));
+                        libro.setPortadaHash(huella);
+                    }
+                }
+                logger.info("Libro insertado exitosamente con código " + libro.getCodigo() + ": " + libro.getTitulo());
+                return libro.getCodigo();
+            });
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al insertar el libro: " + libro.getTitulo(), e);
+            descartarPortadas(guardadas);
+        } finally {
+            Tabla.LIBRO.marcarModificada();
+        }
+        return 0;
+    }
+
+    /**
+     * Inserta varios libros enviando las inserciones por lotes, en bloques de {@code db.batchSize} filas.
+     *
+     * @param libros Los libros a insertar.
+     * @return El número de libros insertados y el error de cada libro que falló, por su posición en la lista.
+     */
+    public ResultadoLote insertarLibros(List<Libro> libros) {
+        return insertarLibros(libros, InsercionPorLotes.TAMAÑO_LOTE);
+    }
 
+    /**
+     * Inserta varios libros enviando las inserciones por lotes del tamaño indicado.
+     * Las portadas de los lotes se guardan siempre en la fila, aunque el almacén de portadas esté activo,
+     * para que un lote reintentado fila a fila no deje referencias de más; se pueden mover después
+     * con {@link #externalizarPortada(int)}.
+     *
+     * @param libros     Los libros a insertar.
+     * @param tamañoLote El número de filas de cada lote.
+     * @return El número de libros insertados y el error de cada libro que falló, por su posición en la lista.
+     */
+    public ResultadoLote insertarLibros(List<Libro> libros, int tamañoLote) {
+        logger.info("Insertando " + libros.size() + " libros por lotes de " + tamañoLote);
+        String sql = "INSERT INTO " + TABLE_NAME + " (titulo, autor, editorial, estado, baja, portada, portada_hash) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        ResultadoLote resultado = InsercionPorLotes.insertar(sql, libros, tamañoLote, (stmt, libro) -> {
             stmt.setString(1, libro.getTitulo());
             stmt.setString(2, libro.getAutor());
             stmt.setString(3, libro.getEditorial());
             stmt.setString(4, libro.getEstado());
             stmt.setInt(5, libro.getBaja());
             stmt.setBytes(6, libro.getPortada());
-            stmt.executeUpdate();
-            logger.info("Libro insertado exitosamente: " + libro.getTitulo());
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al insertar el libro: " + libro.getTitulo(), e);
-        }
+            stmt.setString(7, Portadas.huella(libro.getPortada()));
+        });
+        Tabla.LIBRO.marcarModificada();
+        return resultado;
     }
 
     /**
      * Obtiene un libro de la base de datos utilizando su código.
+     * La portada no se carga; si se necesita se obtiene con {@link #obtenerPortada(int)}.
+     * Los libros ya leidos se sirven desde la cache sin consultar la base de datos.
      *
      * @param codigo El código del libro.
      * @return El libro con el código especificado, o null si no se encuentra.
      */
     public Libro obtenerLibroPorCodigo(int codigo) {
+        Libro cacheado = cache.obtener(codigo);
+        if (cacheado != null) {
+            return copiar(cacheado);
+        }
+
         logger.info("Buscando libro con código: " + codigo);
         Libro libro = null;
-        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE codigo = ?";
+        String sql = "SELECT " + Mapeadores.COLUMNAS_LIBRO + " FROM " + TABLE_NAME + " WHERE codigo = ?";
 
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -62,15 +154,8 @@ public class LibroDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                libro = new Libro(
-                        rs.getInt("codigo"),
-                        rs.getString("titulo"),
-                        rs.getString("autor"),
-                        rs.getString("editorial"),
-                        rs.getString("estado"),
-                        rs.getInt("baja"),
-                        rs.getBytes("portada")
-                );
+                libro = Mapeadores.libro(rs).mapear(rs);
+                cache.guardar(codigo, copiar(libro));
                 logger.info("Libro encontrado: " + libro.getTitulo());
             } else {
                 logger.warning("No se encontró ningún libro con código: " + codigo);
@@ -83,47 +168,222 @@ public class LibroDAO {
     }
 
     /**
-     * Obtiene todos los libros disponibles (que no están dados de baja) de la base de datos.
+     * Obtiene los libros que se pueden prestar: no dados de baja y sin un préstamo abierto.
      *
-     * @return Una lista con todos los libros disponibles.
+     * @return Los libros disponibles para préstamo ordenados por título, sin portada.
      */
-    public List<Libro> obtenerTodosLosLibros() {
-        logger.info("Obteniendo lista de todos los libros disponibles.");
+    public List<Libro> obtenerLibrosDisponibles() {
+        return obtenerLibrosDisponibles(null, 0);
+    }
+
+    /**
+     * Obtiene los libros que se pueden prestar cuyo título empieza por el prefijo indicado.
+     * El filtro de disponibilidad se resuelve en la base de datos con un anti-join contra Prestamo,
+     * apoyado en el índice de la clave ajena codigo_libro, y el del prefijo con el índice del título.
+     *
+     * Como se recorren en el orden del índice, con un límite la consulta se detiene en cuanto lo alcanza,
+     * lo que permite usarla para sugerir libros mientras se escribe.
+     *
+     * @param prefijoTitulo El comienzo del título, o null o vacío para no filtrar por título.
+     * @param limite        El número máximo de libros a devolver, o 0 para devolverlos todos.
+     * @return Los libros disponibles para préstamo ordenados por título, sin portada.
+     */
+    public List<Libro> obtenerLibrosDisponibles(String prefijoTitulo, int limite) {
+        logger.info("Obteniendo libros disponibles para préstamo con el prefijo: " + prefijoTitulo);
         List<Libro> libros = new ArrayList<>();
-        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE baja=0";
+        boolean filtrar = prefijoTitulo != null && !prefijoTitulo.isBlank();
+        String sql = "SELECT " + Mapeadores.COLUMNAS_LIBRO + " FROM " + TABLE_NAME + " l WHERE l.baja = 0" +
+                " AND NOT EXISTS (SELECT 1 FROM Prestamo p WHERE p.codigo_libro = l.codigo)" +
+                (filtrar ? " AND l.titulo LIKE ?" : "") + " ORDER BY l.titulo" + (limite > 0 ? " LIMIT ?" : "");
 
         try (Connection connection = DatabaseConnection.getConnection();
-             Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                Libro libro = new Libro(
-                        rs.getInt("codigo"),
-                        rs.getString("titulo"),
-                        rs.getString("autor"),
-                        rs.getString("editorial"),
-                        rs.getString("estado"),
-                        rs.getInt("baja"),
-                        rs.getBytes("portada")
-                );
-                libros.add(libro);
-            }
-            logger.info("Total de libros obtenidos: " + libros.size());
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (filtrar) {
+                stmt.setString(i++, Consultas.prefijoLike(prefijoTitulo));
+            }
+            if (limite > 0) {
+                stmt.setInt(i, limite);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Libro> mapeador = Mapeadores.libro(rs);
+                while (rs.next()) {
+                    libros.add(mapeador.mapear(rs));
+                }
+            }
+            logger.info("Total de libros disponibles: " + libros.size());
 
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al obtener la lista de libros.", e);
+            logger.log(Level.SEVERE, "Error al obtener los libros disponibles para préstamo.", e);
         }
         return libros;
     }
 
     /**
-     * Actualiza los datos de un libro en la base de datos.
+     * Busca libros no dados de baja por las palabras de su título, autor y editorial, ordenados por relevancia.
+     * Se usa el índice de texto completo IDX_Libro_texto en modo booleano: cada palabra de la búsqueda
+     * es obligatoria y se compara como comienzo de palabra, así que "cerv quij" encuentra
+     * "Don Quijote - Miguel de Cervantes". La intercalación de la tabla ignora acentos y mayúsculas.
+     * Si la búsqueda no tiene ninguna palabra con la longitud mínima del índice, se buscan los títulos
+     * que empiezan por el texto.
+     *
+     * @param consulta El texto buscado.
+     * @param limite   El número máximo de libros a devolver.
+     * @return Los libros encontrados, los más relevantes primero y sin portada.
+     */
+    public List<Libro> buscar(String consulta, int limite) {
+        logger.info("Buscando libros: " + consulta);
+        List<Libro> libros = new ArrayList<>();
+        if (consulta == null || consulta.isBlank()) {
+            return libros;
+        }
+        StringBuilder booleana = new StringBuilder();
+        for (String palabra : SEPARADORES.split(consulta.strip())) {
+            if (palabra.length() >= LONGITUD_MINIMA_PALABRA) {
+                booleana.append(booleana.length() > 0 ? " +" : "+").append(palabra).append('*');
+            }
+        }
+        boolean textoCompleto = booleana.length() > 0;
+        String sql = textoCompleto
+                ? "SELECT " + Mapeadores.COLUMNAS_LIBRO + ", MATCH(titulo, autor, editorial) AGAINST (? IN BOOLEAN MODE) AS relevancia"
+                + " FROM " + TABLE_NAME + " WHERE baja = 0 AND MATCH(titulo, autor, editorial) AGAINST (? IN BOOLEAN MODE)"
+                + " ORDER BY relevancia DESC, titulo LIMIT ?"
+                : "SELECT " + Mapeadores.COLUMNAS_LIBRO + " FROM " + TABLE_NAME
+                + " WHERE baja = 0 AND titulo LIKE ? ORDER BY titulo LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (textoCompleto) {
+                stmt.setString(i++, booleana.toString());
+                stmt.setString(i++, booleana.toString());
+            } else {
+                stmt.setString(i++, Consultas.prefijoLike(consulta));
+            }
+            stmt.setInt(i, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Libro> mapeador = Mapeadores.libro(rs);
+                while (rs.next()) {
+                    libros.add(mapeador.mapear(rs));
+                }
+            }
+            logger.info("Libros encontrados: " + libros.size());
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al buscar libros.", e);
+        }
+        return libros;
+    }
+
+    /**
+     * Obtiene una página de libros disponibles ordenados por código, sin su portada,
+     * usando paginación por clave.
+     *
+     * @param cursor El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamaño El número máximo de libros de la página.
+     * @return La página de libros con el cursor de la siguiente.
+     */
+    public Pagina<Libro> obtenerPaginaLibros(String cursor, int tamaño) {
+        logger.info("Obteniendo página de libros desde el cursor: " + cursor);
+        List<Libro> libros = new ArrayList<>();
+        String sql = "SELECT " + Mapeadores.COLUMNAS_LIBRO + " FROM " + TABLE_NAME + " WHERE baja=0"
+                + (cursor == null ? "" : " AND codigo > ?") + " ORDER BY codigo LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (cursor != null) {
+                stmt.setInt(i++, Integer.parseInt(cursor));
+            }
+            stmt.setInt(i, tamaño + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Libro> mapeador = Mapeadores.libro(rs);
+                while (rs.next()) {
+                    libros.add(mapeador.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener la página de libros.", e);
+        }
+        return Pagina.de(libros, tamaño, Libro::getCodigo);
+    }
+
+    /**
+     * Obtiene, ordenados, los códigos de los libros con portada posteriores a uno dado,
+     * para recorrer las portadas por bloques sin cargarlas todas a la vez.
+     * Incluye tanto las portadas guardadas en la fila como las del almacén de portadas.
+     *
+     * @param despuesDe Se devuelven los códigos mayores que este (0 para empezar).
+     * @param limite    El número máximo de códigos.
+     * @return Los códigos encontrados; la lista está vacía al llegar al final.
+     */
+    public List<Integer> obtenerCodigosConPortada(int despuesDe, int limite) {
+        List<Integer> codigos = new ArrayList<>();
+        String sql = "SELECT codigo FROM " + TABLE_NAME + " WHERE portada_hash IS NOT NULL AND codigo > ? ORDER BY codigo LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            stmt.setInt(1, despuesDe);
+            stmt.setInt(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    codigos.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener los códigos de los libros con portada.", e);
+        }
+        return codigos;
+    }
+
+    /**
+     * Obtiene la portada de un libro leyendo el BLOB como flujo, solo cuando se va a mostrar.
+     * Si la fila solo tiene la huella, la portada se lee del almacén de portadas.
+     *
+     * @param codigo El código del libro.
+     * @return Los bytes de la portada, o null si el libro no tiene portada o no existe.
+     */
+    public byte[] obtenerPortada(int codigo) {
+        logger.info("Cargando portada del libro con código: " + codigo);
+        String sql = "SELECT portada, portada_hash FROM " + TABLE_NAME + " WHERE codigo = ?";
+
+        String huella = null;
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            stmt.setInt(1, codigo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    try (InputStream portada = rs.getBinaryStream(1)) {
+                        if (portada != null) {
+                            return portada.readAllBytes();
+                        }
+                    }
+                    huella = rs.getString(2);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            logger.log(Level.SEVERE, "Error al obtener la portada del libro con código: " + codigo, e);
+            return null;
+        }
+        // El archivo se lee con la conexión ya devuelta al pool
+        return huella != null ? leerDelAlmacen(huella) : null;
+    }
+
+    /**
+     * Actualiza los datos de un libro en la base de datos, salvo la portada.
+     * La portada se modifica por separado con {@link #actualizarPortada(int, byte[])},
+     * ya que los libros obtenidos de los listados no la tienen cargada.
      *
      * @param libro El libro con los datos actualizados.
+     * @return true si el libro se actualizó, false si no se encontró o ocurrió un error.
      */
-    public void actualizarLibro(Libro libro) {
+    public boolean actualizarLibro(Libro libro) {
         logger.info("Actualizando información del libro con código: " + libro.getCodigo());
-        String sql = "UPDATE " + TABLE_NAME + " SET titulo = ?, autor = ?, editorial = ?, estado = ?, baja = ?, portada = ? WHERE codigo = ?";
+        String sql = "UPDATE " + TABLE_NAME + " SET titulo = ?, autor = ?, editorial = ?, estado = ?, baja = ? WHERE codigo = ?";
 
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -133,18 +393,206 @@ public class LibroDAO {
             stmt.setString(3, libro.getEditorial());
             stmt.setString(4, libro.getEstado());
             stmt.setInt(5, libro.getBaja());
-            stmt.setBytes(6, libro.getPortada());
-            stmt.setInt(7, libro.getCodigo());
+            stmt.setInt(6, libro.getCodigo());
 
             int rowsUpdated = stmt.executeUpdate();
+            Tabla.LIBRO.marcarModificada();
             if (rowsUpdated > 0) {
+                cache.guardar(libro.getCodigo(), copiar(libro));
                 logger.info("Libro actualizado correctamente con código: " + libro.getCodigo());
-            } else {
-                logger.warning("No se encontró el libro con código: " + libro.getCodigo() + " para actualizar.");
+                return true;
             }
+            cache.invalidar(libro.getCodigo());
+            logger.warning("No se encontró el libro con código: " + libro.getCodigo() + " para actualizar.");
+            return false;
 
         } catch (SQLException e) {
+            cache.invalidar(libro.getCodigo());
             logger.log(Level.SEVERE, "Error al actualizar el libro con código: " + libro.getCodigo(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Reemplaza la portada de un libro junto con su huella.
+     * Con el almacén de portadas activo la nueva portada se guarda en él; si la anterior estaba en el almacén
+     * se le resta una referencia y se borra el archivo cuando ya no la usa ningún libro.
+     *
+     * @param codigo  El código del libro.
+     * @param portada La nueva portada, o null para eliminarla.
+     * @return La huella de la nueva portada, una cadena vacía si se ha eliminado, o null si no se pudo actualizar.
+     */
+    public String actualizarPortada(int codigo, byte[] portada) {
+        logger.info("Actualizando la portada del libro con código: " + codigo);
+        String sql = "UPDATE " + TABLE_NAME + " SET portada = ?, portada_hash = ? WHERE codigo = ?";
+        String huella = Portadas.huella(portada);
+        boolean externa = portada != null && AlmacenPortadas.activo();
+        List<String> guardadas = new ArrayList<>();
+
+        try {
+            boolean liberada = UnitOfWork.ejecutar(connection -> {
+                String anterior = huellaEnAlmacen(connection, codigo);
+                if (externa) {
+                    referenciarPortada(connection, huella, portada, guardadas);
+                }
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setBytes(1, externa ? null : portada);
+                    stmt.setString(2, huella);
+                    stmt.setInt(3, codigo);
+                    stmt.executeUpdate();
+                }
+                return anterior != null && liberarPortada(connection, anterior);
+            });
+            logger.info("Portada actualizada para el libro con código: " + codigo);
+            if (liberada) {
+                purgarPortadas();
+            }
+            return huella == null ? "" : huella;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al actualizar la portada del libro con código: " + codigo, e);
+            descartarPortadas(guardadas);
+            return null;
+        } finally {
+            cache.invalidar(codigo);
+            Tabla.LIBRO.marcarModificada();
+        }
+    }
+
+    /**
+     * Mueve la portada de un libro de su fila al almacén de portadas, dejando en la fila solo la huella.
+     * Los libros cuya portada ya está en el almacén no se modifican.
+     *
+     * @param codigo El código del libro.
+     * @return Los bytes movidos al almacén (0 si no había nada que mover), o -1 si ocurrió un error.
+     */
+    public int externalizarPortada(int codigo) {
+        String sql = "SELECT portada FROM " + TABLE_NAME + " WHERE codigo = ? FOR UPDATE";
+        List<String> guardadas = new ArrayList<>();
+
+        try {
+            return UnitOfWork.ejecutar(connection -> {
+                byte[] portada = null;
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setInt(1, codigo);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            portada = rs.getBytes(1);
+                        }
+                    }
+                }
+                if (portada == null) {
+                    return 0;
+                }
+                // Se recalcula la huella en lugar de fiarse de la columna, ya que da nombre al archivo
+                String huella = Portadas.huella(portada);
+                referenciarPortada(connection, huella, portada, guardadas);
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "UPDATE " + TABLE_NAME + " SET portada = NULL, portada_hash = ? WHERE codigo = ?")) {
+                    stmt.setString(1, huella);
+                    stmt.setInt(2, codigo);
+                    stmt.executeUpdate();
+                }
+                logger.info("Portada del libro con código " + codigo + " movida al almacén: " + huella);
+                return portada.length;
+            });
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al mover al almacén la portada del libro con código: " + codigo, e);
+            descartarPortadas(guardadas);
+            return -1;
+        } finally {
+            cache.invalidar(codigo);
+        }
+    }
+
+    /**
+     * Borra del almacén las portadas que ya no referencia ningún libro.
+     * Cada una se vuelve a comprobar bloqueando su fila de Portada_almacen antes de borrar el archivo:
+     * un libro que la referencie a la vez espera a que termine el borrado y vuelve a escribir el archivo.
+     *
+     * @return El número de portadas borradas.
+     */
+    public int purgarPortadas() {
+        String sql = "SELECT hash FROM " + TABLA_ALMACEN + " WHERE referencias = 0 AND hash > ? ORDER BY hash LIMIT ?";
+        int borradas = 0;
+        String ultima = "";
+        List<String> huellas;
+
+        do {
+            huellas = new ArrayList<>();
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+                stmt.setString(1, ultima);
+                stmt.setInt(2, HUELLAS_POR_PURGA);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        huellas.add(rs.getString(1));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Error al buscar las portadas sin referencias.", e);
+                break;
+            }
+
+            for (String huella : huellas) {
+                try {
+                    if (UnitOfWork.ejecutar(connection -> borrarSiNoSeUsa(connection, huella))) {
+                        borradas++;
+                    }
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "No se pudo borrar del almacén la portada: " + huella, e);
+                }
+                ultima = huella;
+            }
+        } while (huellas.size() == HUELLAS_POR_PURGA);
+
+        if (borradas > 0) {
+            logger.info("Portadas borradas del almacén por no tener referencias: " + borradas);
+        }
+        return borradas;
+    }
+
+    /**
+     * Obtiene el espacio que ocupan las portadas del almacén.
+     *
+     * @return La suma del tamaño de los archivos del almacén, o -1 si ocurrió un error.
+     */
+    public long obtenerBytesAlmacen() {
+        String sql = "SELECT COALESCE(SUM(bytes), 0) FROM " + TABLA_ALMACEN;
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener el tamaño del almacén de portadas.", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Actualiza únicamente el estado de un libro usando la conexión indicada,
+     * sin necesidad de leer antes el libro.
+     *
+     * @param connection La conexión a usar.
+     * @param codigo     El código del libro.
+     * @param estado     El nuevo estado del libro.
+     * @throws SQLException Si ocurre un error al actualizar.
+     */
+    public void actualizarEstado(Connection connection, int codigo, String estado) throws SQLException {
+        String sql = "UPDATE " + TABLE_NAME + " SET estado = ? WHERE codigo = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, estado);
+            stmt.setInt(2, codigo);
+            int rowsUpdated = stmt.executeUpdate();
+            Tabla.LIBRO.marcarModificada();
+            cache.invalidar(codigo);
+            if (rowsUpdated > 0) {
+                logger.info("Estado actualizado para el libro con código: " + codigo);
+            } else {
+                logger.warning("No se encontró el libro con código: " + codigo + " para actualizar su estado.");
+            }
         }
     }
 
@@ -156,25 +604,233 @@ public class LibroDAO {
      */
     public boolean eliminarLibro(int codigo) {
         logger.info("Intentando eliminar el libro con código: " + codigo);
-        String sql = "DELETE FROM Libro WHERE codigo = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try {
+            boolean eliminado = UnitOfWork.ejecutar(connection -> eliminarLibro(connection, codigo));
+            if (eliminado) {
+                purgarPortadas();
+            }
+            return eliminado;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar el libro con código: " + codigo, e);
+            return false;
+        } finally {
+            // Tras confirmar: una lectura concurrente pudo guardar el libro antes del commit
+            cache.invalidar(codigo);
+            Tabla.LIBRO.marcarModificada();
+        }
+    }
 
+    /**
+     * Elimina un libro utilizando su código y la conexión indicada, para poder hacerlo dentro de una transacción.
+     * Si su portada estaba en el almacén se le resta una referencia; el archivo se borra después,
+     * una vez confirmada la transacción, con {@link #purgarPortadas()}.
+     *
+     * @param conn   La conexión a usar.
+     * @param codigo El código del libro a eliminar.
+     * @return true si el libro fue eliminado, false si no se encontró.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public boolean eliminarLibro(Connection conn, int codigo) throws SQLException {
+        String sql = "DELETE FROM Libro WHERE codigo = ?";
+        String huella = huellaEnAlmacen(conn, codigo);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, codigo);
             int affectedRows = pstmt.executeUpdate();
+            Tabla.LIBRO.marcarModificada();
+            cache.invalidar(codigo);
 
             if (affectedRows > 0) {
+                if (huella != null) {
+                    liberarPortada(conn, huella);
+                }
                 logger.info("Libro eliminado exitosamente con código: " + codigo);
                 return true;
             } else {
                 logger.warning("No se encontró el libro con código: " + codigo + " para eliminar.");
                 return false;
             }
+        }
+    }
+
+    /**
+     * Elimina un libro junto con sus préstamos y su historial en una única transacción.
+     * Si el libro no existe o alguna operación falla, no se elimina nada.
+     *
+     * @param codigo El código del libro a eliminar.
+     * @return true si el libro fue eliminado, false si no se encontró o ocurrió un error.
+     */
+    public boolean eliminarLibroConPrestamos(int codigo) {
+        logger.info("Eliminando libro con código: " + codigo + " junto con sus préstamos e historial.");
+        HistoricoPrestamoDAO historicoPrestamoDAO = new HistoricoPrestamoDAO();
+        PrestamoDAO prestamoDAO = new PrestamoDAO();
 
+        try {
+            boolean eliminado = UnitOfWork.ejecutar(connection -> {
+                historicoPrestamoDAO.eliminarPorCodigoLibro(connection, codigo);
+                prestamoDAO.eliminarPorCodigoLibro(connection, codigo);
+                if (!eliminarLibro(connection, codigo)) {
+                    // Nada que confirmar: se deshacen los borrados previos
+                    connection.rollback();
+                    return false;
+                }
+                return true;
+            });
+            if (eliminado) {
+                purgarPortadas();
+            }
+            return eliminado;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error al eliminar el libro con código: " + codigo, e);
             return false;
+        } finally {
+            // Tras confirmar: una lectura concurrente pudo guardar el libro antes del commit
+            cache.invalidar(codigo);
+            Tabla.marcarModificadas(Tabla.LIBRO, Tabla.PRESTAMO, Tabla.HISTORICO_PRESTAMO);
+        }
+    }
+
+    /**
+     * Quita un libro de la cache. Lo usan las transacciones de otros DAO que modifican el libro,
+     * una vez confirmadas, para que ninguna lectura hecha durante la transaccion quede guardada.
+     *
+     * @param codigo El código del libro.
+     */
+    static void invalidarCache(int codigo) {
+        cache.invalidar(codigo);
+    }
+
+    /**
+     * @return Las estadisticas de uso de la cache de libros.
+     */
+    public static String resumenCache() {
+        return cache.resumen();
+    }
+
+    /**
+     * Obtiene, bloqueando la fila del libro, la huella de su portada si está en el almacén
+     * (si la portada está en la fila no hay referencia que liberar).
+     *
+     * @return La huella, o null si el libro no existe, no tiene portada o la tiene en la fila.
+     */
+    private static String huellaEnAlmacen(Connection connection, int codigo) throws SQLException {
+        String sql = "SELECT portada_hash FROM " + TABLE_NAME + " WHERE codigo = ? AND portada IS NULL FOR UPDATE";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, codigo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Suma una referencia a una portada del almacén y guarda su archivo si aún no existe.
+     * La fila de Portada_almacen queda bloqueada hasta el final de la transacción, de modo que
+     * {@link #purgarPortadas()} no puede borrar el archivo entre tanto.
+     * La huella se añade a {@code guardadas} para que, si la transacción se deshace, el archivo se borre
+     * con {@link #descartarPortadas(List)}: sin su fila, la purga no llegaría a encontrarlo.
+     */
+    private static void referenciarPortada(Connection connection, String huella, byte[] portada,
+                                           List<String> guardadas) throws SQLException {
+        String sql = "INSERT INTO " + TABLA_ALMACEN + " (hash, referencias, bytes) VALUES (?, 1, ?) "
+                + "ON DUPLICATE KEY UPDATE referencias = referencias + 1";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, huella);
+            stmt.setInt(2, portada.length);
+            stmt.executeUpdate();
+        }
+        guardadas.add(huella);
+        try {
+            AlmacenPortadas.guardar(huella, portada);
+        } catch (IOException e) {
+            throw new SQLException("No se pudo guardar la portada en el almacén: " + huella, e);
+        }
+    }
+
+    /**
+     * Resta una referencia a una portada del almacén. El archivo no se borra aquí, ya que la transacción
+     * aún puede deshacerse: las portadas que se quedan sin referencias las borra {@link #purgarPortadas()}.
+     *
+     * @return true si la portada se ha quedado sin referencias.
+     */
+    private static boolean liberarPortada(Connection connection, String huella) throws SQLException {
+        String sql = "UPDATE " + TABLA_ALMACEN + " SET referencias = referencias - 1 WHERE hash = ? AND referencias > 0";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, huella);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT referencias FROM " + TABLA_ALMACEN + " WHERE hash = ?")) {
+            stmt.setString(1, huella);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 0;
+            }
         }
     }
+
+    /**
+     * Descarta los archivos guardados en el almacén por una transacción que se ha deshecho.
+     * Cada uno se borra solo si ninguna fila de Portada_almacen lo referencia, ya que otro libro
+     * puede haber guardado la misma portada entre tanto. Los errores solo se registran.
+     */
+    private static void descartarPortadas(List<String> huellas) {
+        for (String huella : huellas) {
+            try {
+                UnitOfWork.ejecutar(connection -> borrarSiNoSeUsa(connection, huella));
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "No se pudo descartar del almacén la portada: " + huella, e);
+            }
+        }
+    }
+
+    /**
+     * Borra el archivo y la fila de una portada del almacén si, con su fila bloqueada, sigue sin referencias.
+     * Si la fila no existe también se borra el archivo, que puede haber quedado de una transacción deshecha;
+     * la lectura bloqueante espera a que termine cualquier transacción que esté insertando la fila.
+     */
+    private static boolean borrarSiNoSeUsa(Connection connection, String huella) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT referencias FROM " + TABLA_ALMACEN + " WHERE hash = ? FOR UPDATE")) {
+            stmt.setString(1, huella);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return false;
+                }
+            }
+        }
+        try {
+            AlmacenPortadas.borrar(huella);
+        } catch (IOException e) {
+            throw new SQLException("No se pudo borrar la portada del almacén: " + huella, e);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM " + TABLA_ALMACEN + " WHERE hash = ?")) {
+            stmt.setString(1, huella);
+            stmt.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Lee una portada del almacén; un archivo que falta o no se puede leer solo se registra,
+     * y el libro se muestra sin portada.
+     */
+    private static byte[] leerDelAlmacen(String huella) {
+        try {
+            return AlmacenPortadas.leer(huella);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "No se pudo leer la portada del almacén: " + huella, e);
+            return null;
+        }
+    }
+
+    private static Libro copiar(Libro libro) {
+        Libro copia = new Libro(libro.getCodigo(), libro.getTitulo(), libro.getAutor(), libro.getEditorial(),
+                libro.getEstado(), libro.getBaja(), null);
+        copia.setPortadaHash(libro.getPortadaHash());
+        return copia;
+    }
 }
@@ -0,0 +1,24 @@
+package com.eiman.biblioteca.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto del modelo.
+ * Los mapeadores de {@link Mapeadores} se crean una vez por ResultSet, con los indices de las columnas
+ * ya resueltos, de forma que cada fila se lee por posicion sin buscar las columnas por nombre.
+ *
+ * @param <T> Tipo del objeto creado.
+ */
+@FunctionalInterface
+interface MapeadorFila<T> {
+
+    /**
+     * Crea el objeto a partir de la fila actual.
+     *
+     * @param rs El ResultSet posicionado en la fila a leer.
+     * @return El objeto creado.
+     * @throws SQLException Si falla la lectura de alguna columna.
+     */
+    T mapear(ResultSet rs) throws SQLException;
+}
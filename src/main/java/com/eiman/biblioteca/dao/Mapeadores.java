@@ -0,0 +1,162 @@
+package com.eiman.biblioteca.dao;
+
+import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.models.HistoricoPrestamo;
+import com.eiman.biblioteca.models.Libro;
+import com.eiman.biblioteca.models.Prestamo;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Listas de columnas y mapeadores de filas de las entidades.
+ * Cada metodo de fabrica resuelve una sola vez los indices de las columnas del ResultSet
+ * y devuelve un {@link MapeadorFila} que lee cada fila por posicion.
+ * Las columnas opcionales (la portada o los datos combinados de alumno y libro) solo se leen si la consulta las incluye.
+ */
+final class Mapeadores {
+
+    /**
+     * Columnas de Alumno.
+     */
+    static final String COLUMNAS_ALUMNO = "dni, nombre, apellido1, apellido2";
+    /**
+     * Columnas de Libro salvo la portada, que se carga bajo demanda; incluye su huella para las miniaturas.
+     */
+    static final String COLUMNAS_LIBRO = "codigo, titulo, autor, editorial, estado, baja, portada_hash";
+    /**
+     * Columnas de Prestamo.
+     */
+    static final String COLUMNAS_PRESTAMO = "id_prestamo, dni_alumno, codigo_libro, fecha_prestamo";
+    /**
+     * Columnas de Historico_prestamo.
+     */
+    static final String COLUMNAS_HISTORICO = "id_prestamo, dni_alumno, codigo_libro, fecha_prestamo, fecha_devolucion";
+
+    private Mapeadores() {
+    }
+
+    /**
+     * @param rs El ResultSet con las columnas de {@link #COLUMNAS_ALUMNO}.
+     * @return El mapeador de alumnos para ese ResultSet.
+     * @throws SQLException Si falta alguna columna.
+     */
+    static MapeadorFila<Alumno> alumno(ResultSet rs) throws SQLException {
+        int dni = rs.findColumn("dni");
+        int nombre = rs.findColumn("nombre");
+        int apellido1 = rs.findColumn("apellido1");
+        int apellido2 = rs.findColumn("apellido2");
+        return fila -> new Alumno(fila.getString(dni), fila.getString(nombre), fila.getString(apellido1), fila.getString(apellido2));
+    }
+
+    /**
+     * @param rs El ResultSet con las columnas de {@link #COLUMNAS_LIBRO}; la portada y su huella son opcionales.
+     * @return El mapeador de libros para ese ResultSet; la portada queda a null si no se ha seleccionado.
+     * @throws SQLException Si falta alguna columna obligatoria.
+     */
+    static MapeadorFila<Libro> libro(ResultSet rs) throws SQLException {
+        int codigo = rs.findColumn("codigo");
+        int titulo = rs.findColumn("titulo");
+        int autor = rs.findColumn("autor");
+        int editorial = rs.findColumn("editorial");
+        int estado = rs.findColumn("estado");
+        int baja = rs.findColumn("baja");
+        int portada = indiceOpcional(rs, "portada");
+        int portadaHash = indiceOpcional(rs, "portada_hash");
+        return fila -> {
+            Libro libro = new Libro(fila.getInt(codigo), fila.getString(titulo), fila.getString(autor),
+                    fila.getString(editorial), fila.getString(estado), fila.getInt(baja),
+                    portada > 0 ? fila.getBytes(portada) : null);
+            if (portadaHash > 0) {
+                libro.setPortadaHash(fila.getString(portadaHash));
+            }
+            return libro;
+        };
+    }
+
+    /**
+     * @param rs El ResultSet con las columnas de {@link #COLUMNAS_PRESTAMO} y, opcionalmente,
+     *           nombre_alumno, titulo y estado de la consulta combinada.
+     * @return El mapeador de prestamos para ese ResultSet.
+     * @throws SQLException Si falta alguna columna obligatoria.
+     */
+    static MapeadorFila<Prestamo> prestamo(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id_prestamo");
+        int dni = rs.findColumn("dni_alumno");
+        int codigo = rs.findColumn("codigo_libro");
+        int fechaPrestamo = rs.findColumn("fecha_prestamo");
+        int nombreAlumno = indiceOpcional(rs, "nombre_alumno");
+        int titulo = indiceOpcional(rs, "titulo");
+        int estado = indiceOpcional(rs, "estado");
+        return fila -> {
+            Prestamo prestamo = new Prestamo(fila.getInt(id), fila.getString(dni), fila.getInt(codigo), fecha(fila, fechaPrestamo));
+            if (nombreAlumno > 0) {
+                prestamo.setNombreAlumno(fila.getString(nombreAlumno));
+            }
+            if (titulo > 0) {
+                prestamo.setTituloLibro(fila.getString(titulo));
+            }
+            if (estado > 0) {
+                prestamo.setEstadoLibro(fila.getString(estado));
+            }
+            return prestamo;
+        };
+    }
+
+    /**
+     * @param rs El ResultSet con las columnas de {@link #COLUMNAS_HISTORICO} y, opcionalmente,
+     *           nombre_alumno, titulo y estado de la consulta combinada.
+     * @return El mapeador de registros del historial para ese ResultSet.
+     * @throws SQLException Si falta alguna columna obligatoria.
+     */
+    static MapeadorFila<HistoricoPrestamo> historico(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id_prestamo");
+        int dni = rs.findColumn("dni_alumno");
+        int codigo = rs.findColumn("codigo_libro");
+        int fechaPrestamo = rs.findColumn("fecha_prestamo");
+        int fechaDevolucion = rs.findColumn("fecha_devolucion");
+        int nombreAlumno = indiceOpcional(rs, "nombre_alumno");
+        int titulo = indiceOpcional(rs, "titulo");
+        int estado = indiceOpcional(rs, "estado");
+        return fila -> {
+            HistoricoPrestamo historico = new HistoricoPrestamo(fila.getInt(id), fila.getString(dni), fila.getInt(codigo),
+                    fecha(fila, fechaPrestamo), fecha(fila, fechaDevolucion));
+            if (nombreAlumno > 0) {
+                historico.setNombreAlumno(fila.getString(nombreAlumno));
+            }
+            if (titulo > 0) {
+                historico.setTituloLibro(fila.getString(titulo));
+            }
+            if (estado > 0) {
+                historico.setEstadoLibro(fila.getString(estado));
+            }
+            return historico;
+        };
+    }
+
+    /**
+     * Convierte una columna DATETIME a LocalDateTime leyendo la columna una sola vez.
+     */
+    static LocalDateTime fecha(ResultSet rs, int indice) throws SQLException {
+        Timestamp valor = rs.getTimestamp(indice);
+        return valor != null ? valor.toLocalDateTime() : null;
+    }
+
+    /**
+     * Busca una columna por su etiqueta en los metadatos.
+     *
+     * @return El indice de la columna, o 0 si la consulta no la incluye.
+     */
+    private static int indiceOpcional(ResultSet rs, String etiqueta) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (etiqueta.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.eiman.biblioteca.dao;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagina de resultados obtenida con paginacion por clave (keyset).
+ * Ademas de los elementos contiene el cursor con el que se pide la pagina siguiente,
+ * que es la clave primaria del ultimo elemento, o null si ya no quedan mas.
+ *
+ * @param <T> Tipo de los elementos de la pagina.
+ */
+public class Pagina<T> {
+    private final List<T> elementos;
+    private final String siguienteCursor;
+
+    /**
+     * Crea una pagina.
+     *
+     * @param elementos       Los elementos de la pagina.
+     * @param siguienteCursor El cursor de la pagina siguiente, o null si es la ultima.
+     */
+    public Pagina(List<T> elementos, String siguienteCursor) {
+        this.elementos = elementos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    /**
+     * Construye la pagina a partir de las filas leidas. Los DAO piden una fila mas del tamaño de pagina:
+     * si llega, hay mas paginas y se descarta, y el cursor pasa a ser la clave de la ultima fila devuelta.
+     *
+     * @param filas  Las filas leidas, como maximo {@code tamaño + 1}.
+     * @param tamaño El tamaño de pagina pedido.
+     * @param clave  Funcion que obtiene la clave primaria de un elemento.
+     * @param <T>    Tipo de los elementos.
+     * @return La pagina con sus elementos y el cursor siguiente.
+     */
+    static <T> Pagina<T> de(List<T> filas, int tamaño, Function<T, ?> clave) {
+        if (filas.size() <= tamaño) {
+            return new Pagina<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, tamaño);
+        return new Pagina<>(elementos, String.valueOf(clave.apply(elementos.get(tamaño - 1))));
+    }
+
+    /**
+     * @return Los elementos de la pagina.
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * @return El cursor para pedir la pagina siguiente, o null si es la ultima.
+     */
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    /**
+     * @return true si hay mas paginas despues de esta.
+     */
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+}
@@ -17,29 +17,49 @@ public class PrestamoDAO {
 
     private static final Logger logger = Logger.getLogger(PrestamoDAO.class.getName());
     private static final String TABLE_NAME = "Prestamo";
+    /**
+     * Consulta de préstamos combinada con el nombre del alumno y el título y estado del libro,
+     * para mostrarlos en tablas y diálogos sin consultar cada alumno y libro por separado.
+     */
+    private static final String SELECT_DETALLE = "SELECT p.id_prestamo, p.dni_alumno, p.codigo_libro, p.fecha_prestamo, " +
+            "CONCAT_WS(' ', a.nombre, a.apellido1, a.apellido2) AS nombre_alumno, l.titulo, l.estado " +
+            "FROM Prestamo p " +
+            "LEFT JOIN Alumno a ON a.dni = p.dni_alumno " +
+            "LEFT JOIN Libro l ON l.codigo = p.codigo_libro";
 
     /**
-     * Inserta un nuevo préstamo en la base de datos.
+     * Inserta un nuevo préstamo en la base de datos y le asigna el ID generado por la base de datos.
      *
      * @param prestamo El préstamo a insertar.
+     * @return El ID generado para el préstamo, o 0 si no se pudo insertar.
      */
-    public void insertarPrestamo(Prestamo prestamo) {
+    public int insertarPrestamo(Prestamo prestamo) {
         logger.info("Intentando insertar un nuevo préstamo para el alumno: " + prestamo.getDniAlumno());
         String sql = "INSERT INTO " + TABLE_NAME + " (dni_alumno, codigo_libro, fecha_prestamo) " +
                 "VALUES (?, ?, ?)";
 
         try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
+             PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, prestamo.getDniAlumno());
             stmt.setInt(2, prestamo.getCodigoLibro());
             stmt.setTimestamp(3, Timestamp.valueOf(prestamo.getFechaPrestamo()));
             stmt.executeUpdate();
-            logger.info("Préstamo insertado con éxito para el alumno: " + prestamo.getDniAlumno());
+            Tabla.PRESTAMO.marcarModificada();
+
+            try (ResultSet claves = stmt.getGeneratedKeys()) {
+                if (claves.next()) {
+                    prestamo.setIdPrestamo(claves.getInt(1));
+                    logger.info("Préstamo " + prestamo.getIdPrestamo() + " insertado con éxito para el alumno: " + prestamo.getDniAlumno());
+                    return prestamo.getIdPrestamo();
+                }
+            }
+            logger.warning("La base de datos no devolvió el ID del préstamo insertado.");
 
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error al insertar el préstamo.", e);
         }
+        return 0;
     }
 
     /**
@@ -51,7 +71,7 @@ public class PrestamoDAO {
     public Prestamo obtenerPrestamoPorId(int idPrestamo) {
         logger.info("Buscando préstamo con ID: " + idPrestamo);
         Prestamo prestamo = null;
-        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE id_prestamo = ?";
+        String sql = "SELECT " + Mapeadores.COLUMNAS_PRESTAMO + " FROM " + TABLE_NAME + " WHERE id_prestamo = ?";
 
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -60,12 +80,7 @@ public class PrestamoDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                prestamo = new Prestamo(
-                        rs.getInt("id_prestamo"),
-                        rs.getString("dni_alumno"),
-                        rs.getInt("codigo_libro"),
-                        rs.getTimestamp("fecha_prestamo").toLocalDateTime()
-                );
+                prestamo = Mapeadores.prestamo(rs).mapear(rs);
                 logger.info("Préstamo encontrado: " + idPrestamo);
             } else {
                 logger.warning("No se encontró el préstamo con ID: " + idPrestamo);
@@ -85,20 +100,15 @@ public class PrestamoDAO {
     public List<Prestamo> obtenerTodosLosPrestamos() {
         logger.info("Obteniendo lista de todos los préstamos.");
         List<Prestamo> prestamos = new ArrayList<>();
-        String sql = "SELECT * FROM " + TABLE_NAME;
+        String sql = "SELECT " + Mapeadores.COLUMNAS_PRESTAMO + " FROM " + TABLE_NAME;
 
         try (Connection connection = DatabaseConnection.getConnection();
              Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            MapeadorFila<Prestamo> mapeador = Mapeadores.prestamo(rs);
             while (rs.next()) {
-                Prestamo prestamo = new Prestamo(
-                        rs.getInt("id_prestamo"),
-                        rs.getString("dni_alumno"),
-                        rs.getInt("codigo_libro"),
-                        rs.getTimestamp("fecha_prestamo").toLocalDateTime()
-                );
-                prestamos.add(prestamo);
+                prestamos.add(mapeador.mapear(rs));
             }
             logger.info("Total de préstamos obtenidos: " + prestamos.size());
 
@@ -108,28 +118,62 @@ public class PrestamoDAO {
         return prestamos;
     }
 
+    /**
+     * Obtiene una página de préstamos ordenados por id usando paginación por clave,
+     * con el nombre del alumno y el título y estado del libro ya cargados.
+     *
+     * @param cursor El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamaño El número máximo de préstamos de la página.
+     * @return La página de préstamos con el cursor de la siguiente.
+     */
+    public Pagina<Prestamo> obtenerPaginaPrestamos(String cursor, int tamaño) {
+        logger.info("Obteniendo página de préstamos desde el cursor: " + cursor);
+        List<Prestamo> prestamos = new ArrayList<>();
+        String sql = SELECT_DETALLE
+                + (cursor == null ? "" : " WHERE p.id_prestamo > ?") + " ORDER BY p.id_prestamo LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (cursor != null) {
+                stmt.setInt(i++, Integer.parseInt(cursor));
+            }
+            stmt.setInt(i, tamaño + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                MapeadorFila<Prestamo> mapeador = Mapeadores.prestamo(rs);
+                while (rs.next()) {
+                    prestamos.add(mapeador.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al obtener la página de préstamos.", e);
+        }
+        return Pagina.de(prestamos, tamaño, Prestamo::getIdPrestamo);
+    }
+
     /**
      * Obtiene todos los préstamos activos (aquellos que no han sido registrados en el histórico).
+     * Se resuelve como un anti-join contra la clave primaria de Historico_prestamo, de forma que cada
+     * préstamo se comprueba con una búsqueda en el índice y el coste no crece con el tamaño del histórico.
+     * Cada préstamo incluye el nombre del alumno y el título y estado del libro.
      *
      * @return Una lista con los préstamos activos.
      */
     public List<Prestamo> obtenerPrestamosActivos() {
         logger.info("Obteniendo lista de préstamos activos.");
         List<Prestamo> prestamos = new ArrayList<>();
-        String sql = "SELECT * FROM Prestamo WHERE id_prestamo NOT IN (SELECT id_prestamo FROM Historico_prestamo)";
+        String sql = SELECT_DETALLE +
+                " WHERE NOT EXISTS (SELECT 1 FROM Historico_prestamo h WHERE h.id_prestamo = p.id_prestamo)" +
+                " ORDER BY p.fecha_prestamo";
 
         try (Connection connection = DatabaseConnection.getConnection();
-             Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
 
+            MapeadorFila<Prestamo> mapeador = Mapeadores.prestamo(rs);
             while (rs.next()) {
-                Prestamo prestamo = new Prestamo(
-                        rs.getInt("id_prestamo"),
-                        rs.getString("dni_alumno"),
-                        rs.getInt("codigo_libro"),
-                        rs.getTimestamp("fecha_prestamo").toLocalDateTime()
-                );
-                prestamos.add(prestamo);
+                prestamos.add(mapeador.mapear(rs));
             }
             logger.info("Total de préstamos activos: " + prestamos.size());
 
@@ -143,8 +187,9 @@ public class PrestamoDAO {
      * Actualiza los datos de un préstamo en la base de datos.
      *
      * @param prestamo El préstamo con los datos actualizados.
+     * @return true si el préstamo se actualizó, false si no se encontró o ocurrió un error.
      */
-    public void actualizarPrestamo(Prestamo prestamo) {
+    public boolean actualizarPrestamo(Prestamo prestamo) {
         logger.info("Actualizando préstamo con ID: " + prestamo.getIdPrestamo());
         String sql = "UPDATE " + TABLE_NAME + " SET dni_alumno = ?, codigo_libro = ?, fecha_prestamo = ? WHERE id_prestamo = ?";
 
@@ -155,11 +200,18 @@ public class PrestamoDAO {
             stmt.setInt(2, prestamo.getCodigoLibro());
             stmt.setTimestamp(3, Timestamp.valueOf(prestamo.getFechaPrestamo()));
             stmt.setInt(4, prestamo.getIdPrestamo());
-            stmt.executeUpdate();
-            logger.info("Préstamo actualizado correctamente con ID: " + prestamo.getIdPrestamo());
+            int rowsUpdated = stmt.executeUpdate();
+            Tabla.PRESTAMO.marcarModificada();
+            if (rowsUpdated > 0) {
+                logger.info("Préstamo actualizado correctamente con ID: " + prestamo.getIdPrestamo());
+                return true;
+            }
+            logger.warning("No se encontró el préstamo con ID: " + prestamo.getIdPrestamo() + " para actualizar.");
+            return false;
 
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error al actualizar el préstamo con ID: " + prestamo.getIdPrestamo(), e);
+            return false;
         }
     }
 
@@ -171,13 +223,30 @@ public class PrestamoDAO {
      */
     public boolean eliminarPrestamo(int idPrestamo) {
         logger.info("Intentando eliminar préstamo con ID: " + idPrestamo);
-        String sql = "DELETE FROM Prestamo WHERE id_prestamo = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return eliminarPrestamo(conn, idPrestamo);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar el préstamo con ID: " + idPrestamo, e);
+            return false;
+        }
+    }
 
+    /**
+     * Elimina un préstamo utilizando su ID y la conexión indicada, para poder hacerlo dentro de una transacción.
+     *
+     * @param conn       La conexión a usar.
+     * @param idPrestamo El ID del préstamo a eliminar.
+     * @return true si el préstamo fue eliminado, false si no se encontró.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public boolean eliminarPrestamo(Connection conn, int idPrestamo) throws SQLException {
+        String sql = "DELETE FROM Prestamo WHERE id_prestamo = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, idPrestamo);
             int affectedRows = pstmt.executeUpdate();
+            Tabla.PRESTAMO.marcarModificada();
 
             if (affectedRows > 0) {
                 logger.info("Préstamo eliminado exitosamente con ID: " + idPrestamo);
@@ -186,26 +255,39 @@ public class PrestamoDAO {
                 logger.warning("No se encontró el préstamo con ID: " + idPrestamo + " para eliminar.");
                 return false;
             }
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al eliminar el préstamo con ID: " + idPrestamo, e);
-            return false;
         }
     }
 
+    /**
+     * Elimina todos los préstamos de un alumno utilizando su DNI.
+     *
+     * @param dni El DNI del alumno cuyos préstamos serán eliminados.
+     */
     public void eliminarPorDni(String dni) {
         logger.info("Eliminando todos los préstamos del alumno con DNI: " + dni);
-        String sql = "DELETE FROM Prestamo WHERE dni_alumno = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            eliminarPorDni(conn, dni);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar préstamos del alumno con DNI: " + dni, e);
+        }
+    }
+
+    /**
+     * Elimina todos los préstamos de un alumno usando la conexión indicada.
+     *
+     * @param conn La conexión a usar.
+     * @param dni  El DNI del alumno cuyos préstamos serán eliminados.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public void eliminarPorDni(Connection conn, String dni) throws SQLException {
+        String sql = "DELETE FROM Prestamo WHERE dni_alumno = ?";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, dni);
             pstmt.executeUpdate();
+            Tabla.PRESTAMO.marcarModificada();
             logger.info("Préstamos eliminados correctamente para el alumno con DNI: " + dni);
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al eliminar préstamos del alumno con DNI: " + dni, e);
         }
     }
 
@@ -216,21 +298,33 @@ public class PrestamoDAO {
      */
     public void eliminarPorCodigoLibro(int codigoLibro) {
         logger.info("Eliminando todos los préstamos asociados al libro con código: " + codigoLibro);
-        String sql = "DELETE FROM Prestamo WHERE codigo_libro = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            eliminarPorCodigoLibro(conn, codigoLibro);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error al eliminar préstamos del libro con código: " + codigoLibro, e);
+        }
+    }
 
+    /**
+     * Elimina todos los préstamos asociados a un libro usando la conexión indicada.
+     *
+     * @param conn        La conexión a usar.
+     * @param codigoLibro El código del libro cuyos préstamos serán eliminados.
+     * @throws SQLException Si ocurre un error al eliminar.
+     */
+    public void eliminarPorCodigoLibro(Connection conn, int codigoLibro) throws SQLException {
+        String sql = "DELETE FROM Prestamo WHERE codigo_libro = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, codigoLibro);
             int affectedRows = pstmt.executeUpdate();
+            Tabla.PRESTAMO.marcarModificada();
             if (affectedRows > 0) {
                 logger.info("Préstamos eliminados correctamente para el libro con código: " + codigoLibro);
             } else {
                 logger.warning("No se encontraron préstamos para el libro con código: " + codigoLibro);
             }
-
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error al eliminar préstamos del libro con código: " + codigoLibro, e);
         }
     }
 }
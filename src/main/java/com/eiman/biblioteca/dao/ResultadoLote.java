@@ -0,0 +1,36 @@
+package com.eiman.biblioteca.dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de una insercion por lotes: cuantos elementos se insertaron
+ * y el error de cada elemento que no se pudo insertar, indexado por su posicion en la lista original.
+ */
+public class ResultadoLote {
+    private int insertados;
+    private final Map<Integer, String> errores = new TreeMap<>();
+
+    void sumarInsertados(int cantidad) {
+        insertados += cantidad;
+    }
+
+    void añadirError(int indice, String mensaje) {
+        errores.put(indice, mensaje);
+    }
+
+    /**
+     * @return El numero de elementos insertados.
+     */
+    public int getInsertados() {
+        return insertados;
+    }
+
+    /**
+     * @return Los errores por posicion del elemento en la lista insertada.
+     */
+    public Map<Integer, String> getErrores() {
+        return Collections.unmodifiableMap(errores);
+    }
+}
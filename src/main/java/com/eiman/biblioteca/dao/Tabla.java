@@ -0,0 +1,59 @@
+package com.eiman.biblioteca.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tablas de la base de datos con un numero de version que los DAO incrementan cada vez que escriben en ellas.
+ * Permite a las vistas que guardan datos ya leidos saber, sin consultar la base de datos, si pueden seguir
+ * mostrandolos o deben releerlos. Solo se registran las escrituras hechas desde esta aplicacion.
+ * <p>
+ * Las escrituras dentro de una transaccion incrementan la version al ejecutarse y otra vez tras confirmarse,
+ * para que una lectura hecha entre medias no quede como actualizada.
+ */
+public enum Tabla {
+    ALUMNO,
+    LIBRO,
+    PRESTAMO,
+    HISTORICO_PRESTAMO;
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Registra una escritura en la tabla.
+     */
+    void marcarModificada() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Registra una escritura en varias tablas; se usa tras confirmar una transaccion que las ha modificado.
+     *
+     * @param tablas Las tablas modificadas.
+     */
+    static void marcarModificadas(Tabla... tablas) {
+        for (Tabla tabla : tablas) {
+            tabla.marcarModificada();
+        }
+    }
+
+    /**
+     * @return La version actual de la tabla.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Calcula una version conjunta de varias tablas, que cambia en cuanto cambia cualquiera de ellas.
+     *
+     * @param tablas Las tablas.
+     * @return La suma de sus versiones.
+     */
+    public static long version(Tabla... tablas) {
+        long suma = 0;
+        for (Tabla tabla : tablas) {
+            suma += tabla.version();
+        }
+        return suma;
+    }
+}
@@ -1,8 +1,17 @@
 package com.eiman.biblioteca.models;
 
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+import java.util.Objects;
+
 /**
  * Clase que representa un alumno en el sistema.
  * Un alumno tiene un DNI, nombre, primer apellido y segundo apellido.
+ * <p>
+ * Los datos que se muestran en las tablas tienen tambien propiedades de JavaFX de solo lectura
+ * ({@code xxxProperty()}), que se crean la primera vez que se piden y que los setters mantienen al dia.
+ * Asi las celdas se enlazan a la propiedad sin reflexion y sin crear un objeto en cada actualizacion.
  */
 public class Alumno {
     private String dni;
@@ -10,6 +19,12 @@ public class Alumno {
     private String apellido1;
     private String apellido2;
 
+    // Propiedades para la interfaz, creadas al pedirlas por primera vez
+    private ReadOnlyStringWrapper dniPropiedad;
+    private ReadOnlyStringWrapper nombrePropiedad;
+    private ReadOnlyStringWrapper apellido1Propiedad;
+    private ReadOnlyStringWrapper apellido2Propiedad;
+
     /**
      * Constructor de la clase Alumno.
      *
@@ -34,6 +49,18 @@ public class Alumno {
         return dni;
     }
 
+    /**
+     * Propiedad de solo lectura del DNI, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty dniProperty() {
+        if (dniPropiedad == null) {
+            dniPropiedad = new ReadOnlyStringWrapper(this, "dni", dni);
+        }
+        return dniPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el DNI del alumno.
      *
@@ -41,6 +68,9 @@ public class Alumno {
      */
     public void setDni(String dni) {
         this.dni = dni;
+        if (dniPropiedad != null) {
+            dniPropiedad.set(dni);
+        }
     }
 
     /**
@@ -52,6 +82,18 @@ public class Alumno {
         return nombre;
     }
 
+    /**
+     * Propiedad de solo lectura del nombre, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty nombreProperty() {
+        if (nombrePropiedad == null) {
+            nombrePropiedad = new ReadOnlyStringWrapper(this, "nombre", nombre);
+        }
+        return nombrePropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el nombre del alumno.
      *
@@ -59,6 +101,9 @@ public class Alumno {
      */
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        if (nombrePropiedad != null) {
+            nombrePropiedad.set(nombre);
+        }
     }
 
     /**
@@ -70,6 +115,18 @@ public class Alumno {
         return apellido1;
     }
 
+    /**
+     * Propiedad de solo lectura del primer apellido, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty apellido1Property() {
+        if (apellido1Propiedad == null) {
+            apellido1Propiedad = new ReadOnlyStringWrapper(this, "apellido1", apellido1);
+        }
+        return apellido1Propiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el primer apellido del alumno.
      *
@@ -77,6 +134,9 @@ public class Alumno {
      */
     public void setApellido1(String apellido1) {
         this.apellido1 = apellido1;
+        if (apellido1Propiedad != null) {
+            apellido1Propiedad.set(apellido1);
+        }
     }
 
     /**
@@ -88,6 +148,18 @@ public class Alumno {
         return apellido2;
     }
 
+    /**
+     * Propiedad de solo lectura del segundo apellido, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty apellido2Property() {
+        if (apellido2Propiedad == null) {
+            apellido2Propiedad = new ReadOnlyStringWrapper(this, "apellido2", apellido2);
+        }
+        return apellido2Propiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el segundo apellido del alumno.
      *
@@ -95,6 +167,20 @@ public class Alumno {
      */
     public void setApellido2(String apellido2) {
         this.apellido2 = apellido2;
+        if (apellido2Propiedad != null) {
+            apellido2Propiedad.set(apellido2);
+        }
+    }
+
+    /**
+     * Compara los datos mostrados del alumno con los de otro, para saber si una fila de la tabla ha cambiado.
+     *
+     * @param otro El otro alumno.
+     * @return true si ambos tienen los mismos datos.
+     */
+    public boolean mismosDatos(Alumno otro) {
+        return Objects.equals(dni, otro.dni) && Objects.equals(nombre, otro.nombre)
+                && Objects.equals(apellido1, otro.apellido1) && Objects.equals(apellido2, otro.apellido2);
     }
 
     /**
@@ -104,6 +190,6 @@ public class Alumno {
      */
     @Override
     public String toString() {
-        return nombre + " " + apellido1 + (apellido2 != null ? " " + apellido2 : "");
+        return nombre + (apellido1 != null ? " " + apellido1 : "") + (apellido2 != null ? " " + apellido2 : "");
     }
 }
@@ -1,11 +1,23 @@
 package com.eiman.biblioteca.models;
 
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 /**
  * Clase que representa el historico de un prestamo de libros.
  * Esta clase almacena la informacion de un prestamo, incluyendo la fecha de prestamo y de devolucion.
+ * <p>
+ * Los datos que se muestran en las tablas tienen tambien propiedades de JavaFX de solo lectura
+ * ({@code xxxProperty()}), que se crean la primera vez que se piden y que los setters mantienen al dia.
+ * Asi las celdas se enlazan a la propiedad sin reflexion y sin crear un objeto en cada actualizacion.
  */
 public class HistoricoPrestamo {
 
@@ -15,6 +27,20 @@ public class HistoricoPrestamo {
     private LocalDateTime fechaPrestamo;
     private LocalDateTime fechaDevolucion;
 
+    // Datos de la consulta combinada con Alumno y Libro, para mostrarlos sin consultas adicionales
+    private String nombreAlumno;
+    private String tituloLibro;
+    private String estadoLibro;
+
+    // Propiedades para la interfaz, creadas al pedirlas por primera vez
+    private ReadOnlyIntegerWrapper idPrestamoPropiedad;
+    private ReadOnlyStringWrapper dniAlumnoPropiedad;
+    private ReadOnlyIntegerWrapper codigoLibroPropiedad;
+    private ReadOnlyObjectWrapper<LocalDateTime> fechaPrestamoPropiedad;
+    private ReadOnlyObjectWrapper<LocalDateTime> fechaDevolucionPropiedad;
+    private ReadOnlyStringWrapper nombreAlumnoPropiedad;
+    private ReadOnlyStringWrapper tituloLibroPropiedad;
+
     /**
      * Constructor de la clase HistoricoPrestamo.
      *
@@ -42,6 +68,18 @@ public class HistoricoPrestamo {
         return idPrestamo;
     }
 
+    /**
+     * Propiedad de solo lectura del ID, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyIntegerProperty idPrestamoProperty() {
+        if (idPrestamoPropiedad == null) {
+            idPrestamoPropiedad = new ReadOnlyIntegerWrapper(this, "idPrestamo", idPrestamo);
+        }
+        return idPrestamoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el id del prestamo.
      *
@@ -49,6 +87,9 @@ public class HistoricoPrestamo {
      */
     public void setIdPrestamo(int idPrestamo) {
         this.idPrestamo = idPrestamo;
+        if (idPrestamoPropiedad != null) {
+            idPrestamoPropiedad.set(idPrestamo);
+        }
     }
 
     /**
@@ -60,6 +101,18 @@ public class HistoricoPrestamo {
         return dniAlumno;
     }
 
+    /**
+     * Propiedad de solo lectura del DNI del alumno, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty dniAlumnoProperty() {
+        if (dniAlumnoPropiedad == null) {
+            dniAlumnoPropiedad = new ReadOnlyStringWrapper(this, "dniAlumno", dniAlumno);
+        }
+        return dniAlumnoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el DNI del alumno.
      *
@@ -67,6 +120,9 @@ public class HistoricoPrestamo {
      */
     public void setDniAlumno(String dniAlumno) {
         this.dniAlumno = dniAlumno;
+        if (dniAlumnoPropiedad != null) {
+            dniAlumnoPropiedad.set(dniAlumno);
+        }
     }
 
     /**
@@ -78,6 +134,18 @@ public class HistoricoPrestamo {
         return codigoLibro;
     }
 
+    /**
+     * Propiedad de solo lectura del codigo del libro, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyIntegerProperty codigoLibroProperty() {
+        if (codigoLibroPropiedad == null) {
+            codigoLibroPropiedad = new ReadOnlyIntegerWrapper(this, "codigoLibro", codigoLibro);
+        }
+        return codigoLibroPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el codigo del libro prestado.
      *
@@ -85,6 +153,9 @@ public class HistoricoPrestamo {
      */
     public void setCodigoLibro(int codigoLibro) {
         this.codigoLibro = codigoLibro;
+        if (codigoLibroPropiedad != null) {
+            codigoLibroPropiedad.set(codigoLibro);
+        }
     }
 
     /**
@@ -96,6 +167,18 @@ public class HistoricoPrestamo {
         return fechaPrestamo;
     }
 
+    /**
+     * Propiedad de solo lectura de la fecha del prestamo, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyObjectProperty<LocalDateTime> fechaPrestamoProperty() {
+        if (fechaPrestamoPropiedad == null) {
+            fechaPrestamoPropiedad = new ReadOnlyObjectWrapper<>(this, "fechaPrestamo", fechaPrestamo);
+        }
+        return fechaPrestamoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece la fecha de prestamo.
      *
@@ -103,6 +186,9 @@ public class HistoricoPrestamo {
      */
     public void setFechaPrestamo(LocalDateTime fechaPrestamo) {
         this.fechaPrestamo = fechaPrestamo;
+        if (fechaPrestamoPropiedad != null) {
+            fechaPrestamoPropiedad.set(fechaPrestamo);
+        }
     }
 
     /**
@@ -114,6 +200,18 @@ public class HistoricoPrestamo {
         return fechaDevolucion;
     }
 
+    /**
+     * Propiedad de solo lectura de la fecha de devolucion, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyObjectProperty<LocalDateTime> fechaDevolucionProperty() {
+        if (fechaDevolucionPropiedad == null) {
+            fechaDevolucionPropiedad = new ReadOnlyObjectWrapper<>(this, "fechaDevolucion", fechaDevolucion);
+        }
+        return fechaDevolucionPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece la fecha de devolucion.
      * Si la fecha de devolucion es anterior a la fecha de prestamo, lanza una excepcion.
@@ -126,6 +224,110 @@ public class HistoricoPrestamo {
             throw new IllegalArgumentException("La fecha de devolucion no puede ser anterior a la fecha del prestamo.");
         }
         this.fechaDevolucion = fechaDevolucion;
+        if (fechaDevolucionPropiedad != null) {
+            fechaDevolucionPropiedad.set(fechaDevolucion);
+        }
+    }
+
+    /**
+     * Obtiene el nombre completo del alumno.
+     * Solo se rellena cuando el historico se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El nombre completo del alumno, o null si no se ha cargado.
+     */
+    public String getNombreAlumno() {
+        return nombreAlumno;
+    }
+
+    /**
+     * Propiedad de solo lectura del nombre del alumno, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty nombreAlumnoProperty() {
+        if (nombreAlumnoPropiedad == null) {
+            nombreAlumnoPropiedad = new ReadOnlyStringWrapper(this, "nombreAlumno", nombreAlumno);
+        }
+        return nombreAlumnoPropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Establece el nombre completo del alumno.
+     *
+     * @param nombreAlumno El nombre completo del alumno.
+     */
+    public void setNombreAlumno(String nombreAlumno) {
+        this.nombreAlumno = nombreAlumno;
+        if (nombreAlumnoPropiedad != null) {
+            nombreAlumnoPropiedad.set(nombreAlumno);
+        }
+    }
+
+    /**
+     * Obtiene el titulo del libro prestado.
+     * Solo se rellena cuando el historico se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El titulo del libro, o null si no se ha cargado.
+     */
+    public String getTituloLibro() {
+        return tituloLibro;
+    }
+
+    /**
+     * Propiedad de solo lectura del titulo del libro, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty tituloLibroProperty() {
+        if (tituloLibroPropiedad == null) {
+            tituloLibroPropiedad = new ReadOnlyStringWrapper(this, "tituloLibro", tituloLibro);
+        }
+        return tituloLibroPropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Establece el titulo del libro prestado.
+     *
+     * @param tituloLibro El titulo del libro.
+     */
+    public void setTituloLibro(String tituloLibro) {
+        this.tituloLibro = tituloLibro;
+        if (tituloLibroPropiedad != null) {
+            tituloLibroPropiedad.set(tituloLibro);
+        }
+    }
+
+    /**
+     * Obtiene el estado actual del libro prestado.
+     * Solo se rellena cuando el historico se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El estado del libro, o null si no se ha cargado.
+     */
+    public String getEstadoLibro() {
+        return estadoLibro;
+    }
+
+    /**
+     * Establece el estado actual del libro prestado.
+     *
+     * @param estadoLibro El estado del libro.
+     */
+    public void setEstadoLibro(String estadoLibro) {
+        this.estadoLibro = estadoLibro;
+    }
+
+    /**
+     * Compara los datos mostrados del historico con los de otro, para saber si una fila de la tabla ha cambiado.
+     *
+     * @param otro El otro historico.
+     * @return true si ambos tienen los mismos datos, incluidos el nombre del alumno y el titulo del libro.
+     */
+    public boolean mismosDatos(HistoricoPrestamo otro) {
+        return idPrestamo == otro.idPrestamo && codigoLibro == otro.codigoLibro
+                && Objects.equals(dniAlumno, otro.dniAlumno) && Objects.equals(fechaPrestamo, otro.fechaPrestamo)
+                && Objects.equals(fechaDevolucion, otro.fechaDevolucion)
+                && Objects.equals(nombreAlumno, otro.nombreAlumno) && Objects.equals(tituloLibro, otro.tituloLibro)
+                && Objects.equals(estadoLibro, otro.estadoLibro);
     }
 
     /**
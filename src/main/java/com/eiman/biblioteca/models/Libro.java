@@ -1,10 +1,19 @@
 package com.eiman.biblioteca.models;
 
-import java.util.Base64;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+import java.util.Objects;
 
 /**
  * Clase que representa un libro dentro de la biblioteca.
  * Un libro tiene un codigo, titulo, autor, editorial, estado, baja y portada.
+ * <p>
+ * Los datos que se muestran en las tablas tienen tambien propiedades de JavaFX de solo lectura
+ * ({@code xxxProperty()}), que se crean la primera vez que se piden y que los setters mantienen al dia.
+ * Asi las celdas se enlazan a la propiedad sin reflexion y sin crear un objeto en cada actualizacion.
  */
 public class Libro {
 
@@ -15,6 +24,14 @@ public class Libro {
     private String estado;
     private int baja;
     private byte[] portada;
+    private String portadaHash;
+
+    // Propiedades para la interfaz, creadas al pedirlas por primera vez
+    private ReadOnlyIntegerWrapper codigoPropiedad;
+    private ReadOnlyStringWrapper tituloPropiedad;
+    private ReadOnlyStringWrapper autorPropiedad;
+    private ReadOnlyStringWrapper editorialPropiedad;
+    private ReadOnlyStringWrapper estadoPropiedad;
 
     /**
      * Constructor de la clase Libro.
@@ -49,6 +66,18 @@ public class Libro {
         return codigo;
     }
 
+    /**
+     * Propiedad de solo lectura del codigo, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyIntegerProperty codigoProperty() {
+        if (codigoPropiedad == null) {
+            codigoPropiedad = new ReadOnlyIntegerWrapper(this, "codigo", codigo);
+        }
+        return codigoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el codigo del libro.
      *
@@ -60,6 +89,9 @@ public class Libro {
             throw new IllegalArgumentException("El codigo del libro debe ser positivo.");
         }
         this.codigo = codigo;
+        if (codigoPropiedad != null) {
+            codigoPropiedad.set(codigo);
+        }
     }
 
     /**
@@ -71,6 +103,18 @@ public class Libro {
         return titulo;
     }
 
+    /**
+     * Propiedad de solo lectura del titulo, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty tituloProperty() {
+        if (tituloPropiedad == null) {
+            tituloPropiedad = new ReadOnlyStringWrapper(this, "titulo", titulo);
+        }
+        return tituloPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el titulo del libro.
      *
@@ -78,6 +122,9 @@ public class Libro {
      */
     public void setTitulo(String titulo) {
         this.titulo = titulo;
+        if (tituloPropiedad != null) {
+            tituloPropiedad.set(titulo);
+        }
     }
 
     /**
@@ -89,6 +136,18 @@ public class Libro {
         return autor;
     }
 
+    /**
+     * Propiedad de solo lectura del autor, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty autorProperty() {
+        if (autorPropiedad == null) {
+            autorPropiedad = new ReadOnlyStringWrapper(this, "autor", autor);
+        }
+        return autorPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el autor del libro.
      *
@@ -96,6 +155,9 @@ public class Libro {
      */
     public void setAutor(String autor) {
         this.autor = autor;
+        if (autorPropiedad != null) {
+            autorPropiedad.set(autor);
+        }
     }
 
     /**
@@ -107,6 +169,18 @@ public class Libro {
         return editorial;
     }
 
+    /**
+     * Propiedad de solo lectura de la editorial, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty editorialProperty() {
+        if (editorialPropiedad == null) {
+            editorialPropiedad = new ReadOnlyStringWrapper(this, "editorial", editorial);
+        }
+        return editorialPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece la editorial del libro.
      *
@@ -114,6 +188,9 @@ public class Libro {
      */
     public void setEditorial(String editorial) {
         this.editorial = editorial;
+        if (editorialPropiedad != null) {
+            editorialPropiedad.set(editorial);
+        }
     }
 
     /**
@@ -125,6 +202,18 @@ public class Libro {
         return estado;
     }
 
+    /**
+     * Propiedad de solo lectura del estado, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty estadoProperty() {
+        if (estadoPropiedad == null) {
+            estadoPropiedad = new ReadOnlyStringWrapper(this, "estado", estado);
+        }
+        return estadoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el estado del libro.
      *
@@ -132,6 +221,9 @@ public class Libro {
      */
     public void setEstado(String estado) {
         this.estado = estado;
+        if (estadoPropiedad != null) {
+            estadoPropiedad.set(estado);
+        }
     }
 
     /**
@@ -154,6 +246,7 @@ public class Libro {
 
     /**
      * Obtiene la portada del libro como un arreglo de bytes.
+     * Es null si el libro no tiene portada o si se obtuvo de un listado que no la carga.
      *
      * @return La portada en formato byte[].
      */
@@ -171,12 +264,35 @@ public class Libro {
     }
 
     /**
-     * Devuelve la portada codificada en Base64 para facilitar su visualizacion.
+     * Obtiene la huella SHA-256 de la portada, que identifica su miniatura en la cache de disco.
+     * Los listados la traen aunque no carguen la portada.
+     *
+     * @return La huella en hexadecimal, o null si el libro no tiene portada.
+     */
+    public String getPortadaHash() {
+        return portadaHash;
+    }
+
+    /**
+     * Establece la huella SHA-256 de la portada.
+     *
+     * @param portadaHash La huella en hexadecimal, o null si el libro no tiene portada.
+     */
+    public void setPortadaHash(String portadaHash) {
+        this.portadaHash = portadaHash;
+    }
+
+    /**
+     * Compara los datos mostrados del libro con los de otro, para saber si una fila de la tabla ha cambiado.
+     * La portada se compara por su huella.
      *
-     * @return Cadena Base64 de la imagen de la portada.
+     * @param otro El otro libro.
+     * @return true si ambos tienen los mismos datos.
      */
-    public String getPortadaBase64() {
-        return portada != null ? Base64.getEncoder().encodeToString(portada) : null;
+    public boolean mismosDatos(Libro otro) {
+        return codigo == otro.codigo && baja == otro.baja && Objects.equals(titulo, otro.titulo)
+                && Objects.equals(autor, otro.autor) && Objects.equals(editorial, otro.editorial)
+                && Objects.equals(estado, otro.estado) && Objects.equals(portadaHash, otro.portadaHash);
     }
 
     /**
@@ -186,6 +302,6 @@ public class Libro {
      */
     @Override
     public String toString() {
-        return titulo + " - " + autor + " (" + estado + ")";
+        return titulo + (autor != null ? " - " + autor : "") + " (" + estado + ")";
     }
 }
@@ -1,12 +1,24 @@
 package com.eiman.biblioteca.models;
 
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 /**
  * Clase que representa un prestamo de un libro a un alumno.
  * Esta clase almacena la informacion del prestamo, incluyendo el id, el DNI del alumno, el codigo del libro
  * y la fecha en que se realiza el prestamo.
+ * <p>
+ * Los datos que se muestran en las tablas tienen tambien propiedades de JavaFX de solo lectura
+ * ({@code xxxProperty()}), que se crean la primera vez que se piden y que los setters mantienen al dia.
+ * Asi las celdas se enlazan a la propiedad sin reflexion y sin crear un objeto en cada actualizacion.
  */
 public class Prestamo {
 
@@ -15,8 +27,21 @@ public class Prestamo {
     private int codigoLibro;
     private LocalDateTime fechaPrestamo;
 
+    // Datos de la consulta combinada con Alumno y Libro, para mostrarlos sin consultas adicionales
+    private String nombreAlumno;
+    private String tituloLibro;
+    private String estadoLibro;
+
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
+    // Propiedades para la interfaz, creadas al pedirlas por primera vez
+    private ReadOnlyIntegerWrapper idPrestamoPropiedad;
+    private ReadOnlyStringWrapper dniAlumnoPropiedad;
+    private ReadOnlyIntegerWrapper codigoLibroPropiedad;
+    private ReadOnlyObjectWrapper<LocalDateTime> fechaPrestamoPropiedad;
+    private ReadOnlyStringWrapper nombreAlumnoPropiedad;
+    private ReadOnlyStringWrapper tituloLibroPropiedad;
+
     /**
      * Constructor del prestamo.
      *
@@ -51,6 +76,18 @@ public class Prestamo {
         return idPrestamo;
     }
 
+    /**
+     * Propiedad de solo lectura del ID, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyIntegerProperty idPrestamoProperty() {
+        if (idPrestamoPropiedad == null) {
+            idPrestamoPropiedad = new ReadOnlyIntegerWrapper(this, "idPrestamo", idPrestamo);
+        }
+        return idPrestamoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el ID del prestamo.
      *
@@ -62,6 +99,9 @@ public class Prestamo {
             throw new IllegalArgumentException("El ID del prestamo debe ser positivo.");
         }
         this.idPrestamo = idPrestamo;
+        if (idPrestamoPropiedad != null) {
+            idPrestamoPropiedad.set(idPrestamo);
+        }
     }
 
     /**
@@ -73,6 +113,18 @@ public class Prestamo {
         return dniAlumno;
     }
 
+    /**
+     * Propiedad de solo lectura del DNI del alumno, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty dniAlumnoProperty() {
+        if (dniAlumnoPropiedad == null) {
+            dniAlumnoPropiedad = new ReadOnlyStringWrapper(this, "dniAlumno", dniAlumno);
+        }
+        return dniAlumnoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el DNI del alumno.
      *
@@ -84,6 +136,9 @@ public class Prestamo {
             throw new IllegalArgumentException("El DNI del alumno no puede estar vacio.");
         }
         this.dniAlumno = dniAlumno;
+        if (dniAlumnoPropiedad != null) {
+            dniAlumnoPropiedad.set(dniAlumno);
+        }
     }
 
     /**
@@ -95,6 +150,18 @@ public class Prestamo {
         return codigoLibro;
     }
 
+    /**
+     * Propiedad de solo lectura del codigo del libro, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyIntegerProperty codigoLibroProperty() {
+        if (codigoLibroPropiedad == null) {
+            codigoLibroPropiedad = new ReadOnlyIntegerWrapper(this, "codigoLibro", codigoLibro);
+        }
+        return codigoLibroPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece el codigo del libro prestado.
      *
@@ -106,6 +173,9 @@ public class Prestamo {
             throw new IllegalArgumentException("El codigo del libro debe ser positivo.");
         }
         this.codigoLibro = codigoLibro;
+        if (codigoLibroPropiedad != null) {
+            codigoLibroPropiedad.set(codigoLibro);
+        }
     }
 
     /**
@@ -117,6 +187,18 @@ public class Prestamo {
         return fechaPrestamo;
     }
 
+    /**
+     * Propiedad de solo lectura de la fecha del prestamo, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyObjectProperty<LocalDateTime> fechaPrestamoProperty() {
+        if (fechaPrestamoPropiedad == null) {
+            fechaPrestamoPropiedad = new ReadOnlyObjectWrapper<>(this, "fechaPrestamo", fechaPrestamo);
+        }
+        return fechaPrestamoPropiedad.getReadOnlyProperty();
+    }
+
     /**
      * Establece la fecha en que se realizo el prestamo.
      *
@@ -124,6 +206,109 @@ public class Prestamo {
      */
     public void setFechaPrestamo(LocalDateTime fechaPrestamo) {
         this.fechaPrestamo = fechaPrestamo;
+        if (fechaPrestamoPropiedad != null) {
+            fechaPrestamoPropiedad.set(fechaPrestamo);
+        }
+    }
+
+    /**
+     * Obtiene el nombre completo del alumno.
+     * Solo se rellena cuando el prestamo se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El nombre completo del alumno, o null si no se ha cargado.
+     */
+    public String getNombreAlumno() {
+        return nombreAlumno;
+    }
+
+    /**
+     * Propiedad de solo lectura del nombre del alumno, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty nombreAlumnoProperty() {
+        if (nombreAlumnoPropiedad == null) {
+            nombreAlumnoPropiedad = new ReadOnlyStringWrapper(this, "nombreAlumno", nombreAlumno);
+        }
+        return nombreAlumnoPropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Establece el nombre completo del alumno.
+     *
+     * @param nombreAlumno El nombre completo del alumno.
+     */
+    public void setNombreAlumno(String nombreAlumno) {
+        this.nombreAlumno = nombreAlumno;
+        if (nombreAlumnoPropiedad != null) {
+            nombreAlumnoPropiedad.set(nombreAlumno);
+        }
+    }
+
+    /**
+     * Obtiene el titulo del libro prestado.
+     * Solo se rellena cuando el prestamo se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El titulo del libro, o null si no se ha cargado.
+     */
+    public String getTituloLibro() {
+        return tituloLibro;
+    }
+
+    /**
+     * Propiedad de solo lectura del titulo del libro, para enlazarlo a la interfaz.
+     *
+     * @return La propiedad, creada con el valor actual la primera vez que se pide.
+     */
+    public ReadOnlyStringProperty tituloLibroProperty() {
+        if (tituloLibroPropiedad == null) {
+            tituloLibroPropiedad = new ReadOnlyStringWrapper(this, "tituloLibro", tituloLibro);
+        }
+        return tituloLibroPropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Establece el titulo del libro prestado.
+     *
+     * @param tituloLibro El titulo del libro.
+     */
+    public void setTituloLibro(String tituloLibro) {
+        this.tituloLibro = tituloLibro;
+        if (tituloLibroPropiedad != null) {
+            tituloLibroPropiedad.set(tituloLibro);
+        }
+    }
+
+    /**
+     * Obtiene el estado actual del libro prestado.
+     * Solo se rellena cuando el prestamo se obtiene con la consulta combinada con Alumno y Libro.
+     *
+     * @return El estado del libro, o null si no se ha cargado.
+     */
+    public String getEstadoLibro() {
+        return estadoLibro;
+    }
+
+    /**
+     * Establece el estado actual del libro prestado.
+     *
+     * @param estadoLibro El estado del libro.
+     */
+    public void setEstadoLibro(String estadoLibro) {
+        this.estadoLibro = estadoLibro;
+    }
+
+    /**
+     * Compara los datos mostrados del prestamo con los de otro, para saber si una fila de la tabla ha cambiado.
+     *
+     * @param otro El otro prestamo.
+     * @return true si ambos tienen los mismos datos, incluidos el nombre del alumno y el titulo del libro.
+     */
+    public boolean mismosDatos(Prestamo otro) {
+        return idPrestamo == otro.idPrestamo && codigoLibro == otro.codigoLibro
+                && Objects.equals(dniAlumno, otro.dniAlumno) && Objects.equals(fechaPrestamo, otro.fechaPrestamo)
+                && Objects.equals(nombreAlumno, otro.nombreAlumno) && Objects.equals(tituloLibro, otro.tituloLibro)
+                && Objects.equals(estadoLibro, otro.estadoLibro);
     }
 
     /**
@@ -0,0 +1,118 @@
+package com.eiman.biblioteca.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Almacen opcional de portadas fuera de la base de datos: un directorio de archivos cuyo nombre es la huella
+ * SHA-256 de la portada ({@link Portadas#huella(byte[])}). Se activa con {@code portadas.almacen=disco}.
+ * <p>
+ * Con el almacen activo la fila de Libro solo guarda la huella y deja la columna {@code portada} a null,
+ * de modo que los ejemplares repetidos de un mismo titulo comparten un unico archivo y las portadas
+ * no pasan por el buffer pool de InnoDB. Los archivos se reparten en subdirectorios por los dos primeros
+ * caracteres de la huella, para que ningun directorio acumule miles de entradas.
+ * <p>
+ * Esta clase solo maneja los archivos; las referencias de cada portada las lleva {@code LibroDAO}
+ * en la tabla Portada_almacen, que decide cuando un archivo ya no se usa y puede borrarse.
+ */
+public class AlmacenPortadas {
+    private static final Logger logger = Logger.getLogger(AlmacenPortadas.class.getName());
+    private static final boolean ACTIVO = "disco".equalsIgnoreCase(Configuracion.getString("portadas.almacen", "bd"));
+    private static final Path DIRECTORIO = Paths.get(Configuracion.getString("portadas.almacen.dir",
+            Paths.get(System.getProperty("user.home"), ".biblioteca", "portadas").toString()));
+
+    private AlmacenPortadas() {
+    }
+
+    /**
+     * @return true si las portadas nuevas se guardan en el almacen en lugar de en la fila de Libro.
+     */
+    public static boolean activo() {
+        return ACTIVO;
+    }
+
+    /**
+     * Guarda una portada en el almacen si aun no esta. Como el nombre es la huella del contenido,
+     * un archivo existente con el tamaño esperado ya es esa misma portada y no se reescribe.
+     * Se escribe en un archivo temporal que se mueve de forma atomica, para que nunca se lea a medias.
+     *
+     * @param huella  La huella de la portada.
+     * @param portada La imagen de la portada.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public static void guardar(String huella, byte[] portada) throws IOException {
+        Path destino = ruta(huella);
+        if (Files.exists(destino) && Files.size(destino) == portada.length) {
+            return;
+        }
+        Files.createDirectories(destino.getParent());
+        Path temporal = Files.createTempFile(destino.getParent(), huella, ".tmp");
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(portada);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                // La fila que la referencia se confirma despues: el archivo debe estar ya en disco
+                canal.force(false);
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Portada guardada en el almacén: " + huella + " (" + portada.length + " bytes)");
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Lee una portada del almacen con un unico buffer del tamaño del archivo.
+     *
+     * @param huella La huella de la portada.
+     * @return Los bytes de la portada.
+     * @throws IOException Si el archivo no existe o no se puede leer.
+     */
+    public static byte[] leer(String huella) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta(huella), StandardOpenOption.READ)) {
+            long tamaño = canal.size();
+            if (tamaño > Integer.MAX_VALUE) {
+                throw new IOException("Portada demasiado grande en el almacén: " + huella);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) tamaño);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer) < 0) {
+                    throw new IOException("Portada truncada en el almacén: " + huella);
+                }
+            }
+            return buffer.array();
+        }
+    }
+
+    /**
+     * Borra una portada del almacen. Solo debe llamarse cuando ningun libro la referencia.
+     *
+     * @param huella La huella de la portada.
+     * @throws IOException Si el archivo existe pero no se puede borrar.
+     */
+    public static void borrar(String huella) throws IOException {
+        if (Files.deleteIfExists(ruta(huella))) {
+            logger.info("Portada borrada del almacén: " + huella);
+        }
+    }
+
+    /**
+     * Ruta del archivo de una portada. Se valida la huella para que un valor inesperado de la base de datos
+     * no pueda apuntar fuera del almacen.
+     */
+    private static Path ruta(String huella) {
+        if (huella == null || !huella.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Huella de portada no válida: " + huella);
+        }
+        return DIRECTORIO.resolve(huella.substring(0, 2)).resolve(huella);
+    }
+}
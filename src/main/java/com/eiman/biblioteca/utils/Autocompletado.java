@@ -0,0 +1,125 @@
+package com.eiman.biblioteca.utils;
+
+import javafx.animation.PauseTransition;
+import javafx.scene.control.ComboBox;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Convierte un ComboBox en un selector con sugerencias: en lugar de cargar todas las opciones al abrirlo,
+ * se escribe en el y, tras una breve pausa, se consultan solo las primeras opciones que empiezan por lo escrito.
+ * Las consultas se hacen en segundo plano y se descartan las respuestas de textos que ya se han cambiado.
+ *
+ * @param <T> Tipo de las opciones.
+ */
+public class Autocompletado<T> {
+    private static final Logger logger = Logger.getLogger(Autocompletado.class.getName());
+    /**
+     * Milisegundos sin escribir tras los que se consultan las sugerencias.
+     */
+    private static final int RETARDO = 250;
+
+    private final ComboBox<T> combo;
+    private final Function<String, CompletableFuture<List<T>>> sugerencias;
+    private final Function<T, String> texto;
+    private final PauseTransition pausa = new PauseTransition(Duration.millis(RETARDO));
+    private int consultaActual;
+    /** Si se estan cambiando las opciones, para no tomar como escritura los cambios que eso provoca en el texto. */
+    private boolean actualizando;
+
+    private Autocompletado(ComboBox<T> combo, Function<String, CompletableFuture<List<T>>> sugerencias,
+                           Function<T, String> texto) {
+        this.combo = combo;
+        this.sugerencias = sugerencias;
+        this.texto = texto;
+    }
+
+    /**
+     * Convierte un ComboBox en un selector con sugerencias. El ComboBox pasa a ser editable y empieza sin opciones.
+     *
+     * @param combo       El ComboBox.
+     * @param sugerencias Consulta las sugerencias para un texto; debe limitar el numero de resultados.
+     * @param texto       El texto que se muestra de cada opcion, y con el que se reconoce una opcion escrita entera.
+     * @param <T>         Tipo de las opciones.
+     * @return El selector creado.
+     */
+    public static <T> Autocompletado<T> enlazar(ComboBox<T> combo, Function<String, CompletableFuture<List<T>>> sugerencias,
+                                                Function<T, String> texto) {
+        Autocompletado<T> autocompletado = new Autocompletado<>(combo, sugerencias, texto);
+        autocompletado.configurar();
+        return autocompletado;
+    }
+
+    private void configurar() {
+        combo.setEditable(true);
+        combo.getItems().clear();
+        combo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(T opcion) {
+                return opcion == null ? "" : texto.apply(opcion);
+            }
+
+            @Override
+            public T fromString(String escrito) {
+                // Solo se acepta una opcion escrita entera; cualquier otro texto deja el selector sin valor
+                T valor = combo.getValue();
+                if (valor != null && texto.apply(valor).equals(escrito)) {
+                    return valor;
+                }
+                return combo.getItems().stream().filter(opcion -> texto.apply(opcion).equals(escrito))
+                        .findFirst().orElse(null);
+            }
+        });
+        pausa.setOnFinished(e -> consultar());
+        combo.getEditor().textProperty().addListener((obs, oldText, newText) -> {
+            T valor = combo.getValue();
+            if (actualizando || (valor != null && texto.apply(valor).equals(newText))) {
+                return;
+            }
+            pausa.playFromStart();
+        });
+        combo.showingProperty().addListener((obs, oldShowing, showing) -> {
+            if (showing && combo.getItems().isEmpty()) {
+                consultar();
+            }
+        });
+    }
+
+    /**
+     * Consulta las sugerencias del texto escrito y las muestra en la lista desplegable.
+     */
+    private void consultar() {
+        pausa.stop();
+        String escrito = combo.getEditor().getText();
+        int consulta = ++consultaActual;
+        DatabaseExecutor.enFx(sugerencias.apply(escrito == null ? "" : escrito.strip()), opciones -> {
+            if (consulta != consultaActual) {
+                return;
+            }
+            actualizando = true;
+            try {
+                // Cambiar las opciones puede reescribir el texto: se conserva lo que el usuario estaba escribiendo
+                String actual = combo.getEditor().getText();
+                int cursor = combo.getEditor().getCaretPosition();
+                combo.getItems().setAll(opciones);
+                if (!combo.getEditor().getText().equals(actual)) {
+                    combo.getEditor().setText(actual);
+                    combo.getEditor().positionCaret(cursor);
+                }
+            } finally {
+                actualizando = false;
+            }
+            if (opciones.isEmpty()) {
+                combo.hide();
+            } else if (combo.isFocused() || combo.getEditor().isFocused()) {
+                combo.show();
+            }
+        }, error -> logger.log(Level.WARNING, "Error al consultar las sugerencias.", error));
+    }
+}
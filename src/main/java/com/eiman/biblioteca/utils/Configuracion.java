@@ -0,0 +1,97 @@
+package com.eiman.biblioteca.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Clase que da acceso de solo lectura a los parametros de ajuste de la aplicacion
+ * definidos en el archivo de configuracion del classpath.
+ * Si un parametro no existe o no es valido se usa el valor por defecto indicado.
+ */
+public class Configuracion {
+    private static final Logger logger = Logger.getLogger(Configuracion.class.getName());
+    private static final String CONFIG_FILE = "/config.properties";
+    private static final Properties properties = new Properties();
+
+    static {
+        try (InputStream input = Configuracion.class.getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            } else {
+                logger.warning("Archivo de configuración no encontrado, se usarán los valores por defecto.");
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error al cargar el archivo de configuración.", e);
+        }
+    }
+
+    private Configuracion() {
+    }
+
+    /**
+     * Obtiene un parametro de texto de la configuracion.
+     *
+     * @param key          La clave del parametro.
+     * @param valorDefecto Valor devuelto si la clave no existe.
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static String getString(String key, String valorDefecto) {
+        String valor = System.getProperty(key, properties.getProperty(key));
+        return valor != null && !valor.isBlank() ? valor.trim() : valorDefecto;
+    }
+
+    /**
+     * Obtiene un parametro entero de la configuracion.
+     *
+     * @param key          La clave del parametro.
+     * @param valorDefecto Valor devuelto si la clave no existe o no es un numero.
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static int getInt(String key, int valorDefecto) {
+        String valor = getString(key, null);
+        if (valor == null) {
+            return valorDefecto;
+        }
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            logger.warning("Valor no numérico para " + key + ": " + valor + ". Se usará " + valorDefecto);
+            return valorDefecto;
+        }
+    }
+
+    /**
+     * Obtiene un parametro entero largo de la configuracion.
+     *
+     * @param key          La clave del parametro.
+     * @param valorDefecto Valor devuelto si la clave no existe o no es un numero.
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static long getLong(String key, long valorDefecto) {
+        String valor = getString(key, null);
+        if (valor == null) {
+            return valorDefecto;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            logger.warning("Valor no numérico para " + key + ": " + valor + ". Se usará " + valorDefecto);
+            return valorDefecto;
+        }
+    }
+
+    /**
+     * Obtiene un parametro booleano de la configuracion.
+     *
+     * @param key          La clave del parametro.
+     * @param valorDefecto Valor devuelto si la clave no existe.
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static boolean getBoolean(String key, boolean valorDefecto) {
+        String valor = getString(key, null);
+        return valor != null ? Boolean.parseBoolean(valor) : valorDefecto;
+    }
+}
@@ -0,0 +1,497 @@
+package com.eiman.biblioteca.utils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool acotado de conexiones JDBC que implementa {@link DataSource}.
+ * Las conexiones se prestan envueltas en un proxy cuyo {@code close()} las devuelve al pool
+ * en lugar de cerrar el socket, de modo que los DAO pueden seguir usando try-with-resources.
+ * Las conexiones ociosas demasiado tiempo o que superan su vida maxima se descartan,
+ * y antes de prestar una conexion que lleva un rato sin usarse se valida con el servidor.
+ * Cada conexion fisica mantiene ademas una {@link StatementCache} con sus sentencias preparadas.
+ */
+public class ConnectionPool implements DataSource {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Una conexion usada hace menos de este tiempo se presta sin volver a validarla.
+     */
+    private static final long VALIDACION_OMITIDA_MS = 500;
+
+    private final String url;
+    private final Properties propiedades;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long borrowTimeoutMs;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+
+    private final Semaphore permisos;
+    private final Deque<ConexionAgrupada> libres = new ArrayDeque<>();
+    private final ScheduledExecutorService limpieza;
+    private volatile boolean cerrado;
+
+    private final LongAdder conexionesCreadas = new LongAdder();
+    private final LongAdder conexionesDescartadas = new LongAdder();
+    private final LongAdder prestamos = new LongAdder();
+    private final LongAdder esperasAgotadas = new LongAdder();
+    private final LongAdder tiempoPrestadoNanos = new LongAdder();
+    private final AtomicLong maxPrestadoNanos = new AtomicLong();
+    private final LongAdder aciertosSentencias = new LongAdder();
+    private final LongAdder fallosSentencias = new LongAdder();
+
+    /**
+     * Crea un pool de conexiones.
+     *
+     * @param url                  URL JDBC de la base de datos.
+     * @param propiedades          Propiedades del driver, incluidos el usuario y la contraseña.
+     * @param maxSize              Numero maximo de conexiones abiertas a la vez.
+     * @param idleTimeoutMs        Tiempo maximo que una conexion puede estar ociosa en el pool.
+     * @param maxLifetimeMs        Tiempo maximo de vida de una conexion desde que se abrio.
+     * @param borrowTimeoutMs      Tiempo maximo de espera por una conexion libre.
+     * @param validationTimeoutSec Tiempo maximo de la validacion con el servidor.
+     * @param statementCacheSize   Sentencias preparadas guardadas por conexion (0 para desactivar la cache).
+     */
+    public ConnectionPool(String url, Properties propiedades, int maxSize, long idleTimeoutMs,
+                          long maxLifetimeMs, long borrowTimeoutMs, int validationTimeoutSec,
+                          int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo del pool debe ser positivo.");
+        }
+        this.url = url;
+        this.propiedades = propiedades;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.statementCacheSize = statementCacheSize;
+        this.permisos = new Semaphore(maxSize, true);
+
+        this.limpieza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-limpieza");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1000, Math.min(idleTimeoutMs, maxLifetimeMs) / 2);
+        limpieza.scheduleWithFixedDelay(this::descartarCaducadas, periodo, periodo, TimeUnit.MILLISECONDS);
+        logger.info("Pool de conexiones creado con un máximo de " + maxSize + " conexiones.");
+    }
+
+    /**
+     * Presta una conexion del pool, abriendo una nueva si no hay ninguna libre y no se ha alcanzado el maximo.
+     * La conexion debe cerrarse para devolverla al pool.
+     *
+     * @return Una conexion lista para usarse.
+     * @throws SQLException Si el pool esta cerrado, se agota la espera o no se puede abrir la conexion.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+        try {
+            if (!permisos.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                esperasAgotadas.increment();
+                throw new SQLTransientConnectionException("No hay conexiones libres tras esperar " + borrowTimeoutMs + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido mientras se esperaba una conexión.", e);
+        }
+
+        try {
+            ConexionAgrupada conexion = obtenerLibreValida();
+            if (conexion == null) {
+                conexion = crear();
+            }
+            prestamos.increment();
+            return conexion.prestar();
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Saca del pool la conexion libre usada mas recientemente, descartando las caducadas o invalidas.
+     *
+     * @return Una conexion libre valida, o null si no queda ninguna.
+     */
+    private ConexionAgrupada obtenerLibreValida() {
+        while (true) {
+            ConexionAgrupada conexion;
+            synchronized (libres) {
+                conexion = libres.pollFirst();
+            }
+            if (conexion == null) {
+                return null;
+            }
+            long ahora = System.currentTimeMillis();
+            if (conexion.caducada(ahora) || !conexion.valida(ahora)) {
+                descartar(conexion);
+                continue;
+            }
+            return conexion;
+        }
+    }
+
+    /**
+     * Abre una nueva conexion fisica con la base de datos.
+     */
+    private ConexionAgrupada crear() throws SQLException {
+        logger.info("Abriendo nueva conexión física a la base de datos.");
+        Connection real = DriverManager.getConnection(url, propiedades);
+        conexionesCreadas.increment();
+        return new ConexionAgrupada(real);
+    }
+
+    /**
+     * Devuelve al pool una conexion prestada, registrando el tiempo que ha estado fuera.
+     */
+    private void devolver(ConexionAgrupada conexion, long nanosPrestada) {
+        tiempoPrestadoNanos.add(nanosPrestada);
+        maxPrestadoNanos.accumulateAndGet(nanosPrestada, Math::max);
+        try {
+            if (cerrado || conexion.caducada(System.currentTimeMillis()) || !conexion.restablecer()) {
+                descartar(conexion);
+            } else {
+                synchronized (libres) {
+                    libres.addFirst(conexion);
+                }
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra fisicamente una conexion que ya no debe volver al pool.
+     */
+    private void descartar(ConexionAgrupada conexion) {
+        conexionesDescartadas.increment();
+        conexion.cerrarFisica();
+    }
+
+    /**
+     * Tarea periodica que cierra las conexiones libres que han superado el tiempo ocioso o de vida.
+     */
+    private void descartarCaducadas() {
+        long ahora = System.currentTimeMillis();
+        List<ConexionAgrupada> caducadas = new ArrayList<>();
+        synchronized (libres) {
+            Iterator<ConexionAgrupada> it = libres.iterator();
+            while (it.hasNext()) {
+                ConexionAgrupada conexion = it.next();
+                if (conexion.caducada(ahora) || ahora - conexion.ultimoUso > idleTimeoutMs) {
+                    it.remove();
+                    caducadas.add(conexion);
+                }
+            }
+        }
+        if (!caducadas.isEmpty()) {
+            logger.info("Cerrando " + caducadas.size() + " conexiones ociosas o caducadas.");
+            caducadas.forEach(this::descartar);
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres.
+     * Las conexiones prestadas se cierran fisicamente cuando se devuelven.
+     */
+    public void close() {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        limpieza.shutdownNow();
+        List<ConexionAgrupada> pendientes;
+        synchronized (libres) {
+            pendientes = new ArrayList<>(libres);
+            libres.clear();
+        }
+        pendientes.forEach(this::descartar);
+        logger.info("Pool de conexiones cerrado. " + resumenEstadisticas());
+    }
+
+    /**
+     * Obtiene el numero de conexiones libres en el pool.
+     *
+     * @return Conexiones abiertas pero sin prestar.
+     */
+    public int getConexionesLibres() {
+        synchronized (libres) {
+            return libres.size();
+        }
+    }
+
+    /**
+     * Obtiene el numero de conexiones prestadas en este momento.
+     *
+     * @return Conexiones en uso.
+     */
+    public int getConexionesPrestadas() {
+        return maxSize - permisos.availablePermits();
+    }
+
+    /**
+     * Obtiene el numero total de prestamos realizados.
+     *
+     * @return Prestamos de conexion desde la creacion del pool.
+     */
+    public long getPrestamosTotales() {
+        return prestamos.sum();
+    }
+
+    /**
+     * Obtiene el tiempo medio que una conexion permanece prestada.
+     *
+     * @return Tiempo medio de prestamo en milisegundos.
+     */
+    public double getTiempoMedioPrestamoMs() {
+        long total = prestamos.sum();
+        return total == 0 ? 0 : tiempoPrestadoNanos.sum() / 1_000_000.0 / total;
+    }
+
+    /**
+     * Obtiene el tiempo maximo que una conexion ha permanecido prestada.
+     *
+     * @return Tiempo maximo de prestamo en milisegundos.
+     */
+    public double getTiempoMaximoPrestamoMs() {
+        return maxPrestadoNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Obtiene el numero de sentencias preparadas servidas desde la cache.
+     *
+     * @return Aciertos de la cache de sentencias en todas las conexiones.
+     */
+    public long getAciertosCacheSentencias() {
+        return aciertosSentencias.sum();
+    }
+
+    /**
+     * Obtiene el numero de sentencias que hubo que preparar por no estar en la cache.
+     *
+     * @return Fallos de la cache de sentencias en todas las conexiones.
+     */
+    public long getFallosCacheSentencias() {
+        return fallosSentencias.sum();
+    }
+
+    /**
+     * Devuelve un resumen legible de las metricas del pool.
+     *
+     * @return Cadena con las estadisticas de uso del pool.
+     */
+    public String resumenEstadisticas() {
+        return String.format("Préstamos: %d, media: %.2f ms, máximo: %.2f ms, creadas: %d, descartadas: %d, "
+                        + "esperas agotadas: %d, sentencias cacheadas: %d aciertos / %d fallos",
+                prestamos.sum(), getTiempoMedioPrestamoMs(), getTiempoMaximoPrestamoMs(),
+                conexionesCreadas.sum(), conexionesDescartadas.sum(), esperasAgotadas.sum(),
+                aciertosSentencias.sum(), fallosSentencias.sum());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool solo admite las credenciales con las que se creó.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("El pool no envuelve " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Conexion fisica gestionada por el pool junto con sus datos de uso.
+     */
+    private class ConexionAgrupada {
+        private final Connection real;
+        private final StatementCache sentencias;
+        private final long creadaEn = System.currentTimeMillis();
+        private long ultimoUso = creadaEn;
+        private boolean autoCommitModificado;
+
+        ConexionAgrupada(Connection real) {
+            this.real = real;
+            this.sentencias = statementCacheSize > 0
+                    ? new StatementCache(real, statementCacheSize, aciertosSentencias, fallosSentencias)
+                    : null;
+        }
+
+        boolean caducada(long ahora) {
+            return ahora - creadaEn > maxLifetimeMs;
+        }
+
+        boolean valida(long ahora) {
+            if (ahora - ultimoUso < VALIDACION_OMITIDA_MS) {
+                return true;
+            }
+            try {
+                return real.isValid(validationTimeoutSec);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error al validar una conexión del pool.", e);
+                return false;
+            }
+        }
+
+        /**
+         * Deshace cualquier transaccion pendiente y restaura el autocommit antes de reutilizar la conexion.
+         *
+         * @return true si la conexion puede volver al pool.
+         */
+        boolean restablecer() {
+            try {
+                if (real.isClosed()) {
+                    return false;
+                }
+                if (autoCommitModificado) {
+                    if (!real.getAutoCommit()) {
+                        real.rollback();
+                        real.setAutoCommit(true);
+                    }
+                    autoCommitModificado = false;
+                }
+                real.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "No se pudo restablecer una conexión del pool.", e);
+                return false;
+            }
+        }
+
+        void cerrarFisica() {
+            if (sentencias != null) {
+                sentencias.cerrar();
+            }
+            try {
+                real.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error al cerrar una conexión física.", e);
+            }
+        }
+
+        /**
+         * Crea el proxy que recibira el DAO durante este prestamo.
+         */
+        Connection prestar() {
+            PrestamoConexion prestamo = new PrestamoConexion(this);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, prestamo);
+        }
+    }
+
+    /**
+     * Manejador del proxy de un unico prestamo. Tras cerrarlo, el proxy deja de ser utilizable
+     * aunque la conexion fisica siga viva dentro del pool.
+     */
+    private class PrestamoConexion implements InvocationHandler {
+        private final ConexionAgrupada conexion;
+        private final long inicio = System.nanoTime();
+        private boolean devuelta;
+
+        PrestamoConexion(ConexionAgrupada conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!devuelta) {
+                        devuelta = true;
+                        conexion.ultimoUso = System.currentTimeMillis();
+                        devolver(conexion, System.nanoTime() - inicio);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return devuelta || conexion.real.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "ConexionPool[" + conexion.real + "]";
+                }
+                default -> {
+                }
+            }
+            if (devuelta) {
+                throw new SQLException("La conexión ya se ha devuelto al pool.");
+            }
+            if (method.getName().equals("setAutoCommit")) {
+                conexion.autoCommitModificado = true;
+            }
+            if (conexion.sentencias != null && method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                return conexion.sentencias.preparar((String) args[0], args.length == 2 ? (Integer) args[1] : null);
+            }
+            try {
+                return method.invoke(conexion.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package com.eiman.biblioteca.utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.logging.Level;
+import java.util.Properties;
 import java.util.logging.Logger;
 
 /**
  * Clase que gestiona la conexión a la base de datos utilizando configuraciones cargadas desde un archivo de propiedades.
+ * Las conexiones se obtienen de un {@link ConnectionPool}, por lo que cerrarlas las devuelve al pool
+ * sin cerrar el socket con el servidor.
  */
 public class DatabaseConnection {
     private static final Logger logger = Logger.getLogger(DatabaseConnection.class.getName());
     private static String URL;
     private static String USER;
     private static String PASSWORD;
-    private static Connection connection;
+    private static ConnectionPool pool;
 
     /**
      * Establece los datos de la conexión.
@@ -23,7 +24,8 @@ public class DatabaseConnection {
      * @param user     Usuario de la base de datos.
      * @param password Contraseña de la base de datos.
      */
-    public static void setConnectionData(String url, String user, String password) {
+    public static synchronized void setConnectionData(String url, String user, String password) {
+        closeConnection();
         URL = url;
         USER = user;
         PASSWORD = password;
@@ -31,31 +33,50 @@ public class DatabaseConnection {
     }
 
     /**
-     * Obtiene la conexión a la base de datos.
+     * Obtiene una conexión del pool de la base de datos.
+     * La conexión debe cerrarse tras su uso para devolverla al pool.
      *
      * @return La conexión a la base de datos.
      * @throws SQLException Si ocurre un error en la conexión.
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            logger.info("Estableciendo nueva conexión a la base de datos.");
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            logger.info("Conexión a la base de datos establecida con éxito.");
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Obtiene el pool de conexiones, creándolo la primera vez con los datos de conexión establecidos
+     * y los parámetros de ajuste del archivo de configuración.
+     *
+     * @return El pool de conexiones.
+     */
+    public static synchronized ConnectionPool getDataSource() {
+        if (pool == null) {
+            logger.info("Creando el pool de conexiones a la base de datos.");
+            Properties propiedades = new Properties();
+            propiedades.setProperty("user", USER);
+            propiedades.setProperty("password", PASSWORD);
+            // Sentencias preparadas en el servidor para que la cache de sentencias evite volver a analizarlas
+            propiedades.setProperty("useServerPrepStmts",
+                    String.valueOf(Configuracion.getBoolean("db.useServerPrepStmts", true)));
+            pool = new ConnectionPool(URL, propiedades,
+                    Configuracion.getInt("db.pool.max", 5),
+                    Configuracion.getLong("db.pool.idleTimeoutMs", 300_000),
+                    Configuracion.getLong("db.pool.maxLifetimeMs", 1_800_000),
+                    Configuracion.getLong("db.pool.borrowTimeoutMs", 10_000),
+                    Configuracion.getInt("db.pool.validationTimeoutSec", 2),
+                    Configuracion.getInt("db.pool.statementCacheSize", 50));
         }
-        return connection;
+        return pool;
     }
 
     /**
-     * Cierra la conexión a la base de datos si está abierta.
+     * Cierra el pool de conexiones a la base de datos si está abierto.
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                logger.info("Conexión a la base de datos cerrada correctamente.");
-            } catch (SQLException e) {
-                logger.log(Level.SEVERE, "Error al cerrar la conexión a la base de datos.", e);
-            }
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            logger.info("Conexión a la base de datos cerrada correctamente.");
         }
     }
 }
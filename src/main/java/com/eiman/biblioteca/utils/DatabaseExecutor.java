@@ -0,0 +1,120 @@
+package com.eiman.biblioteca.utils;
+
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ejecutor de las tareas de base de datos fuera del hilo de la aplicacion JavaFX.
+ * Usa un numero de hilos igual al tamaño del pool de conexiones, de forma que ninguna tarea
+ * se queda bloqueada esperando una conexion, y devuelve los resultados al hilo de JavaFX
+ * mediante {@link Platform#runLater(Runnable)}.
+ */
+public class DatabaseExecutor {
+    private static final Logger logger = Logger.getLogger(DatabaseExecutor.class.getName());
+    private static final AtomicInteger contador = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Configuracion.getInt("db.pool.max", 5), r -> {
+                Thread t = new Thread(r, "bd-async-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    /**
+     * Segundos que se espera al cerrar la aplicacion a que terminen las tareas de base de datos.
+     */
+    private static final int ESPERA_CIERRE = Configuracion.getInt("db.shutdownTimeoutSec", 30);
+
+    private DatabaseExecutor() {
+    }
+
+    /**
+     * Ejecuta una tarea que devuelve un resultado en un hilo de base de datos.
+     *
+     * @param tarea La tarea a ejecutar.
+     * @param <T>   Tipo del resultado.
+     * @return Un futuro que se completa con el resultado de la tarea.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> tarea) {
+        return CompletableFuture.supplyAsync(tarea, executor);
+    }
+
+    /**
+     * Ejecuta una tarea sin resultado en un hilo de base de datos.
+     *
+     * @param tarea La tarea a ejecutar.
+     * @return Un futuro que se completa cuando termina la tarea.
+     */
+    public static CompletableFuture<Void> run(Runnable tarea) {
+        return CompletableFuture.runAsync(tarea, executor);
+    }
+
+    /**
+     * Registra las acciones a realizar en el hilo de JavaFX cuando el futuro termine.
+     *
+     * @param futuro  El futuro de la tarea de base de datos.
+     * @param onExito Accion a realizar con el resultado si la tarea termina correctamente.
+     * @param onError Accion a realizar con la causa del error si la tarea falla.
+     * @param <T>     Tipo del resultado.
+     */
+    public static <T> void enFx(CompletableFuture<T> futuro, Consumer<? super T> onExito, Consumer<Throwable> onError) {
+        futuro.whenComplete((resultado, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onExito.accept(resultado);
+            } else {
+                Throwable causa = causa(error);
+                logger.log(Level.SEVERE, "Error en una tarea de base de datos.", causa);
+                onError.accept(causa);
+            }
+        }));
+    }
+
+    /**
+     * Obtiene la causa real de un error envuelto por un futuro.
+     *
+     * @param error El error recibido del futuro.
+     * @return La excepcion original lanzada por la tarea.
+     */
+    public static Throwable causa(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Detiene el ejecutor dejando terminar las tareas en curso y las pendientes, como una devolucion,
+     * un guardado o una importacion, durante como mucho {@code db.shutdownTimeoutSec} segundos.
+     * Las que no terminan a tiempo se interrumpen, por lo que sus transacciones se deshacen, y se registran.
+     * Debe llamarse antes de cerrar el pool de conexiones.
+     */
+    public static void shutdown() {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(ESPERA_CIERRE, TimeUnit.SECONDS)) {
+                return;
+            }
+            List<Runnable> pendientes = executor.shutdownNow();
+            logger.warning("Las tareas de base de datos no terminaron en " + ESPERA_CIERRE + " segundos: se interrumpen"
+                    + " las que estaban en curso y se descartan " + pendientes.size() + " pendientes.");
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warning("Algunas tareas de base de datos siguen en curso al cerrar la aplicación.");
+            }
+        } catch (InterruptedException e) {
+            List<Runnable> pendientes = executor.shutdownNow();
+            logger.log(Level.WARNING, "Interrumpida la espera de las tareas de base de datos; se descartan "
+                    + pendientes.size() + " pendientes.", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
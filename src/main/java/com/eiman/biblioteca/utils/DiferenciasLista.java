@@ -0,0 +1,91 @@
+package com.eiman.biblioteca.utils;
+
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Actualiza una lista observable para que coincida con una instantanea nueva de los mismos datos,
+ * comparando los elementos por su clave primaria y aplicando solo las altas, bajas y modificaciones.
+ * Los elementos que no han cambiado conservan su instancia, por lo que la tabla que muestra la lista
+ * no vuelve a dibujar esas filas y mantiene la posicion de desplazamiento.
+ */
+public class DiferenciasLista {
+
+    private DiferenciasLista() {
+    }
+
+    /**
+     * Resultado de aplicar una instantanea.
+     *
+     * @param añadidos    Elementos nuevos insertados en la lista.
+     * @param modificados Elementos reemplazados por su version nueva.
+     * @param eliminados  Elementos que ya no estaban en la instantanea.
+     */
+    public record Cambios(int añadidos, int modificados, int eliminados) {
+        /**
+         * @return true si la lista no ha cambiado.
+         */
+        public boolean ninguno() {
+            return añadidos == 0 && modificados == 0 && eliminados == 0;
+        }
+    }
+
+    /**
+     * Aplica una instantanea a la lista. Al terminar la lista tiene los elementos de la instantanea y en su orden.
+     *
+     * @param actual      La lista a actualizar.
+     * @param instantanea Los elementos actuales, sin claves repetidas.
+     * @param clave       Obtiene la clave primaria de un elemento.
+     * @param iguales     Indica si dos elementos con la misma clave tienen los mismos datos.
+     * @param <T>         Tipo de los elementos.
+     * @return Los cambios aplicados.
+     */
+    public static <T> Cambios aplicar(ObservableList<T> actual, List<? extends T> instantanea,
+                                      Function<? super T, ?> clave, BiPredicate<? super T, ? super T> iguales) {
+        Set<Object> claves = new HashSet<>();
+        for (T elemento : instantanea) {
+            claves.add(clave.apply(elemento));
+        }
+        int antes = actual.size();
+        // Una sola notificacion para todas las bajas
+        actual.removeIf(elemento -> !claves.contains(clave.apply(elemento)));
+        int eliminados = antes - actual.size();
+
+        Map<Object, T> restantes = new HashMap<>();
+        for (T elemento : actual) {
+            restantes.put(clave.apply(elemento), elemento);
+        }
+        int añadidos = 0;
+        int modificados = 0;
+        for (int i = 0; i < instantanea.size(); i++) {
+            T nuevo = instantanea.get(i);
+            Object k = clave.apply(nuevo);
+            T existente = restantes.remove(k);
+            if (existente == null) {
+                actual.add(i, nuevo);
+                añadidos++;
+                continue;
+            }
+            if (i >= actual.size() || actual.get(i) != existente) {
+                // Fuera de su sitio, por ejemplo un alta añadida al final de la tabla: se mueve
+                actual.remove(existente);
+                actual.add(i, existente);
+            }
+            if (!iguales.test(existente, nuevo)) {
+                actual.set(i, nuevo);
+                modificados++;
+            }
+        }
+        if (actual.size() > instantanea.size()) {
+            actual.remove(instantanea.size(), actual.size());
+        }
+        return new Cambios(añadidos, modificados, eliminados);
+    }
+}
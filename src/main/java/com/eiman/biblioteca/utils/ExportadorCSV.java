@@ -0,0 +1,98 @@
+package com.eiman.biblioteca.utils;
+
+import com.eiman.biblioteca.dao.HistoricoPrestamoDAO;
+import com.eiman.biblioteca.models.HistoricoPrestamo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
+
+/**
+ * Exporta el historial de prestamos a un archivo CSV.
+ * Los registros se escriben segun se leen de la base de datos en streaming, de modo que
+ * nunca se tiene el historial entero en memoria por grande que sea.
+ * El archivo usa ';' como separador y UTF-8 con marca de orden de bytes, para que las hojas de calculo
+ * lo abran con los acentos correctos.
+ */
+public class ExportadorCSV {
+    private static final Logger logger = Logger.getLogger(ExportadorCSV.class.getName());
+    private static final char SEPARADOR = ';';
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private ExportadorCSV() {
+    }
+
+    /**
+     * Exporta todo el historial de prestamos, ordenado por id, al archivo indicado.
+     * Si la exportacion falla, se borra el archivo para no dejar una exportacion incompleta.
+     *
+     * @param destino El archivo CSV a crear o sobrescribir.
+     * @return El numero de registros exportados.
+     * @throws IOException  Si no se puede escribir el archivo.
+     * @throws SQLException Si falla la lectura del historial.
+     */
+    public static long exportarHistoricos(Path destino) throws IOException, SQLException {
+        logger.info("Exportando el historial de préstamos a: " + destino);
+        boolean completada = false;
+        try (BufferedWriter writer = Files.newBufferedWriter(destino, StandardCharsets.UTF_8)) {
+            writer.write('\uFEFF');
+            escribirFila(writer, "id_prestamo", "dni_alumno", "alumno", "codigo_libro", "libro",
+                    "fecha_prestamo", "fecha_devolucion");
+
+            long total = new HistoricoPrestamoDAO().recorrerHistoricos(historico -> {
+                try {
+                    escribirFila(writer,
+                            String.valueOf(historico.getIdPrestamo()),
+                            historico.getDniAlumno(),
+                            historico.getNombreAlumno(),
+                            String.valueOf(historico.getCodigoLibro()),
+                            historico.getTituloLibro(),
+                            formatear(historico.getFechaPrestamo()),
+                            formatear(historico.getFechaDevolucion()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            completada = true;
+            logger.info("Exportación terminada: " + total + " registros.");
+            return total;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!completada) {
+                Files.deleteIfExists(destino);
+            }
+        }
+    }
+
+    /**
+     * Escribe una fila CSV, poniendo entre comillas los campos que contienen el separador, comillas o saltos de linea.
+     */
+    private static void escribirFila(BufferedWriter writer, String... campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARADOR);
+            }
+            String campo = campos[i] == null ? "" : campos[i];
+            if (campo.indexOf(SEPARADOR) >= 0 || campo.indexOf('"') >= 0 || campo.indexOf('\n') >= 0 || campo.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(campo.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(campo);
+            }
+        }
+        writer.newLine();
+    }
+
+    private static String formatear(LocalDateTime fecha) {
+        return fecha == null ? "" : fecha.format(FORMATO_FECHA);
+    }
+}
@@ -0,0 +1,240 @@
+package com.eiman.biblioteca.utils;
+
+import com.eiman.biblioteca.dao.AlumnoDAO;
+import com.eiman.biblioteca.dao.LibroDAO;
+import com.eiman.biblioteca.dao.ResultadoLote;
+import com.eiman.biblioteca.models.Alumno;
+import com.eiman.biblioteca.models.Libro;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Importa alumnos y libros desde archivos CSV.
+ * El archivo se lee linea a linea: las filas se validan y se acumulan hasta completar un bloque,
+ * que se inserta por lotes antes de seguir leyendo, de modo que nunca se tiene el archivo entero en memoria.
+ * Los campos se separan por ';' o ',' (se detecta con la primera linea) y pueden ir entre comillas dobles.
+ * Si la primera linea es una cabecera con los nombres de las columnas, se ignora.
+ */
+public class ImportadorCSV {
+    private static final Logger logger = Logger.getLogger(ImportadorCSV.class.getName());
+    private static final int TAMAÑO_BLOQUE = Configuracion.getInt("db.batchSize", 500);
+
+    private ImportadorCSV() {
+    }
+
+    /**
+     * Informe del resultado de una importacion.
+     */
+    public static class Informe {
+        private int filasLeidas;
+        private int insertadas;
+        private final List<String> errores = new ArrayList<>();
+
+        /**
+         * @return El numero de filas de datos leidas, sin contar la cabecera ni las lineas vacias.
+         */
+        public int getFilasLeidas() {
+            return filasLeidas;
+        }
+
+        /**
+         * @return El numero de filas insertadas en la base de datos.
+         */
+        public int getInsertadas() {
+            return insertadas;
+        }
+
+        /**
+         * @return Los errores de cada fila no importada, con su numero de linea.
+         */
+        public List<String> getErrores() {
+            return Collections.unmodifiableList(errores);
+        }
+
+        private void error(int linea, String mensaje) {
+            errores.add(LanguageManager.getProperty("linea") + " " + linea + ": " + mensaje);
+        }
+    }
+
+    /**
+     * Importa alumnos desde un CSV con las columnas dni, nombre, apellido1 y apellido2.
+     *
+     * @param archivo El archivo CSV, en UTF-8.
+     * @return El informe de la importacion.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public static Informe importarAlumnos(Path archivo) throws IOException {
+        AlumnoDAO alumnoDAO = new AlumnoDAO();
+        return importar(archivo, "dni", campos -> {
+            comprobarColumnas(campos, 4, 4);
+            String dni = obligatorio(campos[0], "dni", 9);
+            return new Alumno(dni,
+                    opcional(campos[1], "nombre", 150),
+                    opcional(campos[2], "apellido1", 150),
+                    opcional(campos[3], "apellido2", 150));
+        }, alumnoDAO::insertarAlumnos);
+    }
+
+    /**
+     * Importa libros desde un CSV con las columnas titulo, autor, editorial, estado y, opcionalmente, baja (0 o 1).
+     *
+     * @param archivo El archivo CSV, en UTF-8.
+     * @return El informe de la importacion.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public static Informe importarLibros(Path archivo) throws IOException {
+        LibroDAO libroDAO = new LibroDAO();
+        return importar(archivo, "titulo", campos -> {
+            comprobarColumnas(campos, 4, 5);
+            String titulo = obligatorio(campos[0], "titulo", 150);
+            int baja = 0;
+            if (campos.length == 5 && !campos[4].isBlank()) {
+                baja = switch (campos[4].trim()) {
+                    case "0" -> 0;
+                    case "1" -> 1;
+                    default -> throw new IllegalArgumentException(LanguageManager.getProperty("csv.baja.invalida"));
+                };
+            }
+            return new Libro(0, titulo,
+                    opcional(campos[1], "autor", 200),
+                    opcional(campos[2], "editorial", 150),
+                    opcional(campos[3], "estado", 50),
+                    baja, null);
+        }, libroDAO::insertarLibros);
+    }
+
+    /**
+     * Lee el archivo por bloques, convirtiendo cada linea con el conversor y guardando cada bloque con el insertador.
+     *
+     * @param archivo        El archivo CSV.
+     * @param primeraColumna Nombre de la primera columna, para reconocer la cabecera.
+     * @param conversor      Convierte los campos de una fila en el elemento; lanza IllegalArgumentException si no son validos.
+     * @param insertador     Inserta un bloque de elementos.
+     * @param <T>            Tipo de los elementos importados.
+     * @return El informe de la importacion.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    private static <T> Informe importar(Path archivo, String primeraColumna, Function<String[], T> conversor,
+                                        Function<List<T>, ResultadoLote> insertador) throws IOException {
+        logger.info("Importando CSV: " + archivo);
+        Informe informe = new Informe();
+        List<T> bloque = new ArrayList<>(TAMAÑO_BLOQUE);
+        List<Integer> lineasBloque = new ArrayList<>(TAMAÑO_BLOQUE);
+
+        try (BufferedReader reader = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            int numero = 0;
+            char separador = 0;
+            while ((linea = reader.readLine()) != null) {
+                numero++;
+                // Marca de orden de bytes que añaden algunas hojas de calculo al exportar
+                if (numero == 1 && !linea.isEmpty() && linea.charAt(0) == '\uFEFF') {
+                    linea = linea.substring(1);
+                }
+                if (linea.isBlank()) {
+                    continue;
+                }
+                if (separador == 0) {
+                    separador = linea.indexOf(';') >= 0 ? ';' : ',';
+                    if (linea.trim().toLowerCase().startsWith(primeraColumna)) {
+                        continue;
+                    }
+                }
+
+                informe.filasLeidas++;
+                try {
+                    bloque.add(conversor.apply(separar(linea, separador)));
+                    lineasBloque.add(numero);
+                } catch (IllegalArgumentException e) {
+                    informe.error(numero, e.getMessage());
+                }
+
+                if (bloque.size() >= TAMAÑO_BLOQUE) {
+                    guardarBloque(bloque, lineasBloque, insertador, informe);
+                }
+            }
+        }
+        guardarBloque(bloque, lineasBloque, insertador, informe);
+        logger.info("Importación terminada: " + informe.insertadas + " de " + informe.filasLeidas
+                + " filas insertadas, " + informe.errores.size() + " errores.");
+        return informe;
+    }
+
+    private static <T> void guardarBloque(List<T> bloque, List<Integer> lineasBloque,
+                                          Function<List<T>, ResultadoLote> insertador, Informe informe) {
+        if (bloque.isEmpty()) {
+            return;
+        }
+        ResultadoLote resultado = insertador.apply(bloque);
+        informe.insertadas += resultado.getInsertados();
+        for (Map.Entry<Integer, String> error : resultado.getErrores().entrySet()) {
+            informe.error(lineasBloque.get(error.getKey()), error.getValue());
+        }
+        bloque.clear();
+        lineasBloque.clear();
+    }
+
+    /**
+     * Separa una linea CSV en campos, respetando los campos entre comillas dobles y las comillas escapadas ("").
+     */
+    private static String[] separar(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString().trim());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException(LanguageManager.getProperty("csv.comillas"));
+        }
+        campos.add(actual.toString().trim());
+        return campos.toArray(new String[0]);
+    }
+
+    private static void comprobarColumnas(String[] campos, int minimo, int maximo) {
+        if (campos.length < minimo || campos.length > maximo) {
+            throw new IllegalArgumentException(LanguageManager.getProperty("csv.columnas") + " " + campos.length);
+        }
+    }
+
+    private static String obligatorio(String valor, String campo, int longitudMaxima) {
+        if (valor.isEmpty()) {
+            throw new IllegalArgumentException(LanguageManager.getProperty("csv.campo.vacio") + " " + campo);
+        }
+        return opcional(valor, campo, longitudMaxima);
+    }
+
+    private static String opcional(String valor, String campo, int longitudMaxima) {
+        if (valor.length() > longitudMaxima) {
+            throw new IllegalArgumentException(LanguageManager.getProperty("csv.campo.largo") + " " + campo);
+        }
+        return valor.isEmpty() ? null : valor;
+    }
+}
@@ -0,0 +1,155 @@
+package com.eiman.biblioteca.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Indice en memoria de las palabras de unos elementos, para buscarlos al instante mientras se escribe.
+ * Las palabras se guardan sin acentos y en minusculas, de modo que "garcia" encuentra "García",
+ * y cada palabra de la busqueda se compara como prefijo: "gar lop" encuentra a "García López".
+ * <p>
+ * Las palabras se guardan ordenadas, asi que las que empiezan por un prefijo forman un rango contiguo
+ * y una busqueda no recorre todos los elementos. El indice se actualiza desde el hilo de JavaFX a medida
+ * que cambia la lista y se consulta desde otro hilo, por lo que cada operacion esta sincronizada.
+ *
+ * @param <T> Tipo de los elementos indexados; se comparan por identidad.
+ */
+public class IndiceBusqueda<T> {
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Function<? super T, String[]> textos;
+    /** Elementos que contienen cada palabra. */
+    private final NavigableMap<String, Set<T>> palabras = new TreeMap<>();
+    /** Palabras de cada elemento, para poder quitarlo. */
+    private final Map<T, List<String>> palabrasPorElemento = new IdentityHashMap<>();
+
+    /**
+     * Crea un indice vacio.
+     *
+     * @param textos Obtiene los textos a indexar de un elemento; los null se ignoran.
+     */
+    public IndiceBusqueda(Function<? super T, String[]> textos) {
+        this.textos = textos;
+    }
+
+    /**
+     * Añade elementos al indice.
+     *
+     * @param elementos Los elementos a añadir.
+     */
+    public synchronized void añadir(Collection<? extends T> elementos) {
+        for (T elemento : elementos) {
+            List<String> suyas = new ArrayList<>();
+            for (String texto : textos.apply(elemento)) {
+                suyas.addAll(palabras(texto));
+            }
+            palabrasPorElemento.put(elemento, suyas);
+            for (String palabra : suyas) {
+                palabras.computeIfAbsent(palabra, p -> Collections.newSetFromMap(new IdentityHashMap<>())).add(elemento);
+            }
+        }
+    }
+
+    /**
+     * Quita elementos del indice.
+     *
+     * @param elementos Los elementos a quitar.
+     */
+    public synchronized void quitar(Collection<? extends T> elementos) {
+        for (T elemento : elementos) {
+            List<String> suyas = palabrasPorElemento.remove(elemento);
+            if (suyas == null) {
+                continue;
+            }
+            for (String palabra : suyas) {
+                Set<T> conPalabra = palabras.get(palabra);
+                if (conPalabra != null) {
+                    conPalabra.remove(elemento);
+                    if (conPalabra.isEmpty()) {
+                        palabras.remove(palabra);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca los elementos que contienen, como comienzo de alguna de sus palabras, todas las palabras de la consulta.
+     *
+     * @param consulta El texto buscado.
+     * @return Los elementos encontrados (un conjunto por identidad), o null si la consulta no tiene palabras.
+     */
+    public synchronized Set<T> buscar(String consulta) {
+        List<String> prefijos = palabras(consulta);
+        if (prefijos.isEmpty()) {
+            return null;
+        }
+        Set<T> resultado = null;
+        for (String prefijo : prefijos) {
+            Set<T> encontrados = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Set<T> conPalabra : palabras.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false).values()) {
+                if (resultado == null) {
+                    encontrados.addAll(conPalabra);
+                } else {
+                    // Solo hace falta conservar los que ya cumplian las palabras anteriores
+                    for (T elemento : conPalabra) {
+                        if (resultado.contains(elemento)) {
+                            encontrados.add(elemento);
+                        }
+                    }
+                }
+            }
+            resultado = encontrados;
+            if (resultado.isEmpty()) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Vacia el indice.
+     */
+    public synchronized void vaciar() {
+        palabras.clear();
+        palabrasPorElemento.clear();
+    }
+
+    /**
+     * Quita los acentos y pasa a minusculas un texto, para compararlo sin tenerlos en cuenta.
+     *
+     * @param texto El texto.
+     * @return El texto normalizado, o una cadena vacia si es null.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide un texto normalizado en palabras.
+     */
+    private static List<String> palabras(String texto) {
+        List<String> resultado = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(normalizar(texto))) {
+            if (!palabra.isEmpty()) {
+                resultado.add(palabra);
+            }
+        }
+        return resultado;
+    }
+}
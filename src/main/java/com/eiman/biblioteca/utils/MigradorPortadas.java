@@ -0,0 +1,93 @@
+package com.eiman.biblioteca.utils;
+
+import com.eiman.biblioteca.dao.LibroDAO;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Tarea puntual que mueve al almacen de portadas ({@link AlmacenPortadas}) las portadas que siguen guardadas
+ * en la fila de Libro, dejando en cada fila solo la huella. Las portadas repetidas acaban en un unico archivo.
+ * Los libros se recorren por codigo y cada portada se mueve en su propia transaccion, de modo que
+ * la tarea puede interrumpirse y repetirse: las portadas ya movidas se saltan.
+ */
+public class MigradorPortadas {
+    private static final Logger logger = Logger.getLogger(MigradorPortadas.class.getName());
+    private static final int CODIGOS_POR_BLOQUE = 100;
+
+    private MigradorPortadas() {
+    }
+
+    /**
+     * Informe del resultado de una migracion.
+     */
+    public static class Informe {
+        private int movidas;
+        private int fallidas;
+        private long bytesMovidos;
+        private long bytesAlmacen;
+
+        /**
+         * @return El numero de portadas movidas al almacen.
+         */
+        public int getMovidas() {
+            return movidas;
+        }
+
+        /**
+         * @return El numero de portadas que no se pudieron mover y siguen en su fila.
+         */
+        public int getFallidas() {
+            return fallidas;
+        }
+
+        /**
+         * @return El tamaño total de las portadas movidas.
+         */
+        public long getBytesMovidos() {
+            return bytesMovidos;
+        }
+
+        /**
+         * @return El espacio que ocupa el almacen al terminar, ya sin portadas repetidas.
+         */
+        public long getBytesAlmacen() {
+            return bytesAlmacen;
+        }
+    }
+
+    /**
+     * Mueve al almacen todas las portadas guardadas en la tabla Libro.
+     *
+     * @return El informe con las portadas movidas y el tamaño final del almacen.
+     * @throws IllegalStateException Si el almacen de portadas no esta activo.
+     */
+    public static Informe migrar() {
+        if (!AlmacenPortadas.activo()) {
+            throw new IllegalStateException(LanguageManager.getProperty("almacen.inactivo"));
+        }
+        logger.info("Moviendo las portadas de la tabla Libro al almacén de portadas.");
+        LibroDAO libroDAO = new LibroDAO();
+        Informe informe = new Informe();
+        int ultimo = 0;
+
+        List<Integer> codigos;
+        while (!(codigos = libroDAO.obtenerCodigosConPortada(ultimo, CODIGOS_POR_BLOQUE)).isEmpty()) {
+            for (int codigo : codigos) {
+                int bytes = libroDAO.externalizarPortada(codigo);
+                if (bytes > 0) {
+                    informe.movidas++;
+                    informe.bytesMovidos += bytes;
+                } else if (bytes < 0) {
+                    informe.fallidas++;
+                }
+            }
+            ultimo = codigos.get(codigos.size() - 1);
+        }
+        informe.bytesAlmacen = libroDAO.obtenerBytesAlmacen();
+
+        logger.info("Migración de portadas terminada: " + informe.movidas + " movidas (" + informe.bytesMovidos
+                + " bytes), " + informe.fallidas + " fallidas; el almacén ocupa " + informe.bytesAlmacen + " bytes.");
+        return informe;
+    }
+}
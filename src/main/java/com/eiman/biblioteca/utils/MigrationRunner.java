@@ -0,0 +1,214 @@
+package com.eiman.biblioteca.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aplica las migraciones del esquema de la base de datos al conectar.
+ * Los scripts estan en {@code /sql/migrations} del classpath y se listan, en orden, en {@code migraciones.txt}.
+ * Cada version aplicada se registra en la tabla {@code schema_version} con la suma SHA-256 del script,
+ * de forma que cada migracion se aplica una sola vez y se detecta si un script ya aplicado se ha modificado.
+ * Un bloqueo con nombre evita que dos clientes apliquen las migraciones a la vez.
+ */
+public class MigrationRunner {
+    private static final Logger logger = Logger.getLogger(MigrationRunner.class.getName());
+    private static final String RUTA = "/sql/migrations/";
+    private static final String INDICE = RUTA + "migraciones.txt";
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String BLOQUEO = "libros_migraciones";
+    private static final int ESPERA_BLOQUEO_SEG = 60;
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Migracion leida del classpath.
+     */
+    private record Migracion(int version, String descripcion, String archivo, String contenido, String checksum) {
+    }
+
+    /**
+     * Aplica las migraciones pendientes.
+     *
+     * @return El numero de migraciones aplicadas.
+     * @throws SQLException          Si falla alguna sentencia o no se obtiene el bloqueo.
+     * @throws IllegalStateException Si un script ya aplicado ha cambiado o la lista de migraciones no es valida.
+     */
+    public static int migrar() throws SQLException {
+        List<Migracion> migraciones = cargarMigraciones();
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            bloquear(connection);
+            try {
+                crearTablaVersiones(connection);
+                Map<Integer, String> aplicadas = obtenerAplicadas(connection);
+                int nuevas = 0;
+                for (Migracion migracion : migraciones) {
+                    String checksum = aplicadas.get(migracion.version());
+                    if (checksum == null) {
+                        aplicar(connection, migracion);
+                        nuevas++;
+                    } else if (!checksum.equals(migracion.checksum())) {
+                        throw new IllegalStateException("La migración " + migracion.archivo()
+                                + " ya se aplicó y su contenido ha cambiado.");
+                    }
+                }
+                logger.info("Esquema actualizado: " + nuevas + " migraciones aplicadas.");
+                return nuevas;
+            } finally {
+                desbloquear(connection);
+            }
+        }
+    }
+
+    private static void aplicar(Connection connection, Migracion migracion) throws SQLException {
+        logger.info("Aplicando migración " + migracion.archivo());
+        long inicio = System.currentTimeMillis();
+        try (Statement stmt = connection.createStatement()) {
+            for (String sentencia : separarSentencias(migracion.contenido())) {
+                stmt.execute(sentencia);
+            }
+        }
+        String sql = "INSERT INTO schema_version (version, descripcion, checksum, aplicada, duracion_ms) VALUES (?, ?, ?, NOW(), ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, migracion.version());
+            stmt.setString(2, migracion.descripcion());
+            stmt.setString(3, migracion.checksum());
+            stmt.setLong(4, System.currentTimeMillis() - inicio);
+            stmt.executeUpdate();
+        }
+        logger.info("Migración " + migracion.archivo() + " aplicada en " + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    private static void crearTablaVersiones(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "descripcion VARCHAR(200) NOT NULL, " +
+                    "checksum CHAR(64) NOT NULL, " +
+                    "aplicada DATETIME NOT NULL, " +
+                    "duracion_ms BIGINT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> obtenerAplicadas(Connection connection) throws SQLException {
+        Map<Integer, String> aplicadas = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return aplicadas;
+    }
+
+    private static void bloquear(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, BLOQUEO);
+            stmt.setInt(2, ESPERA_BLOQUEO_SEG);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("No se pudo obtener el bloqueo de migraciones: otro cliente las está aplicando.");
+                }
+            }
+        }
+    }
+
+    private static void desbloquear(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, BLOQUEO);
+            stmt.executeQuery().close();
+        }
+    }
+
+    /**
+     * Lee la lista de migraciones y el contenido de cada script, comprobando que las versiones son crecientes.
+     */
+    private static List<Migracion> cargarMigraciones() {
+        List<Migracion> migraciones = new ArrayList<>();
+        int anterior = 0;
+        for (String archivo : leerLineas(INDICE)) {
+            Matcher m = NOMBRE.matcher(archivo);
+            if (!m.matches()) {
+                throw new IllegalStateException("Nombre de migración no válido: " + archivo);
+            }
+            int version = Integer.parseInt(m.group(1));
+            if (version <= anterior) {
+                throw new IllegalStateException("Las migraciones deben listarse en orden creciente de versión: " + archivo);
+            }
+            anterior = version;
+            String contenido = String.join("\n", leerLineas(RUTA + archivo));
+            migraciones.add(new Migracion(version, m.group(2).replace('_', ' '), archivo, contenido, sha256(contenido)));
+        }
+        return migraciones;
+    }
+
+    /**
+     * Lee las lineas no vacias de un recurso, sin las lineas de comentario.
+     */
+    private static List<String> leerLineas(String recurso) {
+        try (InputStream input = MigrationRunner.class.getResourceAsStream(recurso)) {
+            if (input == null) {
+                throw new IllegalStateException("No se encuentra el recurso de migraciones: " + recurso);
+            }
+            List<String> lineas = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                String limpia = linea.strip();
+                if (!limpia.isEmpty() && !limpia.startsWith("#") && !limpia.startsWith("--")) {
+                    lineas.add(limpia);
+                }
+            }
+            return lineas;
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer el recurso de migraciones: " + recurso, e);
+        }
+    }
+
+    /**
+     * Separa un script en sentencias terminadas en ';' al final de linea.
+     * Los scripts no pueden usar DELIMITER ni cuerpos de procedimientos.
+     */
+    private static List<String> separarSentencias(String contenido) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (String linea : contenido.split("\n")) {
+            actual.append(linea).append('\n');
+            if (linea.endsWith(";")) {
+                sentencias.add(actual.substring(0, actual.lastIndexOf(";")).strip());
+                actual.setLength(0);
+            }
+        }
+        if (!actual.toString().isBlank()) {
+            sentencias.add(actual.toString().strip());
+        }
+        return sentencias;
+    }
+
+    private static String sha256(String contenido) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
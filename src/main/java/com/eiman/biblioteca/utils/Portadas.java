@@ -0,0 +1,342 @@
+package com.eiman.biblioteca.utils;
+
+import com.eiman.biblioteca.dao.LibroDAO;
+import com.eiman.biblioteca.models.Libro;
+import javafx.scene.image.Image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Miniaturas de las portadas de los libros.
+ * Cada portada se identifica por su huella SHA-256, guardada en la columna {@code portada_hash},
+ * y su miniatura se genera una sola vez (al subirla o la primera vez que se muestra) y se guarda
+ * en una cache en disco con la huella como nombre. Como el nombre depende del contenido, una portada
+ * nueva tiene otra huella y las miniaturas guardadas nunca quedan desactualizadas.
+ * <p>
+ * Antes de guardarse, las portadas subidas se reducen a una resolucion maxima y se recodifican en JPEG
+ * con calidad acotada (ver {@link #ajustarPortada(byte[])}), para que las fotos de varios megas no
+ * engorden la tabla Libro, las copias de seguridad ni las consultas.
+ * <p>
+ * Las miniaturas se decodifican en segundo plano y las ultimas usadas se mantienen en memoria,
+ * de forma que desplazarse por la tabla de libros no vuelve a leer ni a decodificar portadas.
+ */
+public class Portadas {
+    private static final Logger logger = Logger.getLogger(Portadas.class.getName());
+    /**
+     * Lado maximo, en pixeles, de las miniaturas.
+     */
+    public static final int LADO_MINIATURA = Configuracion.getInt("portadas.miniaturas.lado", 64);
+    private static final Path DIRECTORIO = Paths.get(Configuracion.getString("portadas.miniaturas.dir",
+            Paths.get(System.getProperty("user.home"), ".biblioteca", "miniaturas").toString()));
+    private static final int MAX_EN_MEMORIA = Configuracion.getInt("portadas.miniaturas.memoria", 300);
+    /**
+     * Lado maximo, en pixeles, de las portadas guardadas.
+     */
+    private static final int LADO_MAXIMO = Configuracion.getInt("portadas.maxLado", 1200);
+    /**
+     * Tamaño a partir del cual una portada se recodifica aunque ya tenga una resolucion aceptable.
+     */
+    private static final int MAX_BYTES = Configuracion.getInt("portadas.maxBytes", 400_000);
+    private static final float CALIDAD = Configuracion.getInt("portadas.calidad", 85) / 100f;
+    private static final float CALIDAD_MINIMA = Configuracion.getInt("portadas.calidadMinima", 60) / 100f;
+
+    /**
+     * Miniaturas decodificadas, por huella. Solo se usa desde el hilo de JavaFX.
+     */
+    private static final Map<String, Image> enMemoria = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > MAX_EN_MEMORIA;
+        }
+    };
+    /**
+     * Miniaturas que se estan generando, para no generar dos veces la misma. Solo se usa desde el hilo de JavaFX.
+     */
+    private static final Map<String, CompletableFuture<Path>> enCurso = new HashMap<>();
+    /**
+     * Portadas de formato no reconocido, cuya miniatura no se puede generar, para no volver a leerlas
+     * en cada desplazamiento.
+     * Solo se usa desde el hilo de JavaFX.
+     */
+    private static final Set<String> sinMiniatura = new HashSet<>();
+    private static final LibroDAO libroDAO = new LibroDAO();
+
+    private Portadas() {
+    }
+
+    /**
+     * Calcula la huella de una portada.
+     *
+     * @param portada La imagen de la portada.
+     * @return La huella SHA-256 en hexadecimal, o null si no hay portada.
+     */
+    public static String huella(byte[] portada) {
+        if (portada == null) {
+            return null;
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(portada));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Prepara una portada para guardarla: si supera la resolucion maxima ({@code portadas.maxLado}) o el
+     * tamaño maximo ({@code portadas.maxBytes}), la reduce y la recodifica en JPEG con calidad
+     * {@code portadas.calidad}, bajandola por pasos hasta {@code portadas.calidadMinima} mientras
+     * siga superando el tamaño maximo. Las portadas que ya cumplen los limites se devuelven sin cambios.
+     *
+     * @param original La imagen tal como la ha elegido el usuario.
+     * @return La portada a guardar; es el mismo array si no hacia falta cambiarla.
+     * @throws IOException              Si no se puede codificar la imagen.
+     * @throws IllegalArgumentException Si el formato de la imagen no se reconoce.
+     */
+    public static byte[] ajustarPortada(byte[] original) throws IOException {
+        BufferedImage imagen = ImageIO.read(new ByteArrayInputStream(original));
+        if (imagen == null) {
+            throw new IllegalArgumentException(LanguageManager.getProperty("portada.formato.invalido"));
+        }
+        boolean cabe = imagen.getWidth() <= LADO_MAXIMO && imagen.getHeight() <= LADO_MAXIMO;
+        if (cabe && original.length <= MAX_BYTES) {
+            return original;
+        }
+
+        BufferedImage reducida = sinTransparencia(reducir(imagen, LADO_MAXIMO));
+        float calidad = CALIDAD;
+        byte[] jpeg = codificarJpeg(reducida, calidad);
+        while (jpeg.length > MAX_BYTES && calidad - 0.05f >= CALIDAD_MINIMA) {
+            calidad -= 0.05f;
+            jpeg = codificarJpeg(reducida, calidad);
+        }
+        logger.info(String.format("Portada ajustada de %dx%d (%d bytes) a %dx%d (%d bytes, calidad %.2f).",
+                imagen.getWidth(), imagen.getHeight(), original.length,
+                reducida.getWidth(), reducida.getHeight(), jpeg.length, calidad));
+        // Una imagen pequeña muy comprimida (p. ej. un PNG de colores planos) puede ocupar menos que el JPEG
+        return !cabe || jpeg.length < original.length ? jpeg : original;
+    }
+
+    /**
+     * Genera y guarda en disco la miniatura de una portada si aun no existe.
+     * Se llama en segundo plano al subir una portada, para que no haya que generarla al mostrarla.
+     * Un error al generarla solo se registra: la miniatura se volvera a intentar al mostrarla.
+     *
+     * @param huella  La huella de la portada.
+     * @param portada La imagen de la portada.
+     * @return La ruta de la miniatura, o null si no hay portada o no se pudo generar.
+     */
+    public static Path guardarMiniatura(String huella, byte[] portada) {
+        if (huella == null || portada == null) {
+            return null;
+        }
+        try {
+            return generarMiniatura(huella, portada);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "No se pudo generar la miniatura de la portada: " + huella, e);
+            return null;
+        }
+    }
+
+    /**
+     * Genera y guarda en disco la miniatura de una portada si aun no existe.
+     *
+     * @return La ruta de la miniatura, o null si la portada no tiene un formato de imagen reconocido.
+     * @throws IOException Si no se puede escribir la miniatura.
+     */
+    private static Path generarMiniatura(String huella, byte[] portada) throws IOException {
+        Path destino = rutaMiniatura(huella);
+        if (Files.exists(destino)) {
+            return destino;
+        }
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(portada));
+        if (original == null) {
+            logger.warning("Formato de portada no reconocido, no se genera su miniatura: " + huella);
+            return null;
+        }
+        Files.createDirectories(DIRECTORIO);
+        Path temporal = Files.createTempFile(DIRECTORIO, huella, ".tmp");
+        try {
+            ImageIO.write(reducir(original, LADO_MINIATURA), "png", temporal.toFile());
+            // El movimiento atomico evita que otro hilo lea una miniatura a medio escribir
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        return destino;
+    }
+
+    /**
+     * Obtiene la miniatura de la portada de un libro y se la entrega al destino en el hilo de JavaFX.
+     * Si esta en memoria se entrega en el acto; si no, se comprueba en segundo plano si esta en disco y,
+     * si tampoco, se lee la portada de la base de datos y se genera la miniatura en un hilo de base de datos.
+     * Solo se deja de intentar con las portadas de formato no reconocido: un error al leer la portada
+     * o al escribir la miniatura se vuelve a intentar la proxima vez que se muestre el libro.
+     * Debe llamarse desde el hilo de JavaFX.
+     *
+     * @param libro   El libro, con la huella de su portada.
+     * @param destino Recibe la miniatura, o null si el libro no tiene portada o no se pudo obtener.
+     */
+    public static void cargarMiniatura(Libro libro, Consumer<Image> destino) {
+        String huella = libro.getPortadaHash();
+        if (huella == null || sinMiniatura.contains(huella)) {
+            destino.accept(null);
+            return;
+        }
+        Image imagen = enMemoria.get(huella);
+        if (imagen != null) {
+            destino.accept(imagen);
+            return;
+        }
+        Path ruta = rutaMiniatura(huella);
+        int codigo = libro.getCodigo();
+        CompletableFuture<Path> generacion = enCurso.computeIfAbsent(huella, h -> CompletableFuture
+                .supplyAsync(() -> Files.exists(ruta))
+                .thenCompose(existe -> existe ? CompletableFuture.completedFuture(ruta)
+                        : DatabaseExecutor.supply(() -> generarDesdeBaseDeDatos(h, codigo))));
+        DatabaseExecutor.enFx(generacion, generada -> {
+            enCurso.remove(huella);
+            if (generada == null) {
+                sinMiniatura.add(huella);
+            }
+            destino.accept(generada != null ? decodificar(huella, generada) : null);
+        }, error -> {
+            enCurso.remove(huella);
+            destino.accept(null);
+        });
+    }
+
+    /**
+     * Lee la portada de un libro y genera su miniatura. Se ejecuta en un hilo de base de datos.
+     *
+     * @return La ruta de la miniatura, o null si la portada no tiene un formato de imagen reconocido.
+     * @throws IllegalStateException Si no se pudo leer la portada, que puede ser un error pasajero.
+     * @throws UncheckedIOException  Si no se pudo escribir la miniatura.
+     */
+    private static Path generarDesdeBaseDeDatos(String huella, int codigo) {
+        byte[] portada = libroDAO.obtenerPortada(codigo);
+        if (portada == null) {
+            throw new IllegalStateException("No se pudo leer la portada del libro con código: " + codigo);
+        }
+        try {
+            return generarMiniatura(huella, portada);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Crea la imagen de una miniatura con carga en segundo plano y la guarda en memoria.
+     */
+    private static Image decodificar(String huella, Path ruta) {
+        Image imagen = enMemoria.get(huella);
+        if (imagen == null) {
+            imagen = new Image(ruta.toUri().toString(), true);
+            enMemoria.put(huella, imagen);
+        }
+        return imagen;
+    }
+
+    private static Path rutaMiniatura(String huella) {
+        return DIRECTORIO.resolve(huella + ".png");
+    }
+
+    /**
+     * Codifica una imagen RGB en JPEG con la calidad indicada, entre 0 y 1.
+     */
+    private static byte[] codificarJpeg(BufferedImage imagen, float calidad) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(salida)) {
+            ImageWriteParam parametros = writer.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidad);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            writer.dispose();
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Convierte una imagen a RGB sobre fondo blanco, ya que JPEG no admite transparencia.
+     */
+    private static BufferedImage sinTransparencia(BufferedImage imagen) {
+        if (imagen.getType() == BufferedImage.TYPE_INT_RGB || imagen.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return imagen;
+        }
+        BufferedImage rgb = new BufferedImage(imagen.getWidth(), imagen.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, imagen.getWidth(), imagen.getHeight());
+            g.drawImage(imagen, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * Reduce una imagen para que quepa en un cuadrado del lado indicado, manteniendo la proporcion.
+     * Se reduce a la mitad en cada paso hasta llegar al tamaño final, ya que una sola interpolacion
+     * bilineal desde una imagen muy grande pierde detalle y produce dientes de sierra.
+     * Las imagenes que ya caben se devuelven sin cambios.
+     */
+    static BufferedImage reducir(BufferedImage original, int lado) {
+        double escala = Math.min((double) lado / original.getWidth(), (double) lado / original.getHeight());
+        if (escala >= 1.0) {
+            return original;
+        }
+        int anchoFinal = Math.max(1, (int) Math.round(original.getWidth() * escala));
+        int altoFinal = Math.max(1, (int) Math.round(original.getHeight() * escala));
+        int tipo = original.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage actual = original;
+        int ancho = original.getWidth();
+        int alto = original.getHeight();
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            BufferedImage reducida = new BufferedImage(ancho, alto, tipo);
+            Graphics2D g = reducida.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(actual, 0, 0, ancho, alto, null);
+            } finally {
+                g.dispose();
+            }
+            actual = reducida;
+        } while (ancho != anchoFinal || alto != altoFinal);
+        return actual;
+    }
+}
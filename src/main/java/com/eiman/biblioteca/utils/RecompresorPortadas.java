@@ -0,0 +1,126 @@
+package com.eiman.biblioteca.utils;
+
+import com.eiman.biblioteca.dao.LibroDAO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarea puntual que recomprime las portadas ya guardadas con los mismos limites que se aplican al subirlas
+ * ({@link Portadas#ajustarPortada(byte[])}), reemplazando cada una en su fila solo si ocupa menos.
+ * Las portadas se leen de una en una, recorriendo los libros por codigo, para no tener varias en memoria.
+ * Se recomprimen tambien las del almacen de portadas; la version recomprimida se guarda donde indique
+ * {@code portadas.almacen} y la original se borra del almacen si ningun otro libro la usa.
+ */
+public class RecompresorPortadas {
+    private static final Logger logger = Logger.getLogger(RecompresorPortadas.class.getName());
+    private static final int CODIGOS_POR_BLOQUE = 100;
+
+    private RecompresorPortadas() {
+    }
+
+    /**
+     * Informe del resultado de una recompresion.
+     */
+    public static class Informe {
+        private int revisadas;
+        private int recomprimidas;
+        private int omitidas;
+        private long bytesAntes;
+        private long bytesDespues;
+
+        /**
+         * @return El numero de portadas leidas.
+         */
+        public int getRevisadas() {
+            return revisadas;
+        }
+
+        /**
+         * @return El numero de portadas reemplazadas por su version recomprimida.
+         */
+        public int getRecomprimidas() {
+            return recomprimidas;
+        }
+
+        /**
+         * @return El numero de portadas que no se pudieron decodificar o guardar y se dejaron como estaban.
+         */
+        public int getOmitidas() {
+            return omitidas;
+        }
+
+        /**
+         * @return El tamaño total de las portadas revisadas antes de recomprimirlas.
+         */
+        public long getBytesAntes() {
+            return bytesAntes;
+        }
+
+        /**
+         * @return El tamaño total de las portadas revisadas despues de recomprimirlas.
+         */
+        public long getBytesDespues() {
+            return bytesDespues;
+        }
+
+        /**
+         * @return Los bytes ahorrados en total.
+         */
+        public long getBytesAhorrados() {
+            return bytesAntes - bytesDespues;
+        }
+    }
+
+    /**
+     * Recomprime todas las portadas guardadas.
+     *
+     * @return El informe con las portadas revisadas y los bytes ahorrados.
+     */
+    public static Informe recomprimir() {
+        logger.info("Recomprimiendo las portadas guardadas.");
+        LibroDAO libroDAO = new LibroDAO();
+        Informe informe = new Informe();
+        int ultimo = 0;
+
+        List<Integer> codigos;
+        while (!(codigos = libroDAO.obtenerCodigosConPortada(ultimo, CODIGOS_POR_BLOQUE)).isEmpty()) {
+            for (int codigo : codigos) {
+                byte[] original = libroDAO.obtenerPortada(codigo);
+                if (original == null) {
+                    continue;
+                }
+                informe.revisadas++;
+                informe.bytesAntes += original.length;
+                byte[] ajustada = original;
+                try {
+                    ajustada = Portadas.ajustarPortada(original);
+                } catch (IOException | IllegalArgumentException e) {
+                    informe.omitidas++;
+                    logger.log(Level.WARNING, "No se pudo recomprimir la portada del libro con código: " + codigo, e);
+                }
+                if (ajustada.length < original.length) {
+                    String huella = libroDAO.actualizarPortada(codigo, ajustada);
+                    if (huella != null) {
+                        Portadas.guardarMiniatura(huella, ajustada);
+                        informe.recomprimidas++;
+                    } else {
+                        // La portada guardada sigue siendo la original
+                        informe.omitidas++;
+                        ajustada = original;
+                    }
+                } else {
+                    ajustada = original;
+                }
+                informe.bytesDespues += ajustada.length;
+            }
+            ultimo = codigos.get(codigos.size() - 1);
+        }
+
+        logger.info("Recompresión terminada: " + informe.recomprimidas + " de " + informe.revisadas
+                + " portadas recomprimidas, " + informe.getBytesAhorrados() + " bytes ahorrados.");
+        return informe;
+    }
+}
@@ -0,0 +1,212 @@
+package com.eiman.biblioteca.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache LRU de sentencias preparadas asociada a una unica conexion fisica del pool.
+ * Las sentencias se indexan por el texto SQL y, al cerrarlas, vuelven a la cache en lugar de cerrarse,
+ * de forma que la siguiente llamada a {@code prepareStatement} con el mismo SQL no vuelve a prepararla.
+ * No es segura entre hilos: la conexion a la que pertenece solo la usa el hilo que la tiene prestada.
+ */
+class StatementCache {
+    private static final Logger logger = Logger.getLogger(StatementCache.class.getName());
+
+    /**
+     * Metodos que cambian la configuracion de la sentencia; si se usan, la sentencia no se reutiliza.
+     */
+    private static final Set<String> AJUSTES = Set.of("setFetchSize", "setMaxRows", "setLargeMaxRows",
+            "setQueryTimeout", "setFetchDirection", "setEscapeProcessing", "setPoolable", "setCursorName",
+            "setMaxFieldSize");
+
+    private final Connection conexion;
+    private final int maxSize;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    /**
+     * Crea la cache de una conexion.
+     *
+     * @param conexion Conexion fisica sobre la que se preparan las sentencias.
+     * @param maxSize  Numero maximo de sentencias guardadas.
+     * @param aciertos Contador de aciertos compartido con el pool.
+     * @param fallos   Contador de fallos compartido con el pool.
+     */
+    StatementCache(Connection conexion, int maxSize, LongAdder aciertos, LongAdder fallos) {
+        this.conexion = conexion;
+        this.maxSize = maxSize;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().expulsar();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL indicado, reutilizando la guardada si esta libre.
+     *
+     * @param sql               Texto SQL de la sentencia.
+     * @param autoGeneratedKeys Valor de {@link java.sql.Statement#RETURN_GENERATED_KEYS} o null si no se indico.
+     * @return La sentencia lista para asignar parametros.
+     * @throws SQLException Si no se puede preparar la sentencia.
+     */
+    PreparedStatement preparar(String sql, Integer autoGeneratedKeys) throws SQLException {
+        String clave = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && !entrada.enUso) {
+            aciertos.increment();
+            return entrada.usar();
+        }
+        fallos.increment();
+        PreparedStatement real = autoGeneratedKeys == null
+                ? conexion.prepareStatement(sql)
+                : conexion.prepareStatement(sql, autoGeneratedKeys);
+        if (entrada != null) {
+            // La misma sentencia ya esta abierta en este prestamo: se entrega una sin cachear.
+            return real;
+        }
+        entrada = new Entrada(real);
+        entradas.put(clave, entrada);
+        return entrada.usar();
+    }
+
+    /**
+     * Cierra todas las sentencias guardadas. Se llama al cerrar la conexion fisica.
+     */
+    void cerrar() {
+        List<Entrada> todas = new ArrayList<>(entradas.values());
+        entradas.clear();
+        todas.forEach(Entrada::expulsar);
+    }
+
+    /**
+     * Sentencia guardada en la cache junto con su estado de uso.
+     */
+    private class Entrada implements InvocationHandler {
+        private final PreparedStatement real;
+        private final List<ResultSet> resultados = new ArrayList<>();
+        private boolean enUso;
+        private boolean expulsada;
+        private boolean ajustada;
+        private PreparedStatement proxyActual;
+
+        Entrada(PreparedStatement real) {
+            this.real = real;
+        }
+
+        PreparedStatement usar() {
+            enUso = true;
+            proxyActual = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+            return proxyActual;
+        }
+
+        /**
+         * Saca la sentencia de la cache; si esta en uso se cerrara cuando se devuelva.
+         */
+        void expulsar() {
+            expulsada = true;
+            if (!enUso) {
+                cerrarReal();
+            }
+        }
+
+        private void devolver() {
+            enUso = false;
+            proxyActual = null;
+            try {
+                for (ResultSet rs : resultados) {
+                    rs.close();
+                }
+                resultados.clear();
+                if (expulsada || ajustada) {
+                    if (!expulsada) {
+                        entradas.values().remove(this);
+                    }
+                    cerrarReal();
+                    return;
+                }
+                real.clearParameters();
+                real.clearBatch();
+                real.clearWarnings();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "No se pudo restablecer una sentencia de la cache.", e);
+                entradas.values().remove(this);
+                cerrarReal();
+            }
+        }
+
+        private void cerrarReal() {
+            try {
+                real.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error al cerrar una sentencia de la cache.", e);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            switch (nombre) {
+                case "close" -> {
+                    if (proxy == proxyActual) {
+                        devolver();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return proxy != proxyActual || real.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "SentenciaCacheada[" + real + "]";
+                }
+                default -> {
+                }
+            }
+            if (proxy != proxyActual) {
+                throw new SQLException("La sentencia ya se ha cerrado.");
+            }
+            if (AJUSTES.contains(nombre)) {
+                ajustada = true;
+            }
+            Object resultado;
+            try {
+                resultado = method.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultado instanceof ResultSet rs) {
+                resultados.add(rs);
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.eiman.biblioteca.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Unidad de trabajo que ejecuta varias operaciones de los DAO sobre una misma conexion del pool
+ * y dentro de una unica transaccion. Si alguna operacion falla se deshacen todas,
+ * evitando que la base de datos quede a medio actualizar, y si todas terminan se confirma una sola vez.
+ */
+public class UnitOfWork {
+    private static final Logger logger = Logger.getLogger(UnitOfWork.class.getName());
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Trabajo que se ejecuta con la conexion de la transaccion.
+     *
+     * @param <T> Tipo del resultado del trabajo.
+     */
+    @FunctionalInterface
+    public interface Trabajo<T> {
+        /**
+         * Ejecuta las operaciones del trabajo.
+         *
+         * @param connection Conexion de la transaccion; no debe cerrarse ni confirmarse desde el trabajo.
+         * @return El resultado del trabajo.
+         * @throws SQLException Si alguna operacion falla, lo que deshace la transaccion.
+         */
+        T ejecutar(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Ejecuta un trabajo en una transaccion, confirmandola si termina correctamente y deshaciendola si falla.
+     *
+     * @param trabajo El trabajo a ejecutar.
+     * @param <T>     Tipo del resultado del trabajo.
+     * @return El resultado del trabajo.
+     * @throws SQLException Si no se puede obtener la conexion o alguna operacion falla.
+     */
+    public static <T> T ejecutar(Trabajo<T> trabajo) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T resultado = trabajo.ejecutar(connection);
+                connection.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                logger.log(Level.WARNING, "Deshaciendo la transacción por un error.", e);
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
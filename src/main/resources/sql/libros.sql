@@ -15,7 +15,9 @@ CREATE TABLE IF NOT EXISTS `libros`.`Alumno` (
 	`apellido1` VARCHAR(150) NULL DEFAULT NULL,
 	`apellido2` VARCHAR(150) NULL DEFAULT NULL,
     
-	PRIMARY KEY (`dni`))
+	PRIMARY KEY (`dni`),
+	INDEX `IDX_Alumno_apellido1` (`apellido1`),
+	INDEX `IDX_Alumno_nombre` (`nombre`))
 ENGINE = InnoDB
 DEFAULT CHARACTER SET = latin1
 COLLATE = latin1_spanish_ci;
@@ -32,7 +34,23 @@ CREATE TABLE IF NOT EXISTS `libros`.`Libro` (
 	`estado` VARCHAR(50) NULL DEFAULT NULL,
 	`baja` INT NULL DEFAULT '0',
     `portada` longblob NULL,
-	PRIMARY KEY (`codigo`)
+	`portada_hash` CHAR(64) NULL DEFAULT NULL,
+	PRIMARY KEY (`codigo`),
+	INDEX `IDX_Libro_baja` (`baja`),
+	INDEX `IDX_Libro_titulo` (`titulo`),
+	FULLTEXT INDEX `IDX_Libro_texto` (`titulo`, `autor`, `editorial`)
+)ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
+
+
+-- -----------------------------------------------------
+-- Table `libros`.`Portada_almacen`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `libros`.`Portada_almacen` (
+	`hash` CHAR(64) NOT NULL,
+	`referencias` INT NOT NULL DEFAULT '0',
+	`bytes` INT NOT NULL,
+	PRIMARY KEY (`hash`),
+	INDEX `IDX_Portada_almacen_referencias` (`referencias`)
 )ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
 
 
@@ -46,6 +64,8 @@ CREATE TABLE IF NOT EXISTS `libros`.`Historico_prestamo` (
 	`fecha_prestamo` DATETIME NULL DEFAULT NULL,
 	`fecha_devolucion` DATETIME NULL DEFAULT NULL,
 	PRIMARY KEY (`id_prestamo`),
+	INDEX `IDX_Historico_prestamo_fecha_prestamo` (`fecha_prestamo`),
+	INDEX `IDX_Historico_prestamo_fecha_devolucion` (`fecha_devolucion`),
 	CONSTRAINT `FK_Historico_prestamo_Alumno` FOREIGN KEY (`dni_alumno`) REFERENCES `libros`.`Alumno` (`dni`),
 	CONSTRAINT `FK_Historico_prestamo_Libro` FOREIGN KEY (`codigo_libro`) REFERENCES `libros`.`Libro` (`codigo`)
 )ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
@@ -60,6 +80,7 @@ CREATE TABLE IF NOT EXISTS `libros`.`Prestamo` (
 	`codigo_libro` INT NOT NULL,
 	`fecha_prestamo` DATETIME NULL DEFAULT NULL,
 	PRIMARY KEY (`id_prestamo`),
+	INDEX `IDX_Prestamo_fecha_prestamo` (`fecha_prestamo`),
 	CONSTRAINT `FK_Prestamo_Libro` FOREIGN KEY (`codigo_libro`)  REFERENCES `libros`.`Libro` (`codigo`),
 	CONSTRAINT `FK_Prestamo_Alumno` FOREIGN KEY (`dni_alumno`) REFERENCES `libros`.`Alumno` (`dni`)
 )ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
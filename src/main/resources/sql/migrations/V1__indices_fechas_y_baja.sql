@@ -0,0 +1,16 @@
+-- Indices secundarios de las consultas de préstamos activos, historial y listados de libros.
+-- Se añaden en línea (ALGORITHM=INPLACE, LOCK=NONE) para poder aplicarlos con la base de datos en uso.
+-- En las bases de datos creadas con libros.sql ya existen y no se hace nada.
+
+ALTER TABLE Prestamo
+    ADD INDEX IF NOT EXISTS IDX_Prestamo_fecha_prestamo (fecha_prestamo),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE Historico_prestamo
+    ADD INDEX IF NOT EXISTS IDX_Historico_prestamo_fecha_prestamo (fecha_prestamo),
+    ADD INDEX IF NOT EXISTS IDX_Historico_prestamo_fecha_devolucion (fecha_devolucion),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE Libro
+    ADD INDEX IF NOT EXISTS IDX_Libro_baja (baja),
+    ALGORITHM=INPLACE, LOCK=NONE;
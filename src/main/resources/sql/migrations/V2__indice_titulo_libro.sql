@@ -0,0 +1,5 @@
+-- Índice del título para el filtro por prefijo y la ordenación de los libros disponibles para préstamo.
+
+ALTER TABLE Libro
+    ADD INDEX IF NOT EXISTS IDX_Libro_titulo (titulo),
+    ALGORITHM=INPLACE, LOCK=NONE;
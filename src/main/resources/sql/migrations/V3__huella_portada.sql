@@ -0,0 +1,8 @@
+-- Huella SHA-256 de la portada de cada libro, que identifica su miniatura en la cache de disco.
+-- Los listados leen la huella en lugar de la portada; se calcula en el servidor para las portadas existentes.
+
+ALTER TABLE Libro
+    ADD COLUMN IF NOT EXISTS portada_hash CHAR(64) NULL AFTER portada;
+
+UPDATE Libro SET portada_hash = SHA2(portada, 256)
+    WHERE portada IS NOT NULL AND portada_hash IS NULL;
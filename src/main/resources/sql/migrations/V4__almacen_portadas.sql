@@ -0,0 +1,12 @@
+-- Referencias de las portadas guardadas en el almacen de portadas (portadas.almacen=disco).
+-- Cada archivo del almacen se identifica por la huella de la portada; las filas de Libro que la usan
+-- dejan la columna portada a NULL y la referencian por portada_hash. El archivo se borra cuando
+-- referencias llega a 0, de ahi el indice.
+
+CREATE TABLE IF NOT EXISTS Portada_almacen (
+    hash CHAR(64) NOT NULL,
+    referencias INT NOT NULL DEFAULT 0,
+    bytes INT NOT NULL,
+    PRIMARY KEY (hash),
+    INDEX IDX_Portada_almacen_referencias (referencias)
+) ENGINE = InnoDB DEFAULT CHARACTER SET = latin1 COLLATE = latin1_spanish_ci;
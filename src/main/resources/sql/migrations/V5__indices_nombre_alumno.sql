@@ -0,0 +1,6 @@
+-- Índices del nombre y el primer apellido de los alumnos para las sugerencias por prefijo del diálogo de préstamos.
+
+ALTER TABLE Alumno
+    ADD INDEX IF NOT EXISTS IDX_Alumno_apellido1 (apellido1),
+    ADD INDEX IF NOT EXISTS IDX_Alumno_nombre (nombre),
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,7 @@
+-- Índice de texto completo sobre título, autor y editorial para la búsqueda del catálogo (LibroDAO.buscar).
+-- La intercalación latin1_spanish_ci de la tabla hace que las búsquedas no distingan acentos ni mayúsculas.
+-- El primer índice FULLTEXT de una tabla la reconstruye para añadir la columna interna FTS_DOC_ID,
+-- por lo que no puede crearse con LOCK=NONE: mientras se crea, la tabla Libro admite lecturas pero no escrituras.
+
+ALTER TABLE Libro
+    ADD FULLTEXT INDEX IF NOT EXISTS IDX_Libro_texto (titulo, autor, editorial);
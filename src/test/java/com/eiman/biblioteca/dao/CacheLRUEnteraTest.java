@@ -0,0 +1,154 @@
+package com.eiman.biblioteca.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas de {@link CacheLRUEntera}: orden de expulsion, borrado con desplazamiento hacia atras
+ * dentro de los grupos de sondeo y vuelta al principio de la tabla.
+ */
+class CacheLRUEnteraTest {
+
+    @Test
+    void expulsaLaUsadaHaceMasTiempo() {
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(3);
+        cache.guardar(1, "uno");
+        cache.guardar(2, "dos");
+        cache.guardar(3, "tres");
+        // Leer el 1 lo marca como reciente: el siguiente en expulsarse es el 2
+        assertEquals("uno", cache.obtener(1));
+        cache.guardar(4, "cuatro");
+
+        assertNull(cache.obtener(2));
+        assertEquals("uno", cache.obtener(1));
+        assertEquals("tres", cache.obtener(3));
+        assertEquals("cuatro", cache.obtener(4));
+    }
+
+    @Test
+    void reemplazarUnaClaveLaMarcaComoReciente() {
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(2);
+        cache.guardar(1, "uno");
+        cache.guardar(2, "dos");
+        cache.guardar(1, "otro");
+        cache.guardar(3, "tres");
+
+        assertEquals("otro", cache.obtener(1));
+        assertNull(cache.obtener(2));
+        assertEquals("tres", cache.obtener(3));
+    }
+
+    @Test
+    void guardarNullQuitaLaClave() {
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(2);
+        cache.guardar(1, "uno");
+        cache.guardar(1, null);
+
+        assertNull(cache.obtener(1));
+    }
+
+    @Test
+    void invalidarEnMedioDeUnGrupoDeSondeo() {
+        // 8 nodos: tabla de 16 celdas
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(8);
+        int mascara = 15;
+        int[] mismas = clavesEnCelda(5, mascara, 3);
+        int siguiente = clavesEnCelda(6, mascara, 1)[0];
+        // Ocupan las celdas 5, 6 y 7; la clave de la celda 6 se desplaza a la 8
+        for (int clave : mismas) {
+            cache.guardar(clave, "c" + clave);
+        }
+        cache.guardar(siguiente, "c" + siguiente);
+
+        cache.invalidar(mismas[1]);
+
+        assertNull(cache.obtener(mismas[1]));
+        assertEquals("c" + mismas[0], cache.obtener(mismas[0]));
+        assertEquals("c" + mismas[2], cache.obtener(mismas[2]));
+        assertEquals("c" + siguiente, cache.obtener(siguiente));
+    }
+
+    @Test
+    void losGruposDeSondeoDanLaVueltaALaTabla() {
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(8);
+        int mascara = 15;
+        // Tres claves en la ultima celda ocupan la 15, la 0 y la 1; otra de la celda 0 acaba en la 2
+        int[] ultimas = clavesEnCelda(mascara, mascara, 3);
+        int primera = clavesEnCelda(0, mascara, 1)[0];
+        for (int clave : ultimas) {
+            cache.guardar(clave, "c" + clave);
+        }
+        cache.guardar(primera, "c" + primera);
+
+        cache.invalidar(ultimas[0]);
+
+        assertNull(cache.obtener(ultimas[0]));
+        assertEquals("c" + ultimas[1], cache.obtener(ultimas[1]));
+        assertEquals("c" + ultimas[2], cache.obtener(ultimas[2]));
+        assertEquals("c" + primera, cache.obtener(primera));
+
+        // El hueco que queda se reutiliza sin perder ninguna clave
+        cache.guardar(ultimas[0], "de nuevo");
+        assertEquals("de nuevo", cache.obtener(ultimas[0]));
+        assertEquals("c" + primera, cache.obtener(primera));
+    }
+
+    @Test
+    void tamañoCeroNoGuardaNada() {
+        CacheLRUEntera<String> cache = new CacheLRUEntera<>(0);
+        cache.guardar(1, "uno");
+        cache.invalidar(1);
+
+        assertNull(cache.obtener(1));
+        cache.vaciar();
+        assertNull(cache.obtener(1));
+    }
+
+    @Test
+    void secuenciaAleatoriaIgualQueUnMapaLRU() {
+        int maximo = 16;
+        CacheLRUEntera<Integer> cache = new CacheLRUEntera<>(maximo);
+        Map<Integer, Integer> modelo = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > maximo;
+            }
+        };
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Pocas claves distintas, para que haya muchos choques, expulsiones y borrados
+            int clave = aleatorio.nextInt(48) - 8;
+            int operacion = aleatorio.nextInt(10);
+            if (operacion < 5) {
+                assertEquals(modelo.get(clave), cache.obtener(clave), "obtener " + clave + " en el paso " + i);
+            } else if (operacion < 8) {
+                modelo.put(clave, i);
+                cache.guardar(clave, i);
+            } else {
+                modelo.remove(clave);
+                cache.invalidar(clave);
+            }
+        }
+    }
+
+    /**
+     * Busca claves cuya celda ideal es la indicada, con la misma dispersion que la cache.
+     */
+    private static int[] clavesEnCelda(int celda, int mascara, int cuantas) {
+        int[] claves = new int[cuantas];
+        int encontradas = 0;
+        for (int clave = 1; encontradas < cuantas; clave++) {
+            int h = clave * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & mascara) == celda) {
+                claves[encontradas++] = clave;
+            }
+        }
+        return claves;
+    }
+}
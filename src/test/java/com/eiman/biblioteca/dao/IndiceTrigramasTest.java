@@ -0,0 +1,127 @@
+package com.eiman.biblioteca.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link IndiceTrigramas}: orden de los resultados, umbral de similitud, posiciones libres
+ * y compactacion, y el tiempo de busqueda con tantos alumnos como un centro grande.
+ */
+class IndiceTrigramasTest {
+    private static final String[] NOMBRES = {"Ana", "Luis", "María", "José", "Carmen", "Javier", "Lucía", "Pablo",
+            "Elena", "Sergio", "Marta", "Diego", "Laura", "Álvaro", "Sara", "Hugo", "Paula", "Daniel", "Irene", "Raúl"};
+    private static final String[] APELLIDOS = {"García", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Ruiz",
+            "Hernández", "Jiménez", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero", "Navarro", "Torres", "Domínguez",
+            "Vázquez", "Ramos", "Gil", "Serrano", "Blanco", "Molina", "Castro", "Ortiz", "Rubio", "Marín", "Sanz"};
+
+    @Test
+    void toleraErratasYAcentos() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        indice.guardar("1", "García López", "García López");
+        indice.guardar("2", "Pérez Ruiz", "Pérez Ruiz");
+
+        assertEquals(List.of("García López"), indice.buscar("garica lopz", 10, 0.3));
+    }
+
+    @Test
+    void ordenaPorCoincidenciasYDespuesPorElTextoMasCorto() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        indice.guardar("largo", "Ana García López", "largo");
+        indice.guardar("exacto", "Ana García", "exacto");
+        indice.guardar("parcial", "Ana Gómez", "parcial");
+
+        // Los dos primeros contienen todos los trigramas buscados; a igualdad va antes el texto mas corto
+        assertEquals(List.of("exacto", "largo", "parcial"), indice.buscar("ana garcia", 10, 0.1));
+        assertEquals(List.of("exacto", "largo"), indice.buscar("ana garcia", 2, 0.1));
+    }
+
+    @Test
+    void elUmbralDescartaLosPocoParecidos() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        indice.guardar("1", "Ana García", "García");
+        indice.guardar("2", "Ana Gómez", "Gómez");
+
+        // "Ana Gómez" solo comparte con la busqueda los trigramas de "ana" y el inicio de la "g"
+        assertEquals(List.of("García", "Gómez"), indice.buscar("ana garcia", 10, 0.0));
+        assertEquals(List.of("García"), indice.buscar("ana garcia", 10, 0.8));
+        assertTrue(indice.buscar("zzzz", 10, 0.3).isEmpty());
+        assertTrue(indice.buscar("", 10, 0.3).isEmpty());
+    }
+
+    @Test
+    void guardarUnaClaveExistenteReemplazaSuTexto() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        indice.guardar("1", "García López", "antes");
+        indice.guardar("1", "Pérez Ruiz", "despues");
+
+        assertEquals(1, indice.tamaño());
+        assertTrue(indice.buscar("garcia lopez", 10, 0.3).isEmpty());
+        assertEquals(List.of("despues"), indice.buscar("perez ruiz", 10, 0.3));
+    }
+
+    @Test
+    void compactarConservaLosElementosQueQuedan() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        int total = 6000;
+        for (int i = 0; i < total; i++) {
+            indice.guardar("k" + i, "alumno" + i + " " + APELLIDOS[i % APELLIDOS.length], "v" + i);
+        }
+        // Quitar los pares deja libres mas de una cuarta parte de las posiciones, lo que fuerza a compactar
+        for (int i = 0; i < total; i += 2) {
+            indice.quitar("k" + i);
+        }
+        assertEquals(total / 2, indice.tamaño());
+
+        for (int i = 0; i < total; i += 97) {
+            List<String> encontrados = indice.buscar("alumno" + i, 1, 0.5);
+            if (i % 2 == 0) {
+                assertFalse(encontrados.contains("v" + i), "el elemento quitado " + i + " sigue apareciendo");
+            } else {
+                assertEquals(List.of("v" + i), encontrados);
+            }
+        }
+
+        // Las posiciones renumeradas siguen admitiendo cambios y altas
+        indice.guardar("k1", "Otro Nombre", "nuevo");
+        indice.guardar("k" + total, "alumno" + total, "v" + total);
+        assertEquals(List.of("nuevo"), indice.buscar("otro nombre", 1, 0.5));
+        assertTrue(indice.buscar("alumno1", 5, 0.9).stream().noneMatch("v1"::equals));
+        assertEquals(List.of("v" + total), indice.buscar("alumno" + total, 1, 0.5));
+        assertEquals(total / 2 + 1, indice.tamaño());
+    }
+
+    /**
+     * Comprueba el requisito de la busqueda aproximada: menos de 5 ms por consulta con 50.000 alumnos.
+     * Se mide la media de muchas consultas tras calentar, para no depender de una sola medida.
+     */
+    @Test
+    void buscaEnMenosDe5MsCon50000Alumnos() {
+        IndiceTrigramas<String> indice = new IndiceTrigramas<>();
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            String dni = String.format("%08d%c", i, (char) ('A' + i % 26));
+            String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " "
+                    + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+            indice.guardar(dni, dni + " " + nombre, nombre);
+        }
+        String[] consultas = {"garica lopz", "maria sanchez", "javer ruiz", "00012345", "alvaro dominguez",
+                "lucia", "perz", "serrano blanco"};
+        for (int i = 0; i < 200; i++) {
+            indice.buscar(consultas[i % consultas.length], 20, 0.3);
+        }
+
+        int repeticiones = 400;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < repeticiones; i++) {
+            assertFalse(indice.buscar(consultas[i % consultas.length], 20, 0.3).isEmpty());
+        }
+        double media = (System.nanoTime() - inicio) / 1e6 / repeticiones;
+        assertTrue(media < 5, "media por consulta: " + media + " ms");
+    }
+}